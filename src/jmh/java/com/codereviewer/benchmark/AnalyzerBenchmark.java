@@ -0,0 +1,65 @@
+package com.codereviewer.benchmark;
+
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.service.CodeAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整个分析流程（行视图、词法分析、全部规则、结果合并）在不同文件数量和线程数下的耗时。
+ * 文件大小在 50 到 2000 行之间变化，接近真实变更集的分布。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    private static final String[] SHAPES = {
+            SyntheticSources.TYPICAL, SyntheticSources.TYPICAL, SyntheticSources.LONG_LINES,
+            SyntheticSources.NESTED, SyntheticSources.DECLARATIONS
+    };
+
+    @Param({"10", "100", "1000"})
+    private int files;
+
+    // 0 表示使用可用处理器数
+    @Param({"1", "0"})
+    private int threads;
+
+    private CodeAnalyzer analyzer;
+    private final List<String> paths = new ArrayList<>();
+    private final List<String> contents = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        analyzer = new CodeAnalyzer(threads);
+        for (int i = 0; i < files; i++) {
+            int lines = 50 + (i * 7919) % 1950;
+            FileChange change = SyntheticSources.fileChange(SHAPES[i % SHAPES.length], lines, i);
+            paths.add(change.getFilePath());
+            contents.add(change.getContent());
+        }
+    }
+
+    @Benchmark
+    public ReviewResult analyze() {
+        return analyzer.analyze(SyntheticSources.copy(paths, contents));
+    }
+}
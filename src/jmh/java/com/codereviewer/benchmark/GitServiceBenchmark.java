@@ -0,0 +1,104 @@
+package com.codereviewer.benchmark;
+
+import com.codereviewer.model.FileChange;
+import com.codereviewer.service.GitService;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在临时生成的本地仓库上测量 {@link GitService#getChangedFiles}：基线分支上有 files 个 Java 文件，
+ * 评审分支在其后追加 commits 个提交，每个提交修改一部分文件并新增一个文件。
+ * 仓库在 gc 后打包，与真实仓库的对象布局一致。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitServiceBenchmark {
+
+    private static final String BASE_BRANCH = "base";
+
+    @Param({"100", "1000"})
+    private int files;
+
+    @Param({"1", "50"})
+    private int commits;
+
+    @Param({"false", "true"})
+    private boolean changedLinesOnly;
+
+    private File repositoryDir;
+
+    @Setup
+    public void setUp() throws Exception {
+        repositoryDir = Files.createTempDirectory("code-review-bench").toFile();
+        PersonIdent author = new PersonIdent("bench", "bench@example.com");
+        try (Git git = Git.init().setDirectory(repositoryDir).call()) {
+            for (int i = 0; i < files; i++) {
+                write(i, SyntheticSources.generate(SyntheticSources.TYPICAL, 100 + i % 400, i));
+            }
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("baseline").setAuthor(author).setCommitter(author).call();
+            git.branchCreate().setName(BASE_BRANCH).call();
+
+            // 每个提交修改约 1% 的文件并新增一个文件
+            int perCommit = Math.max(1, files / 100);
+            for (int c = 0; c < commits; c++) {
+                for (int k = 0; k < perCommit; k++) {
+                    int file = (c * perCommit + k) * 7 % files;
+                    write(file, SyntheticSources.generate(SyntheticSources.TYPICAL, 100 + file % 400, file)
+                            .replace("return result;", "return result; // change " + c));
+                }
+                write(files + c, SyntheticSources.generate(SyntheticSources.NESTED, 200, files + c));
+                git.add().addFilepattern(".").call();
+                git.commit().setMessage("change " + c).setAuthor(author).setCommitter(author).call();
+            }
+            git.gc().call();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(repositoryDir);
+    }
+
+    @Benchmark
+    public List<FileChange> getChangedFiles() throws Exception {
+        try (GitService gitService = new GitService()) {
+            gitService.setChangedLinesOnly(changedLinesOnly);
+            List<FileChange> changes = gitService.getChangedFiles(repositoryDir, BASE_BRANCH);
+            // 内容在首次使用时才解码，这里读取行视图以计入完整的读取开销
+            for (FileChange change : changes) {
+                change.getSourceView();
+            }
+            return changes;
+        }
+    }
+
+    private void write(int index, String content) throws IOException {
+        File file = new File(repositoryDir, "src/main/java/bench/p" + (index % 10) + "/Generated" + index + ".java");
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    }
+}
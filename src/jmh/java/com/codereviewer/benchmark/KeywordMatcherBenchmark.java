@@ -0,0 +1,65 @@
+package com.codereviewer.benchmark;
+
+import com.codereviewer.utils.KeywordMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐行统计复杂度关键字：旧实现对每个关键字调用一次 String.replace 比较长度，
+ * {@link KeywordMatcher#count} 单遍扫描并检查单词边界（两者结果不同：旧实现会把 "modifier" 中的 "if" 计入）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordMatcherBenchmark {
+
+    private static final String[] KEYWORDS = {"if", "else", "for", "while", "switch", "case", "catch", "&&", "||"};
+
+    @Param({"1000", "50000"})
+    private int lines;
+
+    @Param({SyntheticSources.TYPICAL, SyntheticSources.NESTED})
+    private String shape;
+
+    private final KeywordMatcher matcher = new KeywordMatcher(KEYWORDS);
+    private String[] split;
+
+    @Setup
+    public void setUp() {
+        split = SyntheticSources.generate(shape, lines, 0).split("\n");
+    }
+
+    @Benchmark
+    public int stringReplace() {
+        int total = 0;
+        for (String line : split) {
+            for (String keyword : KEYWORDS) {
+                total += (line.length() - line.replace(keyword, "").length()) / keyword.length();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int keywordMatcher() {
+        int total = 0;
+        for (String line : split) {
+            total += matcher.count(line, 0, line.length());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,93 @@
+package com.codereviewer.benchmark;
+
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import com.codereviewer.service.ReportGenerator;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成三种报告的耗时与分配，问题数分别为 1k 和 100k，平均每个文件 20 个问题。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    private static final int ISSUES_PER_FILE = 20;
+
+    private static final RuleDescriptor[] RULES = {
+            RuleDescriptor.of("STYLE_001", Severity.INFO, "代码行过长 ({0} 字符)", "建议将代码行长度控制在120字符以内"),
+            RuleDescriptor.of("NAMING_002", Severity.WARNING, "方法名应该以小写字母开头: {0}", "将方法名改为: {1}"),
+            RuleDescriptor.of("COMPLEXITY_002", Severity.CRITICAL, "代码复杂度过高，请简化逻辑",
+                    "减少条件判断和循环嵌套，考虑使用策略模式或状态模式")
+    };
+
+    @Param({"1000", "100000"})
+    private int issues;
+
+    private final ReportGenerator reportGenerator = new ReportGenerator();
+    private ReviewResult result;
+    private File outputDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        int fileCount = Math.max(1, issues / ISSUES_PER_FILE);
+        List<FileChange> fileChanges = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            FileChange change = new FileChange();
+            change.setFilePath("src/main/java/bench/p" + (i % 10) + "/Generated" + i + ".java");
+            change.setChangeType(i % 5 == 0 ? "ADD" : "MODIFY");
+            change.setContent("");
+            fileChanges.add(change);
+        }
+
+        // 问题按文件交错加入，使报告的按文件分组真正发挥作用
+        IssueStore store = new IssueStore();
+        for (int i = 0; i < issues; i++) {
+            String fileName = fileChanges.get(i % fileCount).getFilePath();
+            RuleDescriptor rule = RULES[i % RULES.length];
+            store.add(fileName, 1 + i / fileCount, rule, 121 + i % 80, "Process" + i);
+        }
+
+        result = new ReviewResult();
+        result.setFileChanges(fileChanges);
+        result.setIssueStore(store);
+        outputDir = Files.createTempDirectory("code-review-report-bench").toFile();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(outputDir);
+    }
+
+    @Benchmark
+    public File generateReport() throws IOException {
+        reportGenerator.generateReport(result, outputDir);
+        return outputDir;
+    }
+}
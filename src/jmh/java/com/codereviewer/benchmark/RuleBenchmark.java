@@ -0,0 +1,79 @@
+package com.codereviewer.benchmark;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.SourceView;
+import com.codereviewer.rules.CodeRule;
+import com.codereviewer.rules.ComplexityRule;
+import com.codereviewer.rules.CyclomaticComplexityRule;
+import com.codereviewer.rules.NamingRule;
+import com.codereviewer.rules.StyleRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个规则在不同大小和形态的源文件上的耗时。行视图和词法单元在准备阶段构建好，
+ * 只测量 {@link CodeRule#check} 本身，词法分析计入 {@link AnalyzerBenchmark}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleBenchmark {
+
+    @Param({"NamingRule", "ComplexityRule", "CyclomaticComplexityRule", "StyleRule"})
+    private String rule;
+
+    @Param({"1000", "50000"})
+    private int lines;
+
+    @Param({SyntheticSources.TYPICAL, SyntheticSources.LONG_LINES, SyntheticSources.NESTED,
+            SyntheticSources.DECLARATIONS})
+    private String shape;
+
+    private CodeRule codeRule;
+    private FileChange fileChange;
+    private SourceView source;
+
+    @Setup
+    public void setUp() {
+        switch (rule) {
+            case "NamingRule":
+                codeRule = new NamingRule();
+                break;
+            case "ComplexityRule":
+                codeRule = new ComplexityRule();
+                break;
+            case "CyclomaticComplexityRule":
+                codeRule = new CyclomaticComplexityRule();
+                break;
+            case "StyleRule":
+                codeRule = new StyleRule();
+                break;
+            default:
+                throw new IllegalArgumentException("未知规则: " + rule);
+        }
+        fileChange = SyntheticSources.fileChange(shape, lines, 0);
+        source = fileChange.getSourceView();
+        source.tokens();
+    }
+
+    @Benchmark
+    public List<CodeIssue> check() {
+        return codeRule.check(fileChange, source);
+    }
+}
@@ -0,0 +1,93 @@
+package com.codereviewer.benchmark;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.LineStream;
+import com.codereviewer.rules.StyleRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式分析中格式检查的两种实现：先把 UTF-8 解码为行再逐行调用 {@link StyleRule#checkLine}，
+ * 以及直接在字节上扫描的 {@link StyleRule#checkBytes}。内容可以混入中文注释行，覆盖多字节字符。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StyleScanBenchmark {
+
+    // 与 CodeAnalyzer 流式分析的单行上限一致
+    private static final int MAX_LINE_CHARS = 4096;
+
+    private static final String COMMENT = "        // 根据输入计算结果，超出范围时返回默认值并记录警告\n";
+
+    @Param({"1000", "50000"})
+    private int lines;
+
+    @Param({SyntheticSources.TYPICAL, SyntheticSources.LONG_LINES})
+    private String shape;
+
+    // 每隔多少行插入一行中文注释，0 表示不插入
+    @Param({"0", "4"})
+    private int commentEvery;
+
+    private final StyleRule rule = new StyleRule();
+    private byte[] content;
+
+    @Setup
+    public void setUp() {
+        String source = SyntheticSources.generate(shape, lines, 0);
+        if (commentEvery > 0) {
+            StringBuilder mixed = new StringBuilder(source.length() * 2);
+            int line = 0;
+            for (String text : source.split("\n", -1)) {
+                if (line > 0) {
+                    mixed.append('\n');
+                }
+                if (line > 0 && line % commentEvery == 0) {
+                    mixed.append(COMMENT);
+                }
+                mixed.append(text);
+                line++;
+            }
+            source = mixed.toString();
+        }
+        content = source.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<CodeIssue> decodeLines() throws IOException {
+        List<CodeIssue> issues = new ArrayList<>();
+        LineStream.read(Channels.newChannel(new ByteArrayInputStream(content)), MAX_LINE_CHARS, line -> {
+            rule.checkLine("Generated.java", line, null, issues);
+            return true;
+        });
+        return issues;
+    }
+
+    @Benchmark
+    public List<CodeIssue> scanBytes() throws IOException {
+        List<CodeIssue> issues = new ArrayList<>();
+        rule.checkBytes("Generated.java", Channels.newChannel(new ByteArrayInputStream(content)), null, issues);
+        return issues;
+    }
+}
@@ -0,0 +1,140 @@
+package com.codereviewer.benchmark;
+
+import com.codereviewer.model.FileChange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 生成基准测试使用的 Java 源文件。不同形态分别偏重不同规则：
+ * <ul>
+ *     <li>typical: 普通业务代码，各规则都会命中少量问题；</li>
+ *     <li>longLines: 长行、Tab 缩进和行尾空白较多，偏重 StyleRule；</li>
+ *     <li>nested: 条件与循环深度嵌套的长方法，偏重 ComplexityRule；</li>
+ *     <li>declarations: 大量字段和短方法声明，偏重 NamingRule。</li>
+ * </ul>
+ * 相同参数总是生成相同内容，保证多次运行之间可比。
+ */
+public final class SyntheticSources {
+
+    public static final String TYPICAL = "typical";
+    public static final String LONG_LINES = "longLines";
+    public static final String NESTED = "nested";
+    public static final String DECLARATIONS = "declarations";
+
+    private SyntheticSources() {
+    }
+
+    public static String generate(String shape, int lines, int seed) {
+        StringBuilder source = new StringBuilder(lines * 40);
+        source.append("package bench.p").append(seed % 10).append(";\n\n");
+        source.append("import java.util.*;\n\n");
+        source.append("public class Generated").append(seed).append(" {\n");
+        int written = 5;
+        int block = 0;
+        while (written < lines) {
+            switch (shape) {
+                case LONG_LINES:
+                    written += appendLongLines(source, block);
+                    break;
+                case NESTED:
+                    written += appendNested(source, block);
+                    break;
+                case DECLARATIONS:
+                    written += appendDeclarations(source, block);
+                    break;
+                case TYPICAL:
+                    written += appendTypical(source, block);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的源文件形态: " + shape);
+            }
+            block++;
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    public static FileChange fileChange(String shape, int lines, int seed) {
+        FileChange change = new FileChange();
+        change.setFilePath("src/main/java/bench/p" + (seed % 10) + "/Generated" + seed + ".java");
+        change.setChangeType("MODIFY");
+        change.setContent(generate(shape, lines, seed));
+        return change;
+    }
+
+    // 每次调用都返回新的 FileChange，避免复用已缓存的行视图与词法单元
+    public static List<FileChange> copy(List<String> paths, List<String> contents) {
+        List<FileChange> changes = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            FileChange change = new FileChange();
+            change.setFilePath(paths.get(i));
+            change.setChangeType("MODIFY");
+            change.setContent(contents.get(i));
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    private static int appendTypical(StringBuilder source, int n) {
+        source.append("    private static final int LIMIT_").append(n).append(" = ").append(n).append(";\n");
+        source.append("    private Map<String, Integer> Cache").append(n).append(" = new HashMap<>();\n\n");
+        source.append("    /** 处理第 ").append(n).append(" 组输入 */\n");
+        source.append("    public List<String> process").append(n).append("(Map<String, Integer> input) {\n");
+        source.append("        List<String> result = new ArrayList<>();\n");
+        source.append("        if (input == null || input.isEmpty()) {\n");
+        source.append("            return result;\n");
+        source.append("        }\n");
+        source.append("        for (Map.Entry<String, Integer> entry : input.entrySet()) {\n");
+        source.append("            if (entry.getValue() > LIMIT_").append(n).append(" && entry.getKey() != null) {\n");
+        source.append("                result.add(entry.getKey() + \"{\" + entry.getValue() + \"}\"); // 字符串中的括号\n");
+        source.append("            }\n");
+        source.append("        }\n");
+        source.append("        return result;\n");
+        source.append("    }\n\n");
+        return 17;
+    }
+
+    private static int appendLongLines(StringBuilder source, int n) {
+        source.append("    public String describe").append(n).append("(String name, int count) \n");
+        source.append("    {\n");
+        source.append("\t\tString prefix = \"").append("x".repeat(40 + n % 120)).append("\";\n");
+        source.append("        return prefix + name + \" has \" + count + \" items and a description that keeps going\""
+                + " + \" well beyond the configured limit\" + String.valueOf(count * 31 + name.hashCode()); \n");
+        source.append("    }\n\n");
+        return 6;
+    }
+
+    private static int appendNested(StringBuilder source, int n) {
+        source.append("    public int evaluate").append(n).append("(int[] values, boolean strict) {\n");
+        source.append("        int score = 0;\n");
+        int lines = 2;
+        for (int i = 0; i < 12; i++) {
+            source.append("        for (int i").append(i).append(" = 0; i").append(i).append(" < values.length; i")
+                    .append(i).append("++) {\n");
+            source.append("            if (values[i").append(i).append("] > ").append(i)
+                    .append(" && strict || values[i").append(i).append("] < 0 && !strict) {\n");
+            source.append("                switch (values[i").append(i).append("] % 3) { case 0: score++; break; ")
+                    .append("case 1: score--; break; default: break; }\n");
+            source.append("            } else if (score > ").append(i).append(") {\n");
+            source.append("                while (score > 100) { score /= 2; }\n");
+            source.append("            }\n");
+            source.append("        }\n");
+            lines += 7;
+        }
+        source.append("        return score;\n");
+        source.append("    }\n\n");
+        return lines + 3;
+    }
+
+    private static int appendDeclarations(StringBuilder source, int n) {
+        source.append("    private int Value").append(n).append(" = 0;\n");
+        source.append("    protected String label").append(n).append(";\n");
+        source.append("    public static final long ID_").append(n).append(" = ").append(n).append("L;\n");
+        source.append("    public int GetValue").append(n).append("() { return Value").append(n).append("; }\n");
+        source.append("    private void setLabel").append(n).append("(String label) { this.label").append(n)
+                .append(" = label; }\n");
+        source.append("    public static class inner").append(n).append(" { }\n\n");
+        return 7;
+    }
+}
@@ -0,0 +1,356 @@
+package com.codereviewer;
+
+import com.codereviewer.metrics.LatencyHistogram;
+import com.codereviewer.metrics.ReviewMetrics;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.ReviewState;
+import com.codereviewer.rules.CodeRule;
+import com.codereviewer.rules.RuleSet;
+import com.codereviewer.service.AnalysisCache;
+import com.codereviewer.service.Baseline;
+import com.codereviewer.service.CodeAnalyzer;
+import com.codereviewer.service.GeneratedFileDetector;
+import com.codereviewer.service.GitService;
+import com.codereviewer.service.IncrementalReview;
+import com.codereviewer.service.ReportGenerator;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 评审类目标共用的参数与服务：Git 差异、代码分析、分析缓存、报告生成和性能统计。
+ */
+public abstract class AbstractReviewMojo extends AbstractMojo {
+
+    @Parameter(property = "baseBranch", defaultValue = "master")
+    protected String baseBranch;
+
+    @Parameter(property = "outputDir", defaultValue = "${project.build.directory}/code-review")
+    protected String outputDir;
+
+    // Ant 风格模式，逗号分隔，相对于项目目录
+    @Parameter(property = "includePatterns", defaultValue = "**/*.java")
+    protected String includePatterns;
+
+    @Parameter(property = "excludePatterns", defaultValue = "**/target/**")
+    protected String excludePatterns;
+
+    // 与基线分支和 HEAD 的合并基点比较，避免基线分支上后来的改动进入差异
+    @Parameter(property = "useMergeBase", defaultValue = "false")
+    protected boolean useMergeBase;
+
+    // 增量评审：只重新分析上次评审后有变化的文件，其余文件沿用 outputDir 中保存的结果
+    @Parameter(property = "incremental", defaultValue = "false")
+    protected boolean incremental;
+
+    // 只评审暂存区（index）相对 HEAD 的变更，用于 pre-commit 钩子；开启后忽略 baseBranch 和增量评审
+    @Parameter(property = "staged", defaultValue = "false")
+    protected boolean staged;
+
+    // 重命名检测：开启后重命名的文件按 RENAME 处理，renameLimit 为参与配对的最大文件数
+    @Parameter(property = "detectRenames", defaultValue = "false")
+    protected boolean detectRenames;
+
+    @Parameter(property = "renameLimit", defaultValue = "400")
+    protected int renameLimit;
+
+    // 分析线程数：0 表示使用可用处理器数，1 表示顺序执行（便于调试）
+    @Parameter(property = "threads", defaultValue = "0")
+    protected int threads;
+
+    // 只检查变更的行（编辑区间加上下文），方法级规则只检查与变更重叠的方法
+    @Parameter(property = "changedLinesOnly", defaultValue = "false")
+    protected boolean changedLinesOnly;
+
+    @Parameter(property = "contextLines", defaultValue = "3")
+    protected int contextLines;
+
+    // 按 blob id 缓存分析结果，未指定 cacheDir 时放在 outputDir/cache 下
+    @Parameter(property = "cache", defaultValue = "true")
+    protected boolean cache;
+
+    // 可在多个构建之间共享；同一时刻只有一个评审使用该目录，其余评审不使用缓存
+    @Parameter(property = "cacheDir")
+    protected String cacheDir;
+
+    // 缓存大小上限（MB），超出后按最近访问时间淘汰
+    @Parameter(property = "cacheMaxSize", defaultValue = "256")
+    protected long cacheMaxSize;
+
+    // 质量门限：严重问题或一般问题数超过上限时取消剩余分析，只写 JSON 报告并使构建失败；-1 表示不限制
+    @Parameter(property = "maxCritical", defaultValue = "-1")
+    protected int maxCritical;
+
+    @Parameter(property = "maxWarnings", defaultValue = "-1")
+    protected int maxWarnings;
+
+    // 单个文件的分析时间预算（毫秒），超出后跳过剩余规则并在报告中说明，0 表示不限制
+    @Parameter(property = "fileTimeBudget", defaultValue = "10000")
+    protected long fileTimeBudget;
+
+    // 超过该大小（MB）的文件按块流式读取，只执行逐行规则，不整体载入内存
+    @Parameter(property = "streamingThreshold", defaultValue = "4")
+    protected long streamingThreshold;
+
+    // 生成的代码（@Generated、"DO NOT EDIT" 等文件头、超长行）的处理方式：full、light（只执行逐行规则）或 skip
+    @Parameter(property = "generatedFiles", defaultValue = "light")
+    protected String generatedFiles;
+
+    // 覆盖插件自带 rules-config.properties 的规则开关文件，格式为 <id>.enabled=true|false
+    @Parameter(property = "rulesConfig")
+    protected File rulesConfig;
+
+    // 关闭的规则，逗号分隔，如 naming,style；关闭的规则不会被实例化
+    @Parameter(property = "disabledRules")
+    protected String disabledRules;
+
+    // 问题基线文件（由 baseline 目标生成），存在时报告中只保留不在基线中的问题
+    @Parameter(property = "baselineFile", defaultValue = "${basedir}/code-review-baseline.bin")
+    protected File baselineFile;
+
+    // 已读入内容、等待分析的文件数上限，0 表示线程数的两倍；内存占用随线程数和该值增长，与变更文件数无关
+    @Parameter(property = "queueDepth", defaultValue = "0")
+    protected int queueDepth;
+
+    // JSON 报告是否缩进排版
+    @Parameter(property = "prettyJson", defaultValue = "false")
+    protected boolean prettyJson;
+
+    // 同时写出二进制结果 code-review-result.bin，供其他工具读取
+    @Parameter(property = "binaryResult", defaultValue = "false")
+    protected boolean binaryResult;
+
+    // 在日志中列出最慢的规则和文件数量，0 表示不输出
+    @Parameter(property = "metricsTopN", defaultValue = "5")
+    protected int metricsTopN;
+
+    protected GitService gitService;
+    protected CodeAnalyzer codeAnalyzer;
+    protected ReportGenerator reportGenerator;
+    protected AnalysisCache analysisCache;
+    protected ReviewMetrics metrics;
+
+    protected void initServices() throws IOException {
+        this.metrics = new ReviewMetrics();
+        this.gitService = new GitService();
+        this.gitService.setMetrics(metrics);
+        this.gitService.setChangedLinesOnly(changedLinesOnly);
+        this.gitService.setPathPatterns(includePatterns, excludePatterns);
+        this.gitService.setRenameDetection(detectRenames, renameLimit);
+        this.gitService.setUseMergeBase(useMergeBase);
+        this.codeAnalyzer = new CodeAnalyzer(threads, RuleSet.load(RuleSet.loadConfig(rulesConfig, disabledRules)));
+        this.codeAnalyzer.setChangedLinesOnly(changedLinesOnly, contextLines);
+        this.codeAnalyzer.setMetrics(metrics);
+        this.codeAnalyzer.setQueueDepth(queueDepth);
+        // 有基线时门限只统计新问题，需要先过滤，分析阶段不提前取消
+        if (baselineFile == null || !baselineFile.isFile()) {
+            this.codeAnalyzer.setIssueLimits(maxCritical, maxWarnings);
+        }
+        this.codeAnalyzer.setFileTimeBudget(fileTimeBudget);
+        this.codeAnalyzer.setStreaming(streamingThreshold * 1024 * 1024,
+                GeneratedFileDetector.Policy.valueOf(generatedFiles.toUpperCase(Locale.ROOT)));
+        if (cache) {
+            File directory = cacheDir != null ? new File(cacheDir) : new File(outputDir, "cache");
+            this.analysisCache = AnalysisCache.open(directory.toPath(), cacheMaxSize * 1024 * 1024);
+            if (analysisCache == null) {
+                getLog().warn("分析缓存目录正被其他评审使用，本次不使用缓存: " + directory);
+            }
+            this.codeAnalyzer.setCache(analysisCache);
+        }
+        this.reportGenerator = new ReportGenerator();
+        this.reportGenerator.setPrettyJson(prettyJson);
+        this.reportGenerator.setBinaryResult(binaryResult);
+    }
+
+    protected void closeServices() {
+        if (gitService != null) {
+            gitService.close();
+        }
+        if (analysisCache == null) {
+            return;
+        }
+        try {
+            analysisCache.close();
+        } catch (IOException e) {
+            getLog().warn("保存分析缓存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 计算变更并分析。增量模式下只重新分析上次评审后有变化的文件，其余文件沿用保存的结果；
+     * 没有保存的状态、选项或比较的基线提交变化、上次的提交已不在 HEAD 的历史中时退回完整评审。
+     *
+     * @return 没有任何变更时返回 null
+     */
+    protected ReviewResult reviewChanges(File projectDir) throws Exception {
+        IncrementalReview incrementalReview = new IncrementalReview();
+        File stateFile = new File(outputDir, IncrementalReview.STATE_FILE);
+        String options = reviewOptions(projectDir.getAbsolutePath());
+
+        if (staged) {
+            getLog().info("分析暂存区变更");
+            List<FileChange> fileChanges = gitService.getStagedChanges(projectDir);
+            if (fileChanges.isEmpty()) {
+                getLog().info("没有发现代码变更");
+                return null;
+            }
+            getLog().info("发现 " + fileChanges.size() + " 个文件变更");
+            return applyBaseline(projectDir, analyze(fileChanges));
+        }
+
+        ReviewState previous = incremental ? incrementalReview.load(stateFile) : null;
+        if (previous != null && (!options.equals(previous.getOptions())
+                || !gitService.isAncestorOfHead(projectDir, previous.getCommit()))) {
+            getLog().info("评审选项已变化或上次评审的提交不在当前历史中，执行完整评审");
+            previous = null;
+        }
+
+        getLog().info("分析Git变更，基线分支: " + baseBranch + (useMergeBase ? " (合并基点)" : ""));
+        List<FileChange> fileChanges = gitService.getChangedFiles(projectDir, baseBranch);
+        if (previous != null && incrementalReview.baseChanged(previous, gitService.getReviewedBase())) {
+            getLog().info("比较的基线提交已变化，执行完整评审");
+            previous = null;
+        }
+
+        if (fileChanges.isEmpty()) {
+            getLog().info("没有发现代码变更");
+            return null;
+        }
+        getLog().info("发现 " + fileChanges.size() + " 个文件变更");
+
+        ReviewResult result;
+        if (previous != null) {
+            List<FileChange> changed = incrementalReview.changedSince(previous, fileChanges);
+            getLog().info("增量评审，上次评审的提交: " + previous.getCommit() + "，重新分析 " + changed.size() + " 个文件");
+            result = incrementalReview.merge(previous, fileChanges, changed, analyze(changed));
+        } else {
+            result = analyze(fileChanges);
+        }
+        // 提前取消的结果不完整，不保存为增量状态
+        if (incremental && !result.isCancelled()) {
+            incrementalReview.save(stateFile, gitService.getReviewedHead(), gitService.getReviewedBase(), options, result);
+        }
+        // 增量状态保存的是过滤前的结果，基线更新后仍可继续增量评审
+        return applyBaseline(projectDir, result);
+    }
+
+    // 基线文件不存在时返回 null
+    protected Baseline openBaseline() throws IOException {
+        if (baselineFile == null || !baselineFile.isFile()) {
+            return null;
+        }
+        Baseline baseline = Baseline.open(baselineFile.toPath());
+        getLog().info("使用问题基线: " + baselineFile.getAbsolutePath() + "，共 " + baseline.size() + " 个已知问题");
+        return baseline;
+    }
+
+    /**
+     * 去掉基线中已有的问题。指纹需要问题所在行的内容，增量评审中沿用的文件和合并的分片结果只保存了 blob id，
+     * 先从仓库读取有问题的文件。
+     */
+    protected ReviewResult applyBaseline(File projectDir, ReviewResult result) throws Exception {
+        Baseline baseline = openBaseline();
+        if (baseline == null) {
+            return result;
+        }
+        gitService.loadIssueContents(projectDir, result);
+        ReviewResult filtered = metrics.time("基线过滤", () -> baseline.filter(result));
+        getLog().info("基线中已有 " + filtered.getSuppressedIssues() + " 个问题，新问题 " + filtered.getTotalIssues() + " 个");
+        return filtered;
+    }
+
+    // 影响评审结果的选项，保存在增量状态和分片结果中，用于判断结果能否合并
+    protected String reviewOptions(String location) {
+        StringBuilder rules = new StringBuilder();
+        for (CodeRule rule : codeAnalyzer.getRules()) {
+            rules.append(rule.getClass().getName()).append(':').append(rule.getVersion()).append(',');
+        }
+        return String.join("|", baseBranch, String.valueOf(useMergeBase), String.valueOf(includePatterns),
+                String.valueOf(excludePatterns), String.valueOf(detectRenames), String.valueOf(changedLinesOnly),
+                String.valueOf(contextLines), String.valueOf(streamingThreshold), String.valueOf(generatedFiles),
+                String.valueOf(fileTimeBudget), rules.toString(), location);
+    }
+
+    protected ReviewResult analyze(List<FileChange> fileChanges) {
+        getLog().info("开始代码分析，线程数: " + codeAnalyzer.getThreads());
+        // 内容在分析前逐个读入，分析完即释放
+        ReviewResult result = metrics.time("代码分析",
+                () -> codeAnalyzer.analyze(fileChanges, gitService.contentSource()));
+        if (result.isCancelled()) {
+            getLog().warn("问题数超过质量门限，已取消剩余分析，跳过 " + result.getSkippedFiles() + " 个文件");
+        }
+        if (analysisCache != null) {
+            getLog().info("分析缓存: 命中 " + analysisCache.getHits() + " 个文件, 未命中 " + analysisCache.getMisses() + " 个文件");
+        }
+        return result;
+    }
+
+    /**
+     * 检查质量门限，未通过时只写最小报告并抛出 {@link MojoFailureException}。
+     */
+    protected void checkQualityGate(ReviewResult result, File outputDirectory) throws MojoFailureException, IOException {
+        String failure = null;
+        if (maxCritical >= 0 && result.getCriticalIssues() > maxCritical) {
+            failure = "严重问题数 " + result.getCriticalIssues() + " 超过上限 " + maxCritical;
+        } else if (maxWarnings >= 0 && result.getWarningIssues() > maxWarnings) {
+            failure = "一般问题数 " + result.getWarningIssues() + " 超过上限 " + maxWarnings;
+        }
+        if (failure == null) {
+            return;
+        }
+        String reason = failure;
+        metrics.time("生成报告", () -> reportGenerator.generateMinimalReport(result, outputDirectory, reason));
+        logSummary(result);
+        throw new MojoFailureException("代码评审未通过质量门限: " + failure
+                + (result.isCancelled() ? "（已提前取消，" + result.getSkippedFiles() + " 个文件未分析）" : ""));
+    }
+
+    protected void generateReport(ReviewResult result, File outputDirectory) throws IOException {
+        metrics.time("生成报告", () -> reportGenerator.generateReport(result, outputDirectory));
+    }
+
+    protected void logSummary(ReviewResult result) {
+        getLog().info("评审总结:");
+        getLog().info("- 总问题数: " + result.getTotalIssues());
+        getLog().info("- 严重问题: " + result.getCriticalIssues());
+        getLog().info("- 一般问题: " + result.getWarningIssues());
+        getLog().info("- 建议优化: " + result.getInfoIssues());
+        if (result.getSuppressedIssues() > 0) {
+            getLog().info("- 基线中已有（未列出）: " + result.getSuppressedIssues());
+        }
+    }
+
+    protected void logMetrics() {
+        if (metricsTopN <= 0) {
+            return;
+        }
+        getLog().info("性能统计: 扫描 " + metrics.getFiles() + " 个文件, " + metrics.getLines() + " 行, "
+                + metrics.getBytes() + " 字节");
+        if (metrics.getStreamedFiles() > 0 || metrics.getGeneratedFiles() > 0) {
+            getLog().info("- 流式分析 " + metrics.getStreamedFiles() + " 个文件, 识别为生成代码 "
+                    + metrics.getGeneratedFiles() + " 个文件");
+        }
+        for (Map.Entry<String, Long> phase : metrics.getPhaseNanos().entrySet()) {
+            getLog().info("- " + phase.getKey() + ": " + ReviewMetrics.toMillis(phase.getValue()) + " ms");
+        }
+        getLog().info("最慢的规则:");
+        for (Map.Entry<String, LatencyHistogram> rule : metrics.slowestRules(metricsTopN)) {
+            LatencyHistogram histogram = rule.getValue();
+            getLog().info("- " + rule.getKey() + ": 共 " + ReviewMetrics.toMillis(histogram.getTotalNanos())
+                    + " ms, " + histogram.getCount() + " 次, p99 "
+                    + ReviewMetrics.toMillis(histogram.getPercentileNanos(99)) + " ms");
+        }
+        getLog().info("最慢的文件:");
+        for (ReviewMetrics.FileTiming timing : metrics.slowestFiles(metricsTopN)) {
+            getLog().info("- " + timing.getFile() + ": " + ReviewMetrics.toMillis(timing.getNanos()) + " ms, "
+                    + timing.getLines() + " 行" + (timing.isCached() ? " (缓存)" : ""));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.codereviewer;
+
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.ReviewResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在 reactor 根项目上只执行一次的评审：对整个 reactor 只计算一次 Git 差异并一次性分析全部变更，
+ * 再按文件所属模块（目录最深的模块）拆分，生成各模块报告和合并报告。
+ * <p>
+ * 合并报告写入 outputDir，各模块报告写入 outputDir/modules/&lt;artifactId&gt;。
+ */
+@Mojo(name = "aggregate", aggregator = true)
+public class AggregateReviewMojo extends AbstractReviewMojo {
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    private List<MavenProject> reactorProjects;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("开始执行多模块代码评审...");
+
+        try {
+            initServices();
+
+            MavenProject root = session.getTopLevelProject();
+            File rootDir = root.getBasedir();
+            getLog().info("Reactor 根目录: " + rootDir.getAbsolutePath() + "，共 " + reactorProjects.size() + " 个模块");
+
+            // 整个 reactor 只计算一次差异
+            ReviewResult result = reviewChanges(rootDir);
+            if (result == null) {
+                return;
+            }
+
+            File outputDirectory = new File(outputDir);
+            checkQualityGate(result, outputDirectory);
+
+            getLog().info("生成评审报告...");
+            generateReport(result, outputDirectory);
+
+            Map<MavenProject, ReviewResult> moduleResults = splitByModule(result);
+            for (Map.Entry<MavenProject, ReviewResult> entry : moduleResults.entrySet()) {
+                MavenProject module = entry.getKey();
+                ReviewResult moduleResult = entry.getValue();
+                File moduleDirectory = new File(new File(outputDirectory, "modules"), module.getArtifactId());
+                generateReport(moduleResult, moduleDirectory);
+                getLog().info("- " + module.getArtifactId() + ": " + moduleResult.getFileChanges().size()
+                        + " 个文件, " + moduleResult.getTotalIssues() + " 个问题");
+            }
+            metrics.writeJson(new File(outputDirectory, "review-metrics.json"));
+
+            getLog().info("代码评审完成！报告已生成到: " + outputDirectory.getAbsolutePath());
+
+            logSummary(result);
+            logMetrics();
+
+        } catch (MojoFailureException e) {
+            throw e;
+        } catch (Exception e) {
+            getLog().error("代码评审执行失败", e);
+            throw new MojoExecutionException("代码评审失败: " + e.getMessage(), e);
+        } finally {
+            closeServices();
+        }
+    }
+
+    // 按文件所属模块拆分结果，模块按 reactor 顺序排列
+    private Map<MavenProject, ReviewResult> splitByModule(ReviewResult result) {
+        // 目录较深的模块优先匹配，嵌套模块中的文件归属最内层模块
+        List<ModuleDir> modules = new ArrayList<>(reactorProjects.size());
+        for (MavenProject project : reactorProjects) {
+            String prefix = gitService.relativePath(project.getBasedir());
+            modules.add(new ModuleDir(project, prefix.isEmpty() ? "" : prefix + "/"));
+        }
+        modules.sort(Comparator.comparingInt((ModuleDir m) -> m.prefix.length()).reversed());
+
+        Map<String, MavenProject> owners = new HashMap<>();
+        Map<MavenProject, List<FileChange>> changesByModule = new HashMap<>();
+        for (FileChange change : result.getFileChanges()) {
+            MavenProject owner = findOwner(modules, change.getFilePath());
+            owners.put(change.getFilePath(), owner);
+            changesByModule.computeIfAbsent(owner, key -> new ArrayList<>()).add(change);
+        }
+
+        IssueStore issues = result.getIssueStore();
+        Map<MavenProject, IssueStore> issuesByModule = new HashMap<>();
+        for (int i = 0; i < issues.size(); i++) {
+            MavenProject owner = owners.get(issues.fileName(issues.fileIndex(i)));
+            issuesByModule.computeIfAbsent(owner, key -> new IssueStore()).add(issues.get(i));
+        }
+
+        Map<MavenProject, ReviewResult> results = new LinkedHashMap<>();
+        for (MavenProject project : reactorProjects) {
+            List<FileChange> moduleChanges = changesByModule.get(project);
+            if (moduleChanges == null) {
+                continue;
+            }
+            ReviewResult moduleResult = new ReviewResult();
+            moduleResult.setFileChanges(moduleChanges);
+            moduleResult.setIssueStore(issuesByModule.getOrDefault(project, new IssueStore()));
+            results.put(project, moduleResult);
+        }
+        return results;
+    }
+
+    private static MavenProject findOwner(List<ModuleDir> modules, String filePath) {
+        for (ModuleDir module : modules) {
+            if (filePath.startsWith(module.prefix)) {
+                return module.project;
+            }
+        }
+        return null;
+    }
+
+    private static final class ModuleDir {
+        private final MavenProject project;
+        private final String prefix;
+
+        private ModuleDir(MavenProject project, String prefix) {
+            this.project = project;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.codereviewer;
+
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.service.Baseline;
+import com.codereviewer.service.IssueFingerprints;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 重新生成问题基线：分析 HEAD 中匹配包含/排除模式的全部文件，把所有问题的指纹写入 baselineFile。
+ * 之后的 review、aggregate、watch 和 merge 只报告不在基线中的问题。
+ */
+@Mojo(name = "baseline")
+public class BaselineMojo extends AbstractReviewMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    // 每批读取并分析的文件数，分析完即释放内容
+    @Parameter(property = "baselineBatchSize", defaultValue = "2000")
+    private int batchSize;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("开始生成问题基线...");
+
+        try {
+            // 基线需要记录全部问题：不提前取消，也不只检查变更行
+            maxCritical = -1;
+            maxWarnings = -1;
+            changedLinesOnly = false;
+            initServices();
+
+            File projectDir = project.getBasedir();
+            List<FileChange> files = gitService.getAllFiles(projectDir);
+            getLog().info("HEAD 中共 " + files.size() + " 个文件");
+
+            long[] fingerprints = new long[0];
+            int issues = 0;
+            int step = Math.max(1, batchSize);
+            for (int start = 0; start < files.size(); start += step) {
+                List<FileChange> batch = new ArrayList<>(files.subList(start, Math.min(files.size(), start + step)));
+                gitService.loadContents(projectDir, batch);
+                ReviewResult result = codeAnalyzer.analyze(batch);
+                long[] batchFingerprints = IssueFingerprints.compute(result);
+
+                fingerprints = Arrays.copyOf(fingerprints, issues + batchFingerprints.length);
+                System.arraycopy(batchFingerprints, 0, fingerprints, issues, batchFingerprints.length);
+                issues += batchFingerprints.length;
+                // 释放已分析文件的内容
+                for (int i = start; i < start + batch.size(); i++) {
+                    files.set(i, null);
+                }
+            }
+
+            int written = Baseline.write(baselineFile.toPath(), fingerprints);
+            getLog().info("基线已写入: " + baselineFile.getAbsolutePath() + "，共 " + issues + " 个问题，"
+                    + written + " 个不同的指纹");
+            logMetrics();
+
+        } catch (Exception e) {
+            getLog().error("生成问题基线失败", e);
+            throw new MojoExecutionException("生成问题基线失败: " + e.getMessage(), e);
+        } finally {
+            closeServices();
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package com.codereviewer;
 
+import com.codereviewer.model.FileChange;
 import com.codereviewer.model.ReviewResult;
-import com.codereviewer.service.CodeAnalyzer;
-import com.codereviewer.service.GitService;
-import com.codereviewer.service.ReportGenerator;
-import org.apache.maven.plugin.AbstractMojo;
+import com.codereviewer.service.ShardedReview;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -12,28 +10,27 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
 import java.io.File;
-
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 评审当前模块：只检查位于模块目录下的变更文件。多模块构建中请使用 aggregate 目标，只计算一次差异。
+ * <p>
+ * shardCount 大于 1 时只分析分到第 shardIndex 个分片的文件，结果写入
+ * outputDir/review-partial-&lt;shardIndex&gt;-of-&lt;shardCount&gt;.bin，不生成报告；全部分片完成后由 merge 目标合并。
+ */
 @Mojo(name = "review")
-public class CodeReviewMojo extends AbstractMojo {
+public class CodeReviewMojo extends AbstractReviewMojo {
 
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
-    @Parameter(property = "baseBranch", defaultValue = "master")
-    private String baseBranch;
-
-    @Parameter(property = "outputDir", defaultValue = "${project.build.directory}/code-review")
-    private String outputDir;
-
-    @Parameter(property = "includePatterns", defaultValue = "**/*.java")
-    private String includePatterns;
-
-    @Parameter(property = "excludePatterns", defaultValue = "**/target/**")
-    private String excludePatterns;
+    // 分片评审的分片号（从 0 开始）与分片数，分片数为 1 时不分片
+    @Parameter(property = "shardIndex", defaultValue = "0")
+    private int shardIndex;
 
-    private GitService gitService;
-    private CodeAnalyzer codeAnalyzer;
-    private ReportGenerator reportGenerator;
+    @Parameter(property = "shardCount", defaultValue = "1")
+    private int shardCount;
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
@@ -46,44 +43,72 @@ public class CodeReviewMojo extends AbstractMojo {
             File projectDir = project.getBasedir();
             getLog().info("项目目录: " + projectDir.getAbsolutePath());
 
-            // 获取Git变更
-            getLog().info("分析Git变更，基线分支: " + baseBranch);
-            var fileChanges = gitService.getChangedFiles(projectDir, baseBranch);
-
-            if (fileChanges.isEmpty()) {
-                getLog().info("没有发现代码变更");
+            if (shardCount > 1) {
+                reviewShard(projectDir);
                 return;
             }
 
-            getLog().info("发现 " + fileChanges.size() + " 个文件变更");
+            // 获取Git变更并执行代码分析
+            ReviewResult result = reviewChanges(projectDir);
+            if (result == null) {
+                return;
+            }
 
-            // 执行代码分析
-            getLog().info("开始代码分析...");
-            ReviewResult result = codeAnalyzer.analyze(fileChanges);
+            // 检查质量门限，未通过时只写最小报告
+            File outputDirectory = new File(outputDir);
+            checkQualityGate(result, outputDirectory);
 
             // 生成报告
             getLog().info("生成评审报告...");
-            File outputDirectory = new File(outputDir);
-            reportGenerator.generateReport(result, outputDirectory);
+            generateReport(result, outputDirectory);
+            metrics.writeJson(new File(outputDirectory, "review-metrics.json"));
 
             getLog().info("代码评审完成！报告已生成到: " + outputDirectory.getAbsolutePath());
 
             // 输出总结信息
-            getLog().info("评审总结:");
-            getLog().info("- 总问题数: " + result.getTotalIssues());
-            getLog().info("- 严重问题: " + result.getCriticalIssues());
-            getLog().info("- 一般问题: " + result.getWarningIssues());
-            getLog().info("- 建议优化: " + result.getInfoIssues());
+            logSummary(result);
+            logMetrics();
 
+        } catch (MojoFailureException e) {
+            throw e;
         } catch (Exception e) {
             getLog().error("代码评审执行失败", e);
             throw new MojoExecutionException("代码评审失败: " + e.getMessage(), e);
+        } finally {
+            closeServices();
         }
     }
 
-    private void initServices() {
-        this.gitService = new GitService();
-        this.codeAnalyzer = new CodeAnalyzer();
-        this.reportGenerator = new ReportGenerator();
+    // 各分片独立计算完整的变更列表和相同的分配结果，只分析本分片的文件
+    private void reviewShard(File projectDir) throws Exception {
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new MojoExecutionException("shardIndex 应在 0 到 " + (shardCount - 1) + " 之间: " + shardIndex);
+        }
+        if (incremental || staged) {
+            getLog().warn("分片评审不支持增量评审和暂存区评审，按完整评审执行");
+        }
+
+        getLog().info("分析Git变更，基线分支: " + baseBranch + (useMergeBase ? " (合并基点)" : ""));
+        List<FileChange> allChanges = gitService.getChangedFiles(projectDir, baseBranch);
+        int[] positions = ShardedReview.positionsOf(allChanges, shardIndex, shardCount);
+        List<FileChange> fileChanges = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            fileChanges.add(allChanges.get(position));
+        }
+        getLog().info("分片 " + shardIndex + "/" + shardCount + ": 共 " + allChanges.size() + " 个文件变更，本分片分析 "
+                + fileChanges.size() + " 个");
+
+        // 没有分到文件时也写出空结果，merge 目标据此确认分片齐全
+        ReviewResult result = analyze(fileChanges);
+        File outputDirectory = new File(outputDir);
+        File partialFile = ShardedReview.partialFile(outputDirectory, shardIndex, shardCount);
+        // 选项中使用模块相对仓库的路径，各节点的检出目录可以不同
+        new ShardedReview().save(partialFile, shardIndex, shardCount, gitService.getReviewedHead(),
+                reviewOptions(gitService.relativePath(projectDir)), allChanges.size(), positions, result);
+        metrics.writeJson(new File(outputDirectory, "review-metrics-" + shardIndex + ".json"));
+
+        getLog().info("分片结果已写入: " + partialFile.getAbsolutePath());
+        logSummary(result);
+        logMetrics();
     }
-}
\ No newline at end of file
+}
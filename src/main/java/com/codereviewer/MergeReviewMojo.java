@@ -0,0 +1,67 @@
+package com.codereviewer;
+
+import com.codereviewer.model.PartialResult;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.service.ShardedReview;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 合并分片评审（review 目标的 shardIndex/shardCount）写出的全部分片结果，生成与单个节点评审相同的报告。
+ * 分片结果只保存 blob id，报告中的文件内容从当前仓库读取，因此需要在包含被评审提交的检出目录中执行。
+ */
+@Mojo(name = "merge")
+public class MergeReviewMojo extends AbstractReviewMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    // 分片结果所在目录，默认为 outputDir
+    @Parameter(property = "partialsDir")
+    private String partialsDir;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("开始合并分片评审结果...");
+
+        try {
+            // 合并不执行分析，不需要分析缓存
+            cache = false;
+            initServices();
+
+            File outputDirectory = new File(outputDir);
+            File directory = partialsDir != null ? new File(partialsDir) : outputDirectory;
+            ShardedReview shardedReview = new ShardedReview();
+            List<PartialResult> partials = shardedReview.loadAll(directory);
+            ReviewResult result = shardedReview.merge(partials);
+            getLog().info("已合并 " + partials.size() + " 个分片，共 " + result.getFileChanges().size() + " 个文件变更");
+            if (result.isCancelled()) {
+                getLog().warn("部分分片的问题数超过质量门限并提前取消，跳过 " + result.getSkippedFiles() + " 个文件");
+            }
+
+            result = applyBaseline(project.getBasedir(), result);
+
+            checkQualityGate(result, outputDirectory);
+
+            getLog().info("生成评审报告...");
+            generateReport(result, outputDirectory);
+
+            getLog().info("代码评审完成！报告已生成到: " + outputDirectory.getAbsolutePath());
+            logSummary(result);
+
+        } catch (MojoFailureException e) {
+            throw e;
+        } catch (Exception e) {
+            getLog().error("合并分片评审结果失败", e);
+            throw new MojoExecutionException("合并分片评审结果失败: " + e.getMessage(), e);
+        } finally {
+            closeServices();
+        }
+    }
+}
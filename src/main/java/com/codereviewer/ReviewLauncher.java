@@ -0,0 +1,296 @@
+package com.codereviewer;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.rules.CodeRule;
+import com.codereviewer.rules.RuleSet;
+import com.codereviewer.service.AnalysisCache;
+import com.codereviewer.service.Baseline;
+import com.codereviewer.service.CodeAnalyzer;
+import com.codereviewer.service.GeneratedFileDetector;
+import com.codereviewer.service.GitService;
+import com.codereviewer.service.ReportGenerator;
+import com.codereviewer.service.ShardedReview;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 不经过 Maven 生命周期的命令行入口，适合作为 git pre-commit 钩子：默认只评审暂存区相对 HEAD 的变更，
+ * 在控制台输出问题，问题数超过门限（默认不允许严重问题）时以退出码 1 结束（阻止提交），执行出错时退出码为 2。
+ * <p>
+ * 插件 jar 的清单中带有 Main-Class 和指向本地仓库的 Class-Path，安装后可直接运行：
+ * <pre>
+ * java -XX:TieredStopAtLevel=1 -Xshare:auto \
+ *     -jar ~/.m2/repository/com/codereviewer/code-review-plugin/1.0.0/code-review-plugin-1.0.0.jar --staged
+ * </pre>
+ * 选项：--staged、--base=&lt;修订&gt;、--dir=&lt;项目目录&gt;、--include=&lt;模式&gt;、--exclude=&lt;模式&gt;、
+ * --changed-lines-only、--context=&lt;行数&gt;、--threads=&lt;线程数&gt;、--cache-dir=&lt;目录&gt;、--output=&lt;报告目录&gt;、
+ * --max-critical=&lt;数量&gt;、--max-warnings=&lt;数量&gt;（-1 表示不限制）、--file-budget=&lt;毫秒&gt;、
+ * --streaming-threshold=&lt;MB&gt;、--generated=full|light|skip、--rules-config=&lt;文件&gt;、--disable-rules=&lt;规则名&gt;、
+ * --baseline=&lt;基线文件&gt;（默认为项目目录下的 code-review-baseline.bin，存在时只报告不在基线中的问题）、
+ * --pretty-json、--binary-result（在报告目录中同时写出二进制结果）、--queue-depth=&lt;等待分析的文件数&gt;。
+ * <p>
+ * 分片评审：--shard=&lt;分片号&gt;/&lt;分片数&gt; 只分析分到该分片的文件，把分片结果写入 --output 目录，不生成报告；
+ * --merge=&lt;分片结果目录&gt; 合并全部分片结果，按上述门限和选项生成报告。可以在本机用多个进程模拟多个 CI 节点。
+ */
+public class ReviewLauncher {
+
+    private boolean staged = true;
+    private String base;
+    private File projectDir = new File(".");
+    private String includePatterns = "**/*.java";
+    private String excludePatterns = "**/target/**";
+    private boolean changedLinesOnly;
+    private int contextLines = 3;
+    private int threads;
+    private String cacheDir;
+    private String outputDir;
+    private int maxCritical = 0;
+    private int maxWarnings = -1;
+    private long fileTimeBudget = 10000;
+    private long streamingThreshold = CodeAnalyzer.DEFAULT_STREAMING_THRESHOLD;
+    private GeneratedFileDetector.Policy generatedPolicy = GeneratedFileDetector.Policy.LIGHT;
+    private File rulesConfig;
+    private String disabledRules;
+    private File baselineFile;
+    private boolean prettyJson;
+    private boolean binaryResult;
+    private int queueDepth;
+    private int shardIndex;
+    private int shardCount = 1;
+    private File partialsDir;
+
+    public static void main(String[] args) {
+        int status;
+        try {
+            ReviewLauncher launcher = new ReviewLauncher();
+            launcher.parse(args);
+            status = launcher.run();
+        } catch (IllegalArgumentException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            status = 2;
+        } catch (Exception e) {
+            System.err.println("代码评审失败: " + e.getMessage());
+            status = 2;
+        }
+        System.exit(status);
+    }
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq >= 0 ? arg.substring(0, eq) : arg;
+            String value = eq >= 0 ? arg.substring(eq + 1) : null;
+            switch (name) {
+                case "--staged":
+                    staged = true;
+                    break;
+                case "--base":
+                    base = required(name, value);
+                    staged = false;
+                    break;
+                case "--dir":
+                    projectDir = new File(required(name, value));
+                    break;
+                case "--include":
+                    includePatterns = required(name, value);
+                    break;
+                case "--exclude":
+                    excludePatterns = required(name, value);
+                    break;
+                case "--changed-lines-only":
+                    changedLinesOnly = true;
+                    break;
+                case "--context":
+                    contextLines = Integer.parseInt(required(name, value));
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(required(name, value));
+                    break;
+                case "--cache-dir":
+                    cacheDir = required(name, value);
+                    break;
+                case "--output":
+                    outputDir = required(name, value);
+                    break;
+                case "--max-critical":
+                    maxCritical = Integer.parseInt(required(name, value));
+                    break;
+                case "--max-warnings":
+                    maxWarnings = Integer.parseInt(required(name, value));
+                    break;
+                case "--file-budget":
+                    fileTimeBudget = Long.parseLong(required(name, value));
+                    break;
+                case "--streaming-threshold":
+                    streamingThreshold = Long.parseLong(required(name, value)) * 1024 * 1024;
+                    break;
+                case "--generated":
+                    generatedPolicy = GeneratedFileDetector.Policy.valueOf(required(name, value).toUpperCase(Locale.ROOT));
+                    break;
+                case "--rules-config":
+                    rulesConfig = new File(required(name, value));
+                    break;
+                case "--disable-rules":
+                    disabledRules = required(name, value);
+                    break;
+                case "--baseline":
+                    baselineFile = new File(required(name, value));
+                    break;
+                case "--queue-depth":
+                    queueDepth = Integer.parseInt(required(name, value));
+                    break;
+                case "--pretty-json":
+                    prettyJson = true;
+                    break;
+                case "--binary-result":
+                    binaryResult = true;
+                    break;
+                case "--shard":
+                    parseShard(required(name, value));
+                    break;
+                case "--merge":
+                    partialsDir = new File(required(name, value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知选项 " + arg);
+            }
+        }
+    }
+
+    // 形如 1/4
+    private void parseShard(String value) {
+        int slash = value.indexOf('/');
+        if (slash <= 0) {
+            throw new IllegalArgumentException("--shard 的格式为 <分片号>/<分片数>: " + value);
+        }
+        shardIndex = Integer.parseInt(value.substring(0, slash));
+        shardCount = Integer.parseInt(value.substring(slash + 1));
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("分片号应在 0 到分片数减 1 之间: " + value);
+        }
+    }
+
+    private static String required(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " 需要一个值");
+        }
+        return value;
+    }
+
+    // 返回进程退出码
+    private int run() throws Exception {
+        AnalysisCache analysisCache = cacheDir != null
+                ? AnalysisCache.open(new File(cacheDir).toPath(), 256L * 1024 * 1024) : null;
+        if (cacheDir != null && analysisCache == null) {
+            System.err.println("分析缓存目录正被其他评审使用，本次不使用缓存: " + cacheDir);
+        }
+        try (GitService gitService = new GitService()) {
+            gitService.setChangedLinesOnly(changedLinesOnly);
+            gitService.setPathPatterns(includePatterns, excludePatterns);
+
+            if (shardCount > 1 && (staged || outputDir == null)) {
+                throw new IllegalArgumentException("分片评审需要 --base 和 --output");
+            }
+
+            File baselinePath = baselineFile != null ? baselineFile : new File(projectDir, "code-review-baseline.bin");
+            Baseline baseline = baselinePath.isFile() ? Baseline.open(baselinePath.toPath()) : null;
+
+            CodeAnalyzer codeAnalyzer = new CodeAnalyzer(threads, RuleSet.load(RuleSet.loadConfig(rulesConfig, disabledRules)));
+            codeAnalyzer.setChangedLinesOnly(changedLinesOnly, contextLines);
+            codeAnalyzer.setCache(analysisCache);
+            // 有基线时门限只统计新问题，分析阶段不提前取消
+            if (baseline == null) {
+                codeAnalyzer.setIssueLimits(maxCritical, maxWarnings);
+            }
+            codeAnalyzer.setFileTimeBudget(fileTimeBudget);
+            codeAnalyzer.setStreaming(streamingThreshold, generatedPolicy);
+            codeAnalyzer.setQueueDepth(queueDepth);
+
+            ReviewResult result;
+            if (partialsDir != null) {
+                ShardedReview shardedReview = new ShardedReview();
+                result = shardedReview.merge(shardedReview.loadAll(partialsDir));
+                // 分片结果只有 blob id，基线指纹需要问题所在行的内容
+                if (baseline != null) {
+                    gitService.loadIssueContents(projectDir, result);
+                }
+            } else {
+                List<FileChange> fileChanges = staged ? gitService.getStagedChanges(projectDir)
+                        : gitService.getChangedFiles(projectDir, base);
+                if (shardCount > 1) {
+                    return reviewShard(gitService, codeAnalyzer, fileChanges);
+                }
+                if (fileChanges.isEmpty()) {
+                    return 0;
+                }
+                result = codeAnalyzer.analyze(fileChanges, gitService.contentSource());
+            }
+            if (baseline != null) {
+                result = baseline.filter(result);
+            }
+
+            for (CodeIssue issue : result.getIssues()) {
+                System.out.println("[" + issue.getSeverity() + "] " + issue.getFileName() + ":" + issue.getLineNumber()
+                        + " " + issue.getRuleId() + " " + issue.getMessage());
+            }
+            System.out.println("代码评审: " + result.getFileChanges().size() + " 个文件, " + result.getTotalIssues() + " 个问题 (严重 "
+                    + result.getCriticalIssues() + ", 一般 " + result.getWarningIssues() + ", 建议 "
+                    + result.getInfoIssues() + ")"
+                    + (result.getSuppressedIssues() > 0 ? "，基线中已有 " + result.getSuppressedIssues() + " 个" : ""));
+
+            boolean failed = (maxCritical >= 0 && result.getCriticalIssues() > maxCritical)
+                    || (maxWarnings >= 0 && result.getWarningIssues() > maxWarnings);
+            if (failed && result.isCancelled()) {
+                System.out.println("问题数超过门限，已提前取消，" + result.getSkippedFiles() + " 个文件未分析");
+            }
+            if (outputDir != null) {
+                ReportGenerator reportGenerator = new ReportGenerator();
+                reportGenerator.setPrettyJson(prettyJson);
+                reportGenerator.setBinaryResult(binaryResult);
+                if (failed) {
+                    reportGenerator.generateMinimalReport(result, new File(outputDir), "问题数超过门限");
+                } else {
+                    reportGenerator.generateReport(result, new File(outputDir));
+                }
+            }
+            return failed ? 1 : 0;
+        } finally {
+            if (analysisCache != null) {
+                analysisCache.close();
+            }
+        }
+    }
+
+    // 分析本分片的文件并写出分片结果，门限在合并后检查
+    private int reviewShard(GitService gitService, CodeAnalyzer codeAnalyzer, List<FileChange> allChanges)
+            throws Exception {
+        int[] positions = ShardedReview.positionsOf(allChanges, shardIndex, shardCount);
+        List<FileChange> fileChanges = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            fileChanges.add(allChanges.get(position));
+        }
+        ReviewResult result = codeAnalyzer.analyze(fileChanges, gitService.contentSource());
+        File partialFile = ShardedReview.partialFile(new File(outputDir), shardIndex, shardCount);
+        new ShardedReview().save(partialFile, shardIndex, shardCount, gitService.getReviewedHead(),
+                reviewOptions(gitService, codeAnalyzer), allChanges.size(), positions, result);
+        System.out.println("分片 " + shardIndex + "/" + shardCount + ": 共 " + allChanges.size() + " 个文件变更，本分片分析 "
+                + fileChanges.size() + " 个, " + result.getTotalIssues() + " 个问题，结果已写入 " + partialFile.getPath());
+        return 0;
+    }
+
+    // 影响评审结果的选项，各分片必须一致才能合并
+    private String reviewOptions(GitService gitService, CodeAnalyzer codeAnalyzer) {
+        StringBuilder rules = new StringBuilder();
+        for (CodeRule rule : codeAnalyzer.getRules()) {
+            rules.append(rule.getClass().getName()).append(':').append(rule.getVersion()).append(',');
+        }
+        return String.join("|", base, includePatterns, excludePatterns, String.valueOf(changedLinesOnly),
+                String.valueOf(contextLines), String.valueOf(streamingThreshold), String.valueOf(generatedPolicy),
+                String.valueOf(fileTimeBudget), rules.toString(), gitService.relativePath(projectDir));
+    }
+}
@@ -0,0 +1,89 @@
+package com.codereviewer;
+
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.service.PathPatternFilter;
+import com.codereviewer.service.ReviewWatcher;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 常驻评审：先执行一次完整评审，然后监听源码目录，文件保存后只重新分析该文件并就地更新报告。
+ * 分析器、规则和仓库在整个过程中保持加载，后续更新无需重新启动 JVM。按 Ctrl+C 结束。
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends AbstractReviewMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    // 收到文件事件后等待的静默时间（毫秒），期间的多次保存合并为一次分析
+    @Parameter(property = "debounceMillis", defaultValue = "50")
+    private long debounceMillis;
+
+    // 最长监听时间（秒），0 表示一直运行
+    @Parameter(property = "watchTimeout", defaultValue = "0")
+    private long watchTimeout;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("开始执行代码评审（监听模式）...");
+
+        try {
+            initServices();
+
+            File projectDir = project.getBasedir();
+            ReviewResult result = reviewChanges(projectDir);
+            if (result == null) {
+                result = new ReviewResult();
+                result.setFileChanges(new ArrayList<>());
+            }
+
+            File outputDirectory = new File(outputDir);
+            generateReport(result, outputDirectory);
+            logSummary(result);
+
+            String patternBase = gitService.relativePath(projectDir);
+            try (ReviewWatcher watcher = new ReviewWatcher(gitService, codeAnalyzer, reportGenerator, outputDirectory,
+                    result, PathPatternFilter.matcher(includePatterns, excludePatterns), patternBase,
+                    message -> getLog().info(message))) {
+                watcher.setBaseline(openBaseline());
+                for (File root : sourceRoots(projectDir)) {
+                    watcher.register(root.toPath());
+                    getLog().info("监听目录: " + root.getAbsolutePath());
+                }
+                getLog().info("等待文件变化，报告位于: " + outputDirectory.getAbsolutePath());
+                watcher.watch(debounceMillis, watchTimeout * 1000);
+            }
+
+        } catch (Exception e) {
+            getLog().error("代码评审执行失败", e);
+            throw new MojoExecutionException("代码评审失败: " + e.getMessage(), e);
+        } finally {
+            closeServices();
+        }
+    }
+
+    // 项目的源码和测试源码目录，都不存在时监听项目目录
+    private List<File> sourceRoots(File projectDir) {
+        List<String> roots = new ArrayList<>(project.getCompileSourceRoots());
+        roots.addAll(project.getTestCompileSourceRoots());
+        List<File> existing = new ArrayList<>();
+        for (String root : roots) {
+            File directory = new File(root);
+            if (directory.isDirectory()) {
+                existing.add(directory);
+            }
+        }
+        if (existing.isEmpty()) {
+            existing.add(projectDir);
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,33 @@
+package com.codereviewer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.codereviewer.FileAnalysis")
+@Label("文件分析")
+@Category("Code Review")
+@Description("分析单个文件的全部耗时，包括读取内容、词法分析和所有规则")
+@StackTrace(false)
+class FileAnalysisEvent extends Event {
+
+    @Label("文件")
+    String file;
+
+    @Label("行数")
+    int lines;
+
+    @Label("大小")
+    @DataAmount
+    long bytes;
+
+    @Label("缓存命中")
+    boolean cached;
+
+    @Label("问题数")
+    int issues;
+}
@@ -0,0 +1,63 @@
+package com.codereviewer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 2 的幂划分桶的纳秒延迟直方图，可由多个线程并发记录。
+ * 百分位数取所在桶的上界，误差不超过一倍，足以区分快慢。
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        count.increment();
+        total.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long getMeanNanos() {
+        long n = getCount();
+        return n > 0 ? getTotalNanos() / n : 0;
+    }
+
+    // 百分位数的近似值（纳秒），percentile 取 0 到 100
+    public long getPercentileNanos(double percentile) {
+        long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, rank)) {
+                // 桶 i 覆盖 [2^(i-1), 2^i)
+                long upper = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(upper, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
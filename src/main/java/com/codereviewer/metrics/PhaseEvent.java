@@ -0,0 +1,19 @@
+package com.codereviewer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.codereviewer.Phase")
+@Label("评审阶段")
+@Category("Code Review")
+@Description("一次评审中的一个阶段，如 Git 差异计算、代码分析和报告生成")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    @Label("阶段")
+    String phase;
+}
@@ -0,0 +1,341 @@
+package com.codereviewer.metrics;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次评审的性能指标：各阶段耗时、每个规则和预处理步骤的延迟直方图、扫描的文件/行/字节数，
+ * 以及最慢的若干文件。每次计时同时提交对应的 JFR 事件，未开启 JFR 录制时事件不产生开销。
+ * <p>
+ * 所有记录方法都是线程安全的，可在并行分析时共享同一个实例。
+ */
+public class ReviewMetrics {
+
+    public static final String STEP_LOAD = "加载内容";
+    public static final String STEP_LEX = "词法分析";
+    public static final String STEP_STREAM = "流式分析";
+
+    private static final int SLOWEST_FILES = 50;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final Map<String, LatencyHistogram> rules = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> steps = new ConcurrentHashMap<>();
+    private final LatencyHistogram fileLatency = new LatencyHistogram();
+    private final PriorityQueue<FileTiming> slowestFiles =
+            new PriorityQueue<>(Comparator.comparingLong(FileTiming::getNanos));
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder cachedFiles = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder issues = new LongAdder();
+    private final LongAdder streamedFiles = new LongAdder();
+    private final LongAdder generatedFiles = new LongAdder();
+
+    // 以流的方式分析的大文件或生成代码
+    public void countStreamed() {
+        streamedFiles.increment();
+    }
+
+    public void countGenerated() {
+        generatedFiles.increment();
+    }
+
+    public PhaseTimer phase(String name) {
+        return new PhaseTimer(name);
+    }
+
+    // 在一个阶段内执行并计时，返回执行结果
+    public <T, E extends Exception> T time(String name, PhaseBody<T, E> body) throws E {
+        PhaseTimer timer = phase(name);
+        try {
+            return body.run();
+        } finally {
+            timer.close();
+        }
+    }
+
+    public <E extends Exception> void time(String name, PhaseAction<E> action) throws E {
+        PhaseTimer timer = phase(name);
+        try {
+            action.run();
+        } finally {
+            timer.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface PhaseBody<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    @FunctionalInterface
+    public interface PhaseAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    // 一个规则在一个文件上的累计耗时；共用一次遍历的规则由遍历内部分别计时后在此登记
+    public void recordRule(String ruleName, String fileName, long nanos, int issues) {
+        rules.computeIfAbsent(ruleName, key -> new LatencyHistogram()).record(nanos);
+        RuleCheckEvent event = new RuleCheckEvent();
+        if (event.shouldCommit()) {
+            event.rule = ruleName;
+            event.file = fileName;
+            event.issues = issues;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    // 读取内容、词法分析等规则之外的逐文件步骤
+    public StepTimer step(String stepName, String fileName) {
+        return new StepTimer(steps, stepName, fileName);
+    }
+
+    public FileTimer file(String fileName) {
+        return new FileTimer(fileName);
+    }
+
+    public Map<String, Long> getPhaseNanos() {
+        synchronized (phases) {
+            return new LinkedHashMap<>(phases);
+        }
+    }
+
+    public Map<String, LatencyHistogram> getRules() {
+        return rules;
+    }
+
+    public Map<String, LatencyHistogram> getSteps() {
+        return steps;
+    }
+
+    public long getFiles() { return files.sum(); }
+    public long getCachedFiles() { return cachedFiles.sum(); }
+    public long getLines() { return lines.sum(); }
+    public long getBytes() { return bytes.sum(); }
+    public long getIssues() { return issues.sum(); }
+    public long getStreamedFiles() { return streamedFiles.sum(); }
+    public long getGeneratedFiles() { return generatedFiles.sum(); }
+
+    // 按总耗时从高到低排列的规则
+    public List<Map.Entry<String, LatencyHistogram>> slowestRules(int limit) {
+        List<Map.Entry<String, LatencyHistogram>> sorted = new ArrayList<>(rules.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<String, LatencyHistogram> e) -> e.getValue().getTotalNanos())
+                .reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    public List<FileTiming> slowestFiles(int limit) {
+        List<FileTiming> sorted;
+        synchronized (slowestFiles) {
+            sorted = new ArrayList<>(slowestFiles);
+        }
+        sorted.sort(Comparator.comparingLong(FileTiming::getNanos).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    public void writeJson(File file) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+
+            json.writeObjectFieldStart("totals");
+            json.writeNumberField("files", getFiles());
+            json.writeNumberField("cachedFiles", getCachedFiles());
+            json.writeNumberField("lines", getLines());
+            json.writeNumberField("bytes", getBytes());
+            json.writeNumberField("issues", getIssues());
+            json.writeNumberField("streamedFiles", getStreamedFiles());
+            json.writeNumberField("generatedFiles", getGeneratedFiles());
+            json.writeEndObject();
+
+            json.writeObjectFieldStart("phases");
+            for (Map.Entry<String, Long> phase : getPhaseNanos().entrySet()) {
+                json.writeNumberField(phase.getKey(), toMillis(phase.getValue()));
+            }
+            json.writeEndObject();
+
+            json.writeFieldName("files");
+            writeHistogram(json, fileLatency);
+
+            json.writeObjectFieldStart("rules");
+            for (Map.Entry<String, LatencyHistogram> rule : slowestRules(rules.size())) {
+                json.writeFieldName(rule.getKey());
+                writeHistogram(json, rule.getValue());
+            }
+            json.writeEndObject();
+
+            json.writeObjectFieldStart("steps");
+            for (Map.Entry<String, LatencyHistogram> step : steps.entrySet()) {
+                json.writeFieldName(step.getKey());
+                writeHistogram(json, step.getValue());
+            }
+            json.writeEndObject();
+
+            json.writeArrayFieldStart("slowestFiles");
+            for (FileTiming timing : slowestFiles(SLOWEST_FILES)) {
+                json.writeStartObject();
+                json.writeStringField("file", timing.getFile());
+                json.writeNumberField("millis", toMillis(timing.getNanos()));
+                json.writeNumberField("lines", timing.getLines());
+                json.writeNumberField("bytes", timing.getBytes());
+                json.writeBooleanField("cached", timing.isCached());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeHistogram(JsonGenerator json, LatencyHistogram histogram) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("count", histogram.getCount());
+        json.writeNumberField("totalMillis", toMillis(histogram.getTotalNanos()));
+        json.writeNumberField("meanMicros", toMicros(histogram.getMeanNanos()));
+        json.writeNumberField("p50Micros", toMicros(histogram.getPercentileNanos(50)));
+        json.writeNumberField("p90Micros", toMicros(histogram.getPercentileNanos(90)));
+        json.writeNumberField("p99Micros", toMicros(histogram.getPercentileNanos(99)));
+        json.writeNumberField("maxMicros", toMicros(histogram.getMaxNanos()));
+        json.writeEndObject();
+    }
+
+    public static double toMillis(long nanos) {
+        return Math.round(nanos / 1e4) / 100.0;
+    }
+
+    private static double toMicros(long nanos) {
+        return Math.round(nanos / 1e1) / 100.0;
+    }
+
+    private void recordFile(FileTiming timing, int fileIssues) {
+        files.increment();
+        if (timing.isCached()) {
+            cachedFiles.increment();
+        }
+        lines.add(timing.getLines());
+        bytes.add(timing.getBytes());
+        issues.add(fileIssues);
+        fileLatency.record(timing.getNanos());
+        synchronized (slowestFiles) {
+            if (slowestFiles.size() < SLOWEST_FILES) {
+                slowestFiles.add(timing);
+            } else if (slowestFiles.peek().getNanos() < timing.getNanos()) {
+                slowestFiles.poll();
+                slowestFiles.add(timing);
+            }
+        }
+    }
+
+    public final class PhaseTimer implements AutoCloseable {
+        private final String name;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start;
+
+        private PhaseTimer(String name) {
+            this.name = name;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - start;
+            synchronized (phases) {
+                phases.merge(name, nanos, Long::sum);
+            }
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.commit();
+            }
+        }
+    }
+
+    public static final class StepTimer {
+        private final Map<String, LatencyHistogram> target;
+        private final String name;
+        private final String fileName;
+        private final RuleCheckEvent event = new RuleCheckEvent();
+        private final long start;
+
+        private StepTimer(Map<String, LatencyHistogram> target, String name, String fileName) {
+            this.target = target;
+            this.name = name;
+            this.fileName = fileName;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        public void stop(int issues) {
+            long nanos = System.nanoTime() - start;
+            target.computeIfAbsent(name, key -> new LatencyHistogram()).record(nanos);
+            if (event.shouldCommit()) {
+                event.rule = name;
+                event.file = fileName;
+                event.issues = issues;
+                event.elapsed = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    public final class FileTimer {
+        private final String fileName;
+        private final FileAnalysisEvent event = new FileAnalysisEvent();
+        private final long start;
+
+        private FileTimer(String fileName) {
+            this.fileName = fileName;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        public void stop(int lineCount, long byteCount, boolean cached, int issues) {
+            long nanos = System.nanoTime() - start;
+            recordFile(new FileTiming(fileName, nanos, lineCount, byteCount, cached), issues);
+            if (event.shouldCommit()) {
+                event.file = fileName;
+                event.lines = lineCount;
+                event.bytes = byteCount;
+                event.cached = cached;
+                event.issues = issues;
+                event.commit();
+            }
+        }
+    }
+
+    public static final class FileTiming {
+        private final String file;
+        private final long nanos;
+        private final int lines;
+        private final long bytes;
+        private final boolean cached;
+
+        private FileTiming(String file, long nanos, int lines, long bytes, boolean cached) {
+            this.file = file;
+            this.nanos = nanos;
+            this.lines = lines;
+            this.bytes = bytes;
+            this.cached = cached;
+        }
+
+        public String getFile() { return file; }
+        public long getNanos() { return nanos; }
+        public int getLines() { return lines; }
+        public long getBytes() { return bytes; }
+        public boolean isCached() { return cached; }
+    }
+}
@@ -0,0 +1,31 @@
+package com.codereviewer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.codereviewer.RuleCheck")
+@Label("规则检查")
+@Category("Code Review")
+@Description("对单个文件执行一个规则或一个预处理步骤（读取内容、词法分析）。共用一次遍历的规则在遍历结束后各自提交，耗时见“耗时”字段")
+@StackTrace(false)
+class RuleCheckEvent extends Event {
+
+    @Label("规则")
+    String rule;
+
+    @Label("文件")
+    String file;
+
+    @Label("问题数")
+    int issues;
+
+    // 逐行和逐个词法单元的规则为抽样估计值
+    @Label("耗时")
+    @Timespan
+    long elapsed;
+}
@@ -1,5 +1,7 @@
 package com.codereviewer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class CodeIssue {
     private String fileName;
     private int lineNumber;
@@ -8,6 +10,8 @@ public class CodeIssue {
     private String message;
     private String suggestion;
     private String codeSnippet;
+    private RuleDescriptor rule; // 由规则创建时共享的描述，消息在首次读取时才格式化
+    private Object[] args;
 
     // Constructors
     public CodeIssue() {}
@@ -22,19 +26,53 @@ public class CodeIssue {
         this.suggestion = suggestion;
     }
 
+    public CodeIssue(String fileName, int lineNumber, RuleDescriptor rule, Object... args) {
+        this.fileName = fileName;
+        this.lineNumber = lineNumber;
+        this.rule = rule;
+        this.args = args != null && args.length > 0 ? args : null;
+    }
+
+    // 返回共享的规则描述；通过旧构造方法创建的问题按其文本生成描述
+    @JsonIgnore
+    public RuleDescriptor getRule() {
+        if (rule == null || message != null || suggestion != null || severity != null || ruleId != null) {
+            return RuleDescriptor.of(getRuleId(), getSeverityLevel(), getMessage(), getSuggestion());
+        }
+        return rule;
+    }
+
+    @JsonIgnore
+    public Object[] getArgs() {
+        return rule != null && message == null && suggestion == null ? args : null;
+    }
+
+    @JsonIgnore
+    public Severity getSeverityLevel() {
+        return Severity.valueOf(getSeverity());
+    }
+
     // Getters and Setters
     public String getFileName() { return fileName; }
     public void setFileName(String fileName) { this.fileName = fileName; }
     public int getLineNumber() { return lineNumber; }
     public void setLineNumber(int lineNumber) { this.lineNumber = lineNumber; }
-    public String getSeverity() { return severity; }
+    public String getSeverity() {
+        return severity == null && rule != null ? rule.getSeverity().name() : severity;
+    }
     public void setSeverity(String severity) { this.severity = severity; }
-    public String getRuleId() { return ruleId; }
+    public String getRuleId() {
+        return ruleId == null && rule != null ? rule.getRuleId() : ruleId;
+    }
     public void setRuleId(String ruleId) { this.ruleId = ruleId; }
-    public String getMessage() { return message; }
+    public String getMessage() {
+        return message == null && rule != null ? rule.formatMessage(args) : message;
+    }
     public void setMessage(String message) { this.message = message; }
-    public String getSuggestion() { return suggestion; }
+    public String getSuggestion() {
+        return suggestion == null && rule != null ? rule.formatSuggestion(args) : suggestion;
+    }
     public void setSuggestion(String suggestion) { this.suggestion = suggestion; }
     public String getCodeSnippet() { return codeSnippet; }
     public void setCodeSnippet(String codeSnippet) { this.codeSnippet = codeSnippet; }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.codereviewer.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// 文件内容的延迟来源，只有规则真正需要内容时才会读取
+public interface ContentLoader {
+
+    long size();
+
+    InputStream openStream() throws IOException;
+
+    default byte[] readAll() throws IOException {
+        try (InputStream in = openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    static ContentLoader of(byte[] bytes) {
+        return new ContentLoader() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(bytes);
+            }
+
+            @Override
+            public byte[] readAll() {
+                return bytes;
+            }
+        };
+    }
+}
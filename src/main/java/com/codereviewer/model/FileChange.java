@@ -1,15 +1,141 @@
 package com.codereviewer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.eclipse.jgit.diff.EditList;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 public class FileChange {
     private String filePath;
     private String changeType; // ADD, MODIFY, DELETE
+    private String oldPath; // 变更前的路径，新增的文件为空；重命名时与 filePath 不同
+    private String blobId; // 新版本 blob 的对象 id，删除的文件为空
     private String content;
+    private ContentLoader contentLoader; // 内容在首次使用时才解码
+    private Path sourcePath; // 大文件不预先读取，分析时通过内存映射加载
+    private SourceView sourceView;
+    private EditList editList; // 相对基线的编辑区间，新增文件为空
+    private LineRanges changedLines; // 只检查变更行模式下需要检查的行，为空时检查整个文件
+
+    // 每个文件只构建一次行视图，供所有规则共享
+    @JsonIgnore
+    public SourceView getSourceView() {
+        if (sourceView == null) {
+            if (content == null && contentLoader != null) {
+                content = decode(contentLoader);
+                contentLoader = null;
+            }
+            if (content == null && sourcePath != null) {
+                try {
+                    sourceView = SourceView.map(sourcePath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("读取文件失败: " + sourcePath, e);
+                }
+            } else {
+                sourceView = SourceView.of(content != null ? content : "");
+            }
+        }
+        return sourceView;
+    }
+
+    private String decode(ContentLoader loader) {
+        try {
+            return new String(loader.readAll(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取文件内容失败: " + filePath, e);
+        }
+    }
+
+    // 以字节流读取内容，不解码也不保留，供大文件的流式分析使用；每次调用都从头读取
+    public ReadableByteChannel openChannel() throws IOException {
+        if (content != null) {
+            return Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        }
+        if (contentLoader != null) {
+            return Channels.newChannel(contentLoader.openStream());
+        }
+        if (sourcePath != null) {
+            return FileChannel.open(sourcePath, StandardOpenOption.READ);
+        }
+        return Channels.newChannel(InputStream.nullInputStream());
+    }
+
+    // 开头最多 maxBytes 字节的内容，已解码时直接截取；末尾被截断的多字节字符按替换字符处理
+    public String readHead(int maxBytes) throws IOException {
+        if (content != null) {
+            return content.length() <= maxBytes ? content : content.substring(0, maxBytes);
+        }
+        ByteBuffer head = ByteBuffer.allocate(maxBytes);
+        try (ReadableByteChannel channel = openChannel()) {
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // 继续读取直到填满或结束
+            }
+        }
+        return new String(head.array(), 0, head.position(), StandardCharsets.UTF_8);
+    }
+
+    // 内容长度，尚未解码时返回字节大小作为估计值
+    @JsonIgnore
+    public long getContentLength() {
+        if (content != null) {
+            return content.length();
+        }
+        if (contentLoader != null) {
+            return contentLoader.size();
+        }
+        if (sourceView != null) {
+            return sourceView.length();
+        }
+        return sourcePath != null ? sourcePath.toFile().length() : 0;
+    }
 
     // Getters and Setters
     public String getFilePath() { return filePath; }
     public void setFilePath(String filePath) { this.filePath = filePath; }
     public String getChangeType() { return changeType; }
     public void setChangeType(String changeType) { this.changeType = changeType; }
-    public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
-}
\ No newline at end of file
+    @JsonIgnore
+    public String getOldPath() { return oldPath; }
+    public void setOldPath(String oldPath) { this.oldPath = oldPath; }
+    public String getBlobId() { return blobId; }
+    public void setBlobId(String blobId) { this.blobId = blobId; }
+    public String getContent() {
+        if (content == null && (contentLoader != null || sourcePath != null)) {
+            content = getSourceView().toString();
+        }
+        return content;
+    }
+    public void setContent(String content) {
+        this.content = content;
+        this.sourceView = null;
+    }
+    @JsonIgnore
+    public ContentLoader getContentLoader() { return contentLoader; }
+    public void setContentLoader(ContentLoader contentLoader) {
+        this.contentLoader = contentLoader;
+        this.content = null;
+        this.sourceView = null;
+    }
+    @JsonIgnore
+    public EditList getEditList() { return editList; }
+    public void setEditList(EditList editList) { this.editList = editList; }
+    @JsonIgnore
+    public LineRanges getChangedLines() { return changedLines; }
+    public void setChangedLines(LineRanges changedLines) { this.changedLines = changedLines; }
+    @JsonIgnore
+    public Path getSourcePath() { return sourcePath; }
+    public void setSourcePath(Path sourcePath) {
+        this.sourcePath = sourcePath;
+        this.sourceView = null;
+    }
+}
@@ -0,0 +1,254 @@
+package com.codereviewer.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 按列存储的问题集合：文件、行号和规则描述分别以 int 数组保存，文件名和规则描述只保存一份，
+ * 消息只保存模板参数，读取时才格式化。各严重级别的数量在添加时同步累计。
+ * <p>
+ * {@link #get(int)} 返回的 {@link CodeIssue} 是对存储的视图，修改会写回存储。
+ */
+public class IssueStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] files = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] rules = new int[INITIAL_CAPACITY];
+    private Object[] args = new Object[INITIAL_CAPACITY]; // null、单个参数或参数数组
+    private int size;
+
+    private final FileTable fileTable = new FileTable();
+    private final List<RuleDescriptor> ruleTable = new ArrayList<>();
+    private final Map<RuleDescriptor, Integer> ruleIds = new HashMap<>();
+    private final int[] severityCounts = new int[Severity.values().length];
+
+    // 代码片段很少出现，单独稀疏保存
+    private Map<Integer, String> snippets;
+
+    public void add(CodeIssue issue) {
+        int index = append(fileTable.intern(issue.getFileName()), issue.getLineNumber(), issue.getRule(), issue.getArgs());
+        if (issue.getCodeSnippet() != null) {
+            setSnippet(index, issue.getCodeSnippet());
+        }
+    }
+
+    public void add(String fileName, int lineNumber, RuleDescriptor rule, Object... arguments) {
+        append(fileTable.intern(fileName), lineNumber, rule, arguments);
+    }
+
+    // 先取数量再逐个添加，传入本存储的 asList() 时只复制已有的问题
+    public void addAll(List<CodeIssue> issues) {
+        int count = issues.size();
+        for (int i = 0; i < count; i++) {
+            add(issues.get(i));
+        }
+    }
+
+    private int append(int file, int lineNumber, RuleDescriptor rule, Object[] arguments) {
+        if (size == files.length) {
+            int capacity = size + (size >> 1);
+            files = Arrays.copyOf(files, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            rules = Arrays.copyOf(rules, capacity);
+            args = Arrays.copyOf(args, capacity);
+        }
+        files[size] = file;
+        lines[size] = lineNumber;
+        rules[size] = ruleId(rule);
+        args[size] = packArgs(arguments);
+        severityCounts[rule.getSeverity().ordinal()]++;
+        return size++;
+    }
+
+    private int ruleId(RuleDescriptor rule) {
+        Integer id = ruleIds.get(rule);
+        if (id == null) {
+            id = ruleTable.size();
+            ruleTable.add(rule);
+            ruleIds.put(rule, id);
+        }
+        return id;
+    }
+
+    private static Object packArgs(Object[] arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return null;
+        }
+        // 单个参数不再额外包一层数组
+        return arguments.length == 1 && !(arguments[0] instanceof Object[]) ? arguments[0] : arguments;
+    }
+
+    private Object[] unpackArgs(int index) {
+        Object packed = args[index];
+        if (packed == null) {
+            return null;
+        }
+        return packed instanceof Object[] ? (Object[]) packed : new Object[]{packed};
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int count(Severity severity) {
+        return severityCounts[severity.ordinal()];
+    }
+
+    public int fileCount() {
+        return fileTable.size();
+    }
+
+    public String fileName(int fileIndex) {
+        return fileTable.get(fileIndex);
+    }
+
+    // 问题所属文件的编号，编号按文件首次出现的顺序分配
+    public int fileIndex(int index) {
+        return files[index];
+    }
+
+    public int lineNumber(int index) {
+        return lines[index];
+    }
+
+    public RuleDescriptor rule(int index) {
+        return ruleTable.get(rules[index]);
+    }
+
+    public CodeIssue get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new StoredIssue(index);
+    }
+
+    public List<CodeIssue> asList() {
+        return new IssueList();
+    }
+
+    private void setSnippet(int index, String snippet) {
+        if (snippets == null) {
+            snippets = new HashMap<>();
+        }
+        snippets.put(index, snippet);
+    }
+
+    // 修改视图中的规则相关字段时，按修改后的内容生成新的规则描述
+    private void replaceRule(int index, RuleDescriptor rule, Object[] arguments) {
+        severityCounts[rule(index).getSeverity().ordinal()]--;
+        rules[index] = ruleId(rule);
+        args[index] = packArgs(arguments);
+        severityCounts[rule.getSeverity().ordinal()]++;
+    }
+
+    private final class IssueList extends AbstractList<CodeIssue> implements RandomAccess {
+        @Override
+        public CodeIssue get(int index) {
+            return IssueStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean add(CodeIssue issue) {
+            IssueStore.this.add(issue);
+            modCount++;
+            return true;
+        }
+    }
+
+    private final class StoredIssue extends CodeIssue {
+        private final int index;
+
+        private StoredIssue(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public RuleDescriptor getRule() { return rule(index); }
+        @Override
+        public Object[] getArgs() { return unpackArgs(index); }
+        @Override
+        public String getFileName() { return fileTable.get(files[index]); }
+        @Override
+        public void setFileName(String fileName) { files[index] = fileTable.intern(fileName); }
+        @Override
+        public int getLineNumber() { return lines[index]; }
+        @Override
+        public void setLineNumber(int lineNumber) { lines[index] = lineNumber; }
+        @Override
+        public String getSeverity() { return rule(index).getSeverity().name(); }
+        @Override
+        public void setSeverity(String severity) {
+            RuleDescriptor rule = rule(index);
+            replaceRule(index, RuleDescriptor.of(rule.getRuleId(), Severity.valueOf(severity),
+                    rule.getMessageTemplate(), rule.getSuggestionTemplate()), getArgs());
+        }
+        @Override
+        public String getRuleId() { return rule(index).getRuleId(); }
+        @Override
+        public void setRuleId(String ruleId) {
+            RuleDescriptor rule = rule(index);
+            replaceRule(index, RuleDescriptor.of(ruleId, rule.getSeverity(),
+                    rule.getMessageTemplate(), rule.getSuggestionTemplate()), getArgs());
+        }
+        @Override
+        public String getMessage() { return rule(index).formatMessage(getArgs()); }
+        @Override
+        public void setMessage(String message) {
+            RuleDescriptor rule = rule(index);
+            replaceRule(index, RuleDescriptor.of(rule.getRuleId(), rule.getSeverity(),
+                    message, rule.formatSuggestion(getArgs())), null);
+        }
+        @Override
+        public String getSuggestion() { return rule(index).formatSuggestion(getArgs()); }
+        @Override
+        public void setSuggestion(String suggestion) {
+            RuleDescriptor rule = rule(index);
+            replaceRule(index, RuleDescriptor.of(rule.getRuleId(), rule.getSeverity(),
+                    rule.formatMessage(getArgs()), suggestion), null);
+        }
+        @Override
+        public String getCodeSnippet() { return snippets != null ? snippets.get(index) : null; }
+        @Override
+        public void setCodeSnippet(String codeSnippet) { setSnippet(index, codeSnippet); }
+    }
+
+    // 文件名表：按首次出现顺序编号
+    private static final class FileTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] names = new String[16];
+        private int size;
+
+        private int intern(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = name;
+            ids.put(name, size);
+            return size++;
+        }
+
+        private String get(int id) {
+            return names[id];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
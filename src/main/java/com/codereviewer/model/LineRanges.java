@@ -0,0 +1,91 @@
+package com.codereviewer.model;
+
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+
+import java.util.Arrays;
+
+/**
+ * 按行号排序且互不重叠的行区间集合，区间为左闭右开的 0 起始行下标。
+ * 用于"只检查变更行"模式，规则只遍历这些区间内的行。
+ */
+public final class LineRanges {
+
+    private final int[] starts;
+    private final int[] ends;
+    private final int size;
+
+    private LineRanges(int[] starts, int[] ends, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+    }
+
+    public static LineRanges all(int lineCount) {
+        return new LineRanges(new int[]{0}, new int[]{lineCount}, 1);
+    }
+
+    // 由新版本一侧的编辑区间加上下文行构建，纯删除的位置也保留上下文
+    public static LineRanges of(EditList edits, int contextLines, int lineCount) {
+        int[] starts = new int[edits.size()];
+        int[] ends = new int[edits.size()];
+        int size = 0;
+
+        for (Edit edit : edits) {
+            int start = Math.max(0, edit.getBeginB() - contextLines);
+            int end = Math.min(lineCount, edit.getEndB() + contextLines);
+            if (start >= end) {
+                continue;
+            }
+            // EditList 已按位置排序，只需与上一个区间合并
+            if (size > 0 && start <= ends[size - 1]) {
+                ends[size - 1] = Math.max(ends[size - 1], end);
+            } else {
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+        }
+        return new LineRanges(starts, ends, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int lineCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += ends[i] - starts[i];
+        }
+        return count;
+    }
+
+    public boolean contains(int line) {
+        int pos = Arrays.binarySearch(starts, 0, size, line);
+        if (pos >= 0) {
+            return true;
+        }
+        int index = -pos - 2;
+        return index >= 0 && line < ends[index];
+    }
+
+    // 判断 [from, to] 闭区间的行是否与任一区间重叠
+    public boolean overlaps(int from, int to) {
+        int pos = Arrays.binarySearch(starts, 0, size, to);
+        int index = pos >= 0 ? pos : -pos - 2;
+        return index >= 0 && ends[index] > from;
+    }
+}
@@ -0,0 +1,215 @@
+package com.codereviewer.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按块从通道解码 UTF-8 内容并逐行回调，用于不适合整体载入的大文件。
+ * 内存占用与文件大小无关：只有固定大小的字节/字符缓冲区，每行只保留开头 maxLineChars 个字符和最后一个字符。
+ * 行的划分与 {@link SourceView} 一致：按 '\n' 分行，末尾的空行被忽略。
+ */
+public final class LineStream {
+
+    private static final int CHUNK = 64 * 1024;
+
+    @FunctionalInterface
+    public interface Handler {
+        // 返回 false 时停止读取
+        boolean line(Line line);
+    }
+
+    private LineStream() {
+    }
+
+    /**
+     * @return 已回调的行数
+     */
+    public static int read(ReadableByteChannel channel, int maxLineChars, Handler handler) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(CHUNK);
+        CharBuffer chars = CharBuffer.allocate(CHUNK);
+        Reader reader = new Reader(new Line(maxLineChars), handler);
+
+        boolean eof = false;
+        while (true) {
+            if (!eof && channel.read(bytes) < 0) {
+                eof = true;
+            }
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, eof);
+            bytes.compact();
+            if (eof && !result.isOverflow()) {
+                decoder.flush(chars);
+            }
+            chars.flip();
+            if (!reader.consume(chars)) {
+                return reader.emitted;
+            }
+            chars.clear();
+            if (eof && !result.isOverflow()) {
+                break;
+            }
+        }
+        reader.finish();
+        return reader.emitted;
+    }
+
+    // 空行先计数，遇到后续的非空行时再补发，使末尾的空行自然被丢弃
+    private static final class Reader {
+        private final Line line;
+        private final Handler handler;
+        private int pendingEmpty;
+        private int emitted;
+        private boolean stopped;
+
+        private Reader(Line line, Handler handler) {
+            this.line = line;
+            this.handler = handler;
+        }
+
+        private boolean consume(CharBuffer chars) {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (c == '\n') {
+                    endLine();
+                    if (stopped) {
+                        return false;
+                    }
+                } else {
+                    line.append(c);
+                }
+            }
+            return true;
+        }
+
+        private void endLine() {
+            if (line.length() == 0) {
+                pendingEmpty++;
+                return;
+            }
+            int length = line.length;
+            int surrogatePairs = line.surrogatePairs;
+            int headLength = line.headLength;
+            char last = line.last;
+            // 补发之前的空行，再发当前行；空行不追加字符，行首缓冲区中的内容不受影响
+            while (pendingEmpty > 0 && !stopped) {
+                line.reset(emitted);
+                stopped = !handler.line(line);
+                emitted++;
+                pendingEmpty--;
+            }
+            if (!stopped) {
+                line.restore(emitted, length, surrogatePairs, headLength, last);
+                stopped = !handler.line(line);
+                emitted++;
+            }
+            line.reset(emitted);
+        }
+
+        private void finish() {
+            if (line.length() > 0) {
+                endLine();
+            } else if (emitted == 0 && !stopped) {
+                // 与 SourceView 一致：空内容也有一行
+                line.reset(0);
+                handler.line(line);
+                emitted = 1;
+            }
+        }
+    }
+
+    /**
+     * 流式读取中的一行，回调返回后即被复用。超出 maxLineChars 的部分只计入长度，不保留字符。
+     */
+    public static final class Line implements LineText {
+        private final char[] head;
+        private int headLength;
+        private int length;
+        private int surrogatePairs;
+        private char last;
+        private int index;
+
+        private Line(int maxLineChars) {
+            this.head = new char[Math.max(1, maxLineChars)];
+        }
+
+        private void append(char c) {
+            if (headLength < head.length) {
+                head[headLength++] = c;
+            }
+            if (Character.isLowSurrogate(c) && Character.isHighSurrogate(last)) {
+                surrogatePairs++;
+            }
+            last = c;
+            length++;
+        }
+
+        private void reset(int index) {
+            this.index = index;
+            this.headLength = 0;
+            this.length = 0;
+            this.surrogatePairs = 0;
+            this.last = 0;
+        }
+
+        private void restore(int index, int length, int surrogatePairs, int headLength, char last) {
+            this.index = index;
+            this.length = length;
+            this.surrogatePairs = surrogatePairs;
+            this.headLength = headLength;
+            this.last = last;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        public int getLineNumber() {
+            return index + 1;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public int codePointCount() {
+            return length - surrogatePairs;
+        }
+
+        @Override
+        public boolean startsWith(char ch) {
+            return length > 0 && head[0] == ch;
+        }
+
+        @Override
+        public boolean endsWith(char ch) {
+            return length > 0 && last == ch;
+        }
+
+        // 行是否超出保留的字符数
+        public boolean isTruncated() {
+            return length > headLength;
+        }
+
+        // 保留的行首字符
+        public CharSequence head() {
+            return CharBuffer.wrap(head, 0, headLength);
+        }
+
+        @Override
+        public String toString() {
+            return new String(head, 0, headLength);
+        }
+    }
+}
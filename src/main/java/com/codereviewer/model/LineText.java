@@ -0,0 +1,17 @@
+package com.codereviewer.model;
+
+// 逐行规则使用的最小行接口，完整内容的行视图和流式读取的行共用
+public interface LineText {
+
+    // 行下标从 0 开始
+    int getIndex();
+
+    int length();
+
+    // 行长的码点数，代理对按一个字符计算
+    int codePointCount();
+
+    boolean startsWith(char ch);
+
+    boolean endsWith(char ch);
+}
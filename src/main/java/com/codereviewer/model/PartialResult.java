@@ -0,0 +1,35 @@
+package com.codereviewer.model;
+
+/**
+ * 分片评审中单个分片的结果：分到该分片的文件在完整变更列表中的位置，以及这些文件的评审结果。
+ * 以二进制结果格式保存，分片信息写在附加属性中；merge 目标读取全部分片的结果，
+ * 按位置还原文件顺序后合并为一个 {@link ReviewResult}。
+ */
+public class PartialResult {
+
+    public static final int CURRENT_VERSION = 2;
+
+    private int shardIndex;
+    private int shardCount;
+    private String commit;
+    private String options; // 影响结果的评审选项，所有分片必须一致
+    private int totalFiles; // 完整变更列表的文件数
+    private int[] positions = new int[0]; // 结果中每个文件在完整变更列表中的位置
+    private ReviewResult result = new ReviewResult();
+
+    // Getters and Setters
+    public int getShardIndex() { return shardIndex; }
+    public void setShardIndex(int shardIndex) { this.shardIndex = shardIndex; }
+    public int getShardCount() { return shardCount; }
+    public void setShardCount(int shardCount) { this.shardCount = shardCount; }
+    public String getCommit() { return commit; }
+    public void setCommit(String commit) { this.commit = commit; }
+    public String getOptions() { return options; }
+    public void setOptions(String options) { this.options = options; }
+    public int getTotalFiles() { return totalFiles; }
+    public void setTotalFiles(int totalFiles) { this.totalFiles = totalFiles; }
+    public int[] getPositions() { return positions; }
+    public void setPositions(int[] positions) { this.positions = positions; }
+    public ReviewResult getResult() { return result; }
+    public void setResult(ReviewResult result) { this.result = result; }
+}
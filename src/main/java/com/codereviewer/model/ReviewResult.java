@@ -1,30 +1,53 @@
 package com.codereviewer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class ReviewResult {
     private List<FileChange> fileChanges;
-    private List<CodeIssue> issues;
+    private IssueStore issueStore = new IssueStore();
+    // 问题数超过质量门限后提前取消分析，此时 fileChanges 只包含已分析的文件
+    private boolean cancelled;
+    private int skippedFiles;
+    // 因已在基线中而被去掉的问题数
+    private int suppressedIssues;
 
     public int getTotalIssues() {
-        return issues != null ? issues.size() : 0;
+        return issueStore.size();
     }
 
+    // 各级别数量在添加问题时已累计，无需遍历
     public long getCriticalIssues() {
-        return issues.stream().filter(i -> "CRITICAL".equals(i.getSeverity())).count();
+        return issueStore.count(Severity.CRITICAL);
     }
 
     public long getWarningIssues() {
-        return issues.stream().filter(i -> "WARNING".equals(i.getSeverity())).count();
+        return issueStore.count(Severity.WARNING);
     }
 
     public long getInfoIssues() {
-        return issues.stream().filter(i -> "INFO".equals(i.getSeverity())).count();
+        return issueStore.count(Severity.INFO);
     }
 
     // Getters and Setters
     public List<FileChange> getFileChanges() { return fileChanges; }
     public void setFileChanges(List<FileChange> fileChanges) { this.fileChanges = fileChanges; }
-    public List<CodeIssue> getIssues() { return issues; }
-    public void setIssues(List<CodeIssue> issues) { this.issues = issues; }
-}
\ No newline at end of file
+    public List<CodeIssue> getIssues() { return issueStore.asList(); }
+    public void setIssues(List<CodeIssue> issues) {
+        IssueStore store = new IssueStore();
+        if (issues != null) {
+            store.addAll(issues);
+        }
+        this.issueStore = store;
+    }
+    @JsonIgnore
+    public IssueStore getIssueStore() { return issueStore; }
+    public void setIssueStore(IssueStore issueStore) { this.issueStore = issueStore; }
+    public boolean isCancelled() { return cancelled; }
+    public void setCancelled(boolean cancelled) { this.cancelled = cancelled; }
+    public int getSkippedFiles() { return skippedFiles; }
+    public void setSkippedFiles(int skippedFiles) { this.skippedFiles = skippedFiles; }
+    public int getSuppressedIssues() { return suppressedIssues; }
+    public void setSuppressedIssues(int suppressedIssues) { this.suppressedIssues = suppressedIssues; }
+}
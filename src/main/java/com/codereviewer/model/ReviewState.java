@@ -0,0 +1,71 @@
+package com.codereviewer.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 增量评审保存的状态：上次评审到的提交、比较的基线提交、评审选项以及变更文件和问题。
+ * 基线提交不变时，下次评审只重新分析 blob 有变化的文件，其余文件沿用保存的问题。
+ */
+public class ReviewState {
+
+    public static final int CURRENT_VERSION = 2;
+
+    private int version = CURRENT_VERSION;
+    private String commit;
+    private String base; // 比较的基线提交，基线分支前进或合并基点变化后不能继续增量评审
+    private String options; // 影响结果的评审选项，变化后不能继续增量评审
+    private String reviewedAt;
+    private int totalIssues;
+    private long criticalIssues;
+    private long warningIssues;
+    private long infoIssues;
+    private List<FileEntry> files = new ArrayList<>();
+    private List<CodeIssue> issues = new ArrayList<>();
+
+    // 变更文件只保存路径、类型和 blob id，内容需要时再从仓库读取
+    public static class FileEntry {
+        private String path;
+        private String changeType;
+        private String blobId;
+
+        public FileEntry() {}
+
+        public FileEntry(String path, String changeType, String blobId) {
+            this.path = path;
+            this.changeType = changeType;
+            this.blobId = blobId;
+        }
+
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+        public String getChangeType() { return changeType; }
+        public void setChangeType(String changeType) { this.changeType = changeType; }
+        public String getBlobId() { return blobId; }
+        public void setBlobId(String blobId) { this.blobId = blobId; }
+    }
+
+    // Getters and Setters
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+    public String getCommit() { return commit; }
+    public void setCommit(String commit) { this.commit = commit; }
+    public String getBase() { return base; }
+    public void setBase(String base) { this.base = base; }
+    public String getOptions() { return options; }
+    public void setOptions(String options) { this.options = options; }
+    public String getReviewedAt() { return reviewedAt; }
+    public void setReviewedAt(String reviewedAt) { this.reviewedAt = reviewedAt; }
+    public int getTotalIssues() { return totalIssues; }
+    public void setTotalIssues(int totalIssues) { this.totalIssues = totalIssues; }
+    public long getCriticalIssues() { return criticalIssues; }
+    public void setCriticalIssues(long criticalIssues) { this.criticalIssues = criticalIssues; }
+    public long getWarningIssues() { return warningIssues; }
+    public void setWarningIssues(long warningIssues) { this.warningIssues = warningIssues; }
+    public long getInfoIssues() { return infoIssues; }
+    public void setInfoIssues(long infoIssues) { this.infoIssues = infoIssues; }
+    public List<FileEntry> getFiles() { return files; }
+    public void setFiles(List<FileEntry> files) { this.files = files; }
+    public List<CodeIssue> getIssues() { return issues; }
+    public void setIssues(List<CodeIssue> issues) { this.issues = issues; }
+}
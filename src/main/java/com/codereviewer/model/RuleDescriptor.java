@@ -0,0 +1,98 @@
+package com.codereviewer.model;
+
+import java.util.Objects;
+
+/**
+ * 规则问题的描述：规则编号、严重级别以及消息和建议的模板。
+ * 模板中的 {0}、{1} 等占位符在需要展示时才用问题参数替换，同一描述在所有问题间共享。
+ * <p>
+ * 规则的描述是静态常量；不另设全局的去重表（按文本生成的描述会随消息无限增长），
+ * 相同内容的描述在 {@link IssueStore} 中按 equals 只保存一份，随结果一起释放。
+ */
+public final class RuleDescriptor {
+
+    private final String ruleId;
+    private final Severity severity;
+    private final String messageTemplate;
+    private final String suggestionTemplate;
+    private final int hash; // 问题存储按描述查找规则编号，预先计算
+
+    private RuleDescriptor(String ruleId, Severity severity, String messageTemplate, String suggestionTemplate) {
+        this.ruleId = ruleId;
+        this.severity = severity;
+        this.messageTemplate = messageTemplate;
+        this.suggestionTemplate = suggestionTemplate;
+        this.hash = Objects.hash(ruleId, severity, messageTemplate, suggestionTemplate);
+    }
+
+    public static RuleDescriptor of(String ruleId, Severity severity, String messageTemplate, String suggestionTemplate) {
+        return new RuleDescriptor(ruleId, severity, messageTemplate, suggestionTemplate);
+    }
+
+    public String getRuleId() { return ruleId; }
+    public Severity getSeverity() { return severity; }
+    public String getMessageTemplate() { return messageTemplate; }
+    public String getSuggestionTemplate() { return suggestionTemplate; }
+
+    public String formatMessage(Object[] args) {
+        return format(messageTemplate, args);
+    }
+
+    public String formatSuggestion(Object[] args) {
+        return format(suggestionTemplate, args);
+    }
+
+    // 只替换 {n} 占位符，不像 MessageFormat 那样处理引号或数字分组
+    static String format(String template, Object[] args) {
+        if (template == null || args == null || args.length == 0 || template.indexOf('{') < 0) {
+            return template;
+        }
+        StringBuilder formatted = new StringBuilder(template.length() + 16);
+        int length = template.length();
+        for (int i = 0; i < length; i++) {
+            char c = template.charAt(i);
+            int close = c == '{' ? template.indexOf('}', i) : -1;
+            if (close > i + 1) {
+                int index = parseIndex(template, i + 1, close);
+                if (index >= 0 && index < args.length) {
+                    formatted.append(args[index]);
+                    i = close;
+                    continue;
+                }
+            }
+            formatted.append(c);
+        }
+        return formatted.toString();
+    }
+
+    private static int parseIndex(String template, int start, int end) {
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            char c = template.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RuleDescriptor)) {
+            return false;
+        }
+        RuleDescriptor that = (RuleDescriptor) o;
+        return hash == that.hash && ruleId.equals(that.ruleId) && severity == that.severity
+                && Objects.equals(messageTemplate, that.messageTemplate)
+                && Objects.equals(suggestionTemplate, that.suggestionTemplate);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
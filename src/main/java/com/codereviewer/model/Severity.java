@@ -0,0 +1,7 @@
+package com.codereviewer.model;
+
+public enum Severity {
+    CRITICAL,
+    WARNING,
+    INFO
+}
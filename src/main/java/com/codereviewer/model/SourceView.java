@@ -0,0 +1,224 @@
+package com.codereviewer.model;
+
+import com.codereviewer.utils.Deadline;
+import com.codereviewer.utils.JavaLexer;
+import com.codereviewer.utils.TokenStream;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 文件内容的只读行视图：整份内容只保存一个缓冲区，行只记录起始偏移，
+ * 规则通过 {@link Line} 以零拷贝方式访问每一行。
+ * 行的划分与 {@code content.split("\n")} 保持一致（末尾空行会被忽略）。
+ */
+public final class SourceView {
+
+    // 超过该大小的本地文件通过内存映射读取
+    public static final long MAP_THRESHOLD = 1024 * 1024;
+
+    private final CharSequence buffer;
+    private final int[] lineStarts;
+    private final int lineCount;
+    private final int lastLineEnd;
+    private TokenStream tokens;
+
+    private SourceView(CharSequence buffer) {
+        this.buffer = buffer;
+
+        int length = buffer.length();
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+            if (buffer.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+
+        // 与 String.split 一致：去掉末尾的空行，但至少保留一行
+        int end = length;
+        while (count > 1 && starts[count - 1] == end) {
+            count--;
+            end = starts[count] - 1;
+        }
+
+        this.lineStarts = starts;
+        this.lineCount = count;
+        this.lastLineEnd = end;
+    }
+
+    public static SourceView of(CharSequence content) {
+        return new SourceView(content);
+    }
+
+    public static SourceView map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(mapped);
+            return new SourceView(chars);
+        }
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    public boolean isEmpty() {
+        return buffer.length() == 0;
+    }
+
+    public CharSequence getBuffer() {
+        return buffer;
+    }
+
+    // 行下标从 0 开始
+    public int lineStart(int index) {
+        return lineStarts[index];
+    }
+
+    public int lineEnd(int index) {
+        return index + 1 < lineCount ? lineStarts[index + 1] - 1 : lastLineEnd;
+    }
+
+    // 根据字符偏移返回行号（从 1 开始）
+    public int lineNumberAt(int offset) {
+        int pos = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    // 词法分析结果按文件缓存，所有规则共享同一次扫描
+    public TokenStream tokens() {
+        return tokens(Deadline.NONE);
+    }
+
+    // 尚未分析时按截止时间进行词法分析，超时不缓存结果
+    public TokenStream tokens(Deadline deadline) {
+        if (tokens == null) {
+            tokens = JavaLexer.tokenize(buffer, deadline);
+        }
+        return tokens;
+    }
+
+    public Line line(int index) {
+        return new Line(this).moveTo(index);
+    }
+
+    public Line cursor() {
+        return new Line(this);
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    /**
+     * 可复用的行视图，{@link #moveTo(int)} 与 {@link #trim()} 只修改边界，不复制字符。
+     */
+    public static final class Line implements CharSequence, LineText {
+        private final SourceView source;
+        private int index;
+        private int start;
+        private int end;
+
+        private Line(SourceView source) {
+            this.source = source;
+        }
+
+        public Line moveTo(int index) {
+            this.index = index;
+            this.start = source.lineStart(index);
+            this.end = source.lineEnd(index);
+            return this;
+        }
+
+        public Line trim() {
+            CharSequence buffer = source.buffer;
+            while (start < end && buffer.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && buffer.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            return this;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        public int getLineNumber() {
+            return index + 1;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public int codePointCount() {
+            return Character.codePointCount(source.buffer, start, end);
+        }
+
+        @Override
+        public boolean startsWith(char ch) {
+            return start < end && source.buffer.charAt(start) == ch;
+        }
+
+        @Override
+        public boolean endsWith(char ch) {
+            return start < end && source.buffer.charAt(end - 1) == ch;
+        }
+
+        public boolean contentEquals(CharSequence other) {
+            int length = end - start;
+            if (other.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (source.buffer.charAt(start + i) != other.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int i) {
+            return source.buffer.charAt(start + i);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return source.buffer.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return source.buffer.subSequence(start, end).toString();
+        }
+    }
+}
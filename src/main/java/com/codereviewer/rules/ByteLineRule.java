@@ -0,0 +1,22 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.LineRanges;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+/**
+ * 可以直接在未解码的 UTF-8 字节上完成的逐行检查。流式分析时调用 {@link #checkBytes} 代替逐行的
+ * {@link #checkLine}，不必为这些规则解码内容；完整分析时仍与其他逐行规则共用同一次行遍历。
+ */
+public interface ByteLineRule extends LineRule {
+
+    /**
+     * @param scope 需要检查的行，为 null 时检查全部行
+     * @return 行数
+     */
+    int checkBytes(String fileName, ReadableByteChannel channel, LineRanges scope, List<CodeIssue> issues)
+            throws IOException;
+}
@@ -2,14 +2,44 @@ package com.codereviewer.rules;
 
 import com.codereviewer.model.CodeIssue;
 import com.codereviewer.model.FileChange;
+import com.codereviewer.model.LineRanges;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.SourceView;
 
+import java.util.Collections;
 import java.util.List;
 
 public abstract class CodeRule {
-    public abstract List<CodeIssue> check(FileChange fileChange);
+
+    public List<CodeIssue> check(FileChange fileChange) {
+        return check(fileChange, fileChange.getSourceView());
+    }
+
+    /**
+     * 行视图由调用方按文件构建一次，所有规则共享。LINE、TOKEN、METHOD 范围的规则由 {@link RuleSet}
+     * 在共享的遍历中调用，直接调用此方法时单独执行该规则；{@link RuleScope#FILE} 范围的规则继承 {@link FileRule}。
+     */
+    public List<CodeIssue> check(FileChange fileChange, SourceView source) {
+        return RuleSet.of(Collections.singletonList(this)).check(fileChange, source);
+    }
+
+    // 规则实现或阈值变化时递增，用于使分析缓存失效
+    public int getVersion() {
+        return 1;
+    }
+
+    // 需要检查的行区间：只检查变更行模式下为编辑区间加上下文，否则为整个文件
+    protected LineRanges lineScope(FileChange fileChange, SourceView source) {
+        return RuleSet.lineScope(fileChange, source);
+    }
 
     protected CodeIssue createIssue(String fileName, int lineNumber, String severity,
                                     String ruleId, String message, String suggestion) {
         return new CodeIssue(fileName, lineNumber, severity, ruleId, message, suggestion);
     }
-}
\ No newline at end of file
+
+    // 使用共享的规则描述创建问题，消息参数在展示时才格式化
+    protected CodeIssue createIssue(String fileName, int lineNumber, RuleDescriptor rule, Object... args) {
+        return new CodeIssue(fileName, lineNumber, rule, args);
+    }
+}
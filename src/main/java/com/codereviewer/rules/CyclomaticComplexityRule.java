@@ -0,0 +1,45 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.LineText;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import com.codereviewer.model.SourceView;
+import com.codereviewer.utils.JavaKeywords;
+import com.codereviewer.utils.TokenStream;
+
+import java.util.List;
+
+// 统计每行起始的词法单元中的分支关键字与逻辑运算符，流式分析时没有词法单元，不执行
+@ReviewRule(id = "cyclomatic-complexity", scope = RuleScope.LINE, parent = "complexity", needsTokens = true)
+public class CyclomaticComplexityRule extends CodeRule implements LineRule {
+
+    private static final int MAX_CYCLOMATIC_COMPLEXITY = 10;
+
+    private static final RuleDescriptor TOO_COMPLEX = RuleDescriptor.of("COMPLEXITY_002", Severity.CRITICAL,
+            "代码复杂度过高，请简化逻辑", "减少条件判断和循环嵌套，考虑使用策略模式或状态模式");
+
+    @Override
+    public void checkLine(String fileName, LineText line, SourceView source, List<CodeIssue> issues) {
+        if (source == null) {
+            return;
+        }
+        TokenStream tokens = source.tokens();
+        int index = line.getIndex();
+        int complexity = 0;
+        for (int i = tokens.firstIndexAtLine(index); i < tokens.size() && tokens.line(i) == index; i++) {
+            if (isComplexityToken(tokens, i)) {
+                complexity++;
+            }
+        }
+        if (complexity > MAX_CYCLOMATIC_COMPLEXITY) {
+            issues.add(createIssue(fileName, index + 1, TOO_COMPLEX));
+        }
+    }
+
+    // 只统计完整的关键字与逻辑运算符，"modifier" 中的 "if" 或字符串里的内容不再计入
+    private boolean isComplexityToken(TokenStream tokens, int index) {
+        byte kind = tokens.kind(index);
+        return kind == TokenStream.AND_AND || kind == TokenStream.OR_OR || JavaKeywords.isBranch(tokens.keyword(index));
+    }
+}
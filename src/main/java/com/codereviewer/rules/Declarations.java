@@ -0,0 +1,90 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.utils.JavaKeywords;
+import com.codereviewer.utils.TokenStream;
+
+// 基于词法单元识别以访问修饰符开头的方法和字段声明，供多个规则共用
+final class Declarations {
+
+    private Declarations() {
+    }
+
+    static boolean isAccessModifier(TokenStream tokens, int index) {
+        return JavaKeywords.isAccessModifier(tokens.keyword(index));
+    }
+
+    /**
+     * 从访问修饰符开始跳过其余修饰符与类型，返回被声明的名称所在下标。
+     * 名称后必须紧跟 '('、';' 或 '='，且名称之前至少有一个类型词法单元（构造方法不计入）。
+     * 不是方法或字段声明时返回 -1。
+     */
+    static int findDeclaredName(TokenStream tokens, int modifierIndex) {
+        int size = tokens.size();
+        int typeTokens = 0;
+        int angleDepth = 0;
+
+        for (int i = tokens.nextCode(modifierIndex); i < size; i = tokens.nextCode(i)) {
+            switch (tokens.kind(i)) {
+                case TokenStream.IDENTIFIER: {
+                    int next = tokens.nextCode(i);
+                    if (angleDepth == 0 && next < size && isDeclarationEnd(tokens.kind(next))) {
+                        return typeTokens > 0 ? i : -1;
+                    }
+                    typeTokens++;
+                    break;
+                }
+                case TokenStream.AT:
+                    // 跳过类型上的注解名称
+                    i = tokens.nextCode(i);
+                    if (i >= size) {
+                        return -1;
+                    }
+                    break;
+                case TokenStream.LT:
+                    angleDepth++;
+                    break;
+                case TokenStream.GT:
+                    angleDepth--;
+                    break;
+                case TokenStream.COMMA:
+                    if (angleDepth == 0) {
+                        return -1;
+                    }
+                    break;
+                case TokenStream.LBRACKET:
+                case TokenStream.RBRACKET:
+                case TokenStream.DOT:
+                case TokenStream.QUESTION:
+                    break;
+                default:
+                    return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDeclarationEnd(byte kind) {
+        return kind == TokenStream.LPAREN || kind == TokenStream.SEMICOLON || kind == TokenStream.ASSIGN;
+    }
+
+    /**
+     * 对已识别的方法名，返回方法体左大括号的下标；抽象方法或接口方法返回 -1。
+     */
+    static int findMethodBody(TokenStream tokens, int nameIndex) {
+        int size = tokens.size();
+        int open = tokens.nextCode(nameIndex);
+        int close = tokens.findClosing(open);
+
+        // 跳过 throws 子句
+        for (int i = tokens.nextCode(close); i < size; i = tokens.nextCode(i)) {
+            byte kind = tokens.kind(i);
+            if (kind == TokenStream.LBRACE) {
+                return i;
+            }
+            if (kind != TokenStream.IDENTIFIER && kind != TokenStream.DOT && kind != TokenStream.COMMA) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,17 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.SourceView;
+
+import java.util.List;
+
+/**
+ * {@link RuleScope#FILE} 范围的规则，自行遍历整个文件，不与其他规则共用遍历。
+ * 未标注 {@link ReviewRule} 的规则按此范围执行，需要继承本类。
+ */
+public abstract class FileRule extends CodeRule {
+
+    @Override
+    public abstract List<CodeIssue> check(FileChange fileChange, SourceView source);
+}
@@ -0,0 +1,17 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.LineText;
+import com.codereviewer.model.SourceView;
+
+import java.util.List;
+
+/**
+ * {@link RuleScope#LINE} 范围的检查，每行调用一次，所有逐行规则共用同一次遍历。
+ * 大文件和生成的代码以流的方式分析时不构建完整的行视图和词法单元，此时 source 为 null；
+ * 离不开词法单元的规则应在 {@link ReviewRule#needsTokens} 中声明，流式分析时不会被调用。line 在回调返回后即被复用，不能修改或保留。
+ */
+public interface LineRule {
+
+    void checkLine(String fileName, LineText line, SourceView source, List<CodeIssue> issues);
+}
@@ -0,0 +1,100 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.utils.TokenStream;
+
+import java.util.Arrays;
+
+/**
+ * 文件中以访问修饰符开头、带方法体的方法声明，按出现顺序记录修饰符、方法名和方法体首尾大括号的词法单元下标。
+ * 抽象方法、接口方法和方法体未闭合的方法不在其中。
+ */
+public final class MethodIndex {
+
+    private int[] modifiers = new int[16];
+    private int[] names = new int[16];
+    private int[] bodyStarts = new int[16];
+    private int[] bodyEnds = new int[16];
+    private int[] firstLines = new int[16];
+    private int[] lastLines = new int[16];
+    private int size;
+
+    private MethodIndex() {
+    }
+
+    public static MethodIndex build(TokenStream tokens) {
+        MethodIndex index = new MethodIndex();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!Declarations.isAccessModifier(tokens, i)) {
+                continue;
+            }
+
+            int name = Declarations.findDeclaredName(tokens, i);
+            if (name < 0 || tokens.kind(tokens.nextCode(name)) != TokenStream.LPAREN) {
+                continue;
+            }
+
+            int body = Declarations.findMethodBody(tokens, name);
+            if (body < 0) {
+                continue;
+            }
+
+            // 大括号匹配只统计代码中的词法单元，字符串与注释中的括号不再干扰
+            int bodyEnd = tokens.findClosing(body);
+            if (bodyEnd < tokens.size()) {
+                index.add(i, name, body, bodyEnd, tokens.line(i), tokens.line(bodyEnd));
+            }
+        }
+        return index;
+    }
+
+    private void add(int modifier, int name, int bodyStart, int bodyEnd, int firstLine, int lastLine) {
+        if (size == modifiers.length) {
+            int capacity = size * 2;
+            modifiers = Arrays.copyOf(modifiers, capacity);
+            names = Arrays.copyOf(names, capacity);
+            bodyStarts = Arrays.copyOf(bodyStarts, capacity);
+            bodyEnds = Arrays.copyOf(bodyEnds, capacity);
+            firstLines = Arrays.copyOf(firstLines, capacity);
+            lastLines = Arrays.copyOf(lastLines, capacity);
+        }
+        modifiers[size] = modifier;
+        names[size] = name;
+        bodyStarts[size] = bodyStart;
+        bodyEnds[size] = bodyEnd;
+        firstLines[size] = firstLine;
+        lastLines[size] = lastLine;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 声明开头的访问修饰符
+    public int modifier(int method) {
+        return modifiers[method];
+    }
+
+    public int name(int method) {
+        return names[method];
+    }
+
+    // 方法体左大括号
+    public int bodyStart(int method) {
+        return bodyStarts[method];
+    }
+
+    // 方法体右大括号
+    public int bodyEnd(int method) {
+        return bodyEnds[method];
+    }
+
+    // 声明所在行与方法体结束行，行下标从 0 开始
+    public int firstLine(int method) {
+        return firstLines[method];
+    }
+
+    public int lastLine(int method) {
+        return lastLines[method];
+    }
+}
@@ -0,0 +1,15 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.utils.TokenStream;
+
+import java.util.List;
+
+/**
+ * {@link RuleScope#METHOD} 范围的检查，对与检查区间重叠的每个有方法体的方法调用一次。
+ * 方法索引每个文件只构建一次，由所有方法规则共享。
+ */
+public interface MethodRule {
+
+    void checkMethod(String fileName, TokenStream tokens, MethodIndex methods, int method, List<CodeIssue> issues);
+}
@@ -1,74 +1,71 @@
 package com.codereviewer.rules;
 
 import com.codereviewer.model.CodeIssue;
-import com.codereviewer.model.FileChange;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import com.codereviewer.utils.JavaKeywords;
+import com.codereviewer.utils.TokenStream;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-public class NamingRule extends CodeRule {
+@ReviewRule(id = "naming", scope = RuleScope.TOKEN)
+public class NamingRule extends CodeRule implements TokenRule {
 
-    private static final Pattern CLASS_PATTERN = Pattern.compile("class\\s+([a-zA-Z_][a-zA-Z0-9_]*)");
-    private static final Pattern METHOD_PATTERN = Pattern.compile("(public|private|protected)\\s+[a-zA-Z0-9_<>\\[\\]\\s]+\\s+([a-zA-Z_][a-zA-Z0-9_]*)\\s*\\(");
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("(private|public|protected)\\s+[a-zA-Z0-9_<>\\[\\]\\s]+\\s+([a-zA-Z_][a-zA-Z0-9_]*)\\s*[;=]");
+    private static final RuleDescriptor CLASS_NAME = RuleDescriptor.of("NAMING_001", Severity.WARNING,
+            "类名应该以大写字母开头: {0}", "将类名改为: {1}");
+    private static final RuleDescriptor METHOD_NAME = RuleDescriptor.of("NAMING_002", Severity.WARNING,
+            "方法名应该以小写字母开头: {0}", "将方法名改为: {1}");
+    private static final RuleDescriptor VARIABLE_NAME = RuleDescriptor.of("NAMING_003", Severity.INFO,
+            "变量名应该以小写字母开头: {0}", "将变量名改为: {1}");
 
     @Override
-    public List<CodeIssue> check(FileChange fileChange) {
-        List<CodeIssue> issues = new ArrayList<>();
-        String[] lines = fileChange.getContent().split("\n");
+    public void checkToken(String fileName, TokenStream tokens, int i, List<CodeIssue> issues) {
+        int keyword = tokens.keyword(i);
 
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i].trim();
-            int lineNumber = i + 1;
-
-            // 检查类名命名
-            checkClassName(fileChange.getFilePath(), lineNumber, line, issues);
-
-            // 检查方法名命名
-            checkMethodName(fileChange.getFilePath(), lineNumber, line, issues);
-
-            // 检查变量名命名
-            checkVariableName(fileChange.getFilePath(), lineNumber, line, issues);
+        if (keyword == JavaKeywords.CLASS) {
+            // 排除 Foo.class 这样的类字面量
+            int previous = tokens.previousCode(i);
+            if (previous < 0 || tokens.kind(previous) != TokenStream.DOT) {
+                // 检查类名命名
+                checkClassName(fileName, tokens, i, issues);
+            }
+        } else if (JavaKeywords.isAccessModifier(keyword)) {
+            int name = Declarations.findDeclaredName(tokens, i);
+            if (name >= 0) {
+                if (tokens.kind(tokens.nextCode(name)) == TokenStream.LPAREN) {
+                    // 检查方法名命名
+                    checkMethodName(fileName, tokens, i, name, issues);
+                } else {
+                    // 检查变量名命名
+                    checkVariableName(fileName, tokens, i, name, issues);
+                }
+            }
         }
-
-        return issues;
     }
 
-    private void checkClassName(String fileName, int lineNumber, String line, List<CodeIssue> issues) {
-        Matcher matcher = CLASS_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String className = matcher.group(1);
-            if (!Character.isUpperCase(className.charAt(0))) {
-                issues.add(createIssue(fileName, lineNumber, "WARNING", "NAMING_001",
-                        "类名应该以大写字母开头: " + className,
-                        "将类名改为: " + Character.toUpperCase(className.charAt(0)) + className.substring(1)));
-            }
+    private void checkClassName(String fileName, TokenStream tokens, int keyword, List<CodeIssue> issues) {
+        int name = tokens.nextCode(keyword);
+        if (name < tokens.size() && tokens.kind(name) == TokenStream.IDENTIFIER
+                && !Character.isUpperCase(tokens.firstChar(name))) {
+            String className = tokens.text(name);
+            issues.add(createIssue(fileName, tokens.line(keyword) + 1, CLASS_NAME,
+                    className, Character.toUpperCase(className.charAt(0)) + className.substring(1)));
         }
     }
 
-    private void checkMethodName(String fileName, int lineNumber, String line, List<CodeIssue> issues) {
-        Matcher matcher = METHOD_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String methodName = matcher.group(2);
-            if (Character.isUpperCase(methodName.charAt(0))) {
-                issues.add(createIssue(fileName, lineNumber, "WARNING", "NAMING_002",
-                        "方法名应该以小写字母开头: " + methodName,
-                        "将方法名改为: " + Character.toLowerCase(methodName.charAt(0)) + methodName.substring(1)));
-            }
+    private void checkMethodName(String fileName, TokenStream tokens, int modifier, int name, List<CodeIssue> issues) {
+        if (Character.isUpperCase(tokens.firstChar(name))) {
+            String methodName = tokens.text(name);
+            issues.add(createIssue(fileName, tokens.line(modifier) + 1, METHOD_NAME,
+                    methodName, Character.toLowerCase(methodName.charAt(0)) + methodName.substring(1)));
         }
     }
 
-    private void checkVariableName(String fileName, int lineNumber, String line, List<CodeIssue> issues) {
-        Matcher matcher = VARIABLE_PATTERN.matcher(line);
-        if (matcher.find()) {
-            String variableName = matcher.group(2);
-            if (Character.isUpperCase(variableName.charAt(0))) {
-                issues.add(createIssue(fileName, lineNumber, "INFO", "NAMING_003",
-                        "变量名应该以小写字母开头: " + variableName,
-                        "将变量名改为: " + Character.toLowerCase(variableName.charAt(0)) + variableName.substring(1)));
-            }
+    private void checkVariableName(String fileName, TokenStream tokens, int modifier, int name, List<CodeIssue> issues) {
+        if (Character.isUpperCase(tokens.firstChar(name))) {
+            String variableName = tokens.text(name);
+            issues.add(createIssue(fileName, tokens.line(modifier) + 1, VARIABLE_NAME,
+                    variableName, Character.toLowerCase(variableName.charAt(0)) + variableName.substring(1)));
         }
     }
-}
\ No newline at end of file
+}
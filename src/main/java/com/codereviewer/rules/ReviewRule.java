@@ -0,0 +1,28 @@
+package com.codereviewer.rules;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明规则的配置名称和检查范围。注解在实例化之前读取，被关闭的规则不会被创建。
+ * 未标注的规则以类名作为名称，按 {@link RuleScope#FILE} 执行。
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ReviewRule {
+
+    // 在 rules-config.properties 中使用的名称，如 naming.enabled=false
+    String id();
+
+    RuleScope scope();
+
+    boolean enabledByDefault() default true;
+
+    // 逐行规则需要词法单元时为 true；流式分析没有词法单元，不执行这类规则，也不会为它们解码内容
+    boolean needsTokens() default false;
+
+    // 从原规则拆分出来的规则填写原规则的名称，原规则的开关同时作用于本规则（如 complexity.enabled=false）
+    String parent() default "";
+}
@@ -0,0 +1,15 @@
+package com.codereviewer.rules;
+
+/**
+ * 规则检查的粒度，引擎据此把同一范围的规则合并到一次遍历中执行。
+ */
+public enum RuleScope {
+    // 逐行检查，实现 LineRule；所有逐行规则共用一次行遍历，大文件流式分析时也会执行
+    LINE,
+    // 逐个词法单元检查，实现 TokenRule；共用一次词法单元遍历
+    TOKEN,
+    // 逐个方法检查，实现 MethodRule；共用每个文件只构建一次的方法索引
+    METHOD,
+    // 自行遍历整个文件，继承 FileRule 并实现 check
+    FILE
+}
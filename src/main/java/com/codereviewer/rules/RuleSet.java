@@ -0,0 +1,535 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.LineRanges;
+import com.codereviewer.model.LineText;
+import com.codereviewer.model.SourceView;
+import com.codereviewer.utils.Deadline;
+import com.codereviewer.utils.TokenStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.ServiceLoader;
+
+/**
+ * 通过 {@link ServiceLoader} 发现的规则集合。规则在 META-INF/services/com.codereviewer.rules.CodeRule 中登记，
+ * 自定义规则只需把带有该文件的 jar 加入插件依赖。
+ * <p>
+ * 规则按 {@link ReviewRule} 声明的范围分组调度：逐行规则共用一次行遍历，词法单元规则共用一次词法单元遍历，
+ * 方法规则共用每个文件只构建一次的 {@link MethodIndex}，FILE 范围的规则（{@link FileRule}）各自执行。
+ * 每个规则的问题先写入各自的列表，最后按登记顺序合并，结果与逐个规则执行时一致；
+ * 共用一次遍历的规则也在遍历内部分别计时（{@link RuleTimes}）。
+ */
+public final class RuleSet {
+
+    private static final String CONFIG_RESOURCE = "/rules-config.properties";
+
+    private final List<CodeRule> rules;
+    private final int[] lineSlots;
+    private final LineRule[] lineRules;
+    private final List<String> lineRuleNames = new ArrayList<>();
+    // 流式分析时需要解码逐行执行的规则，以及直接扫描字节的规则；需要词法单元的逐行规则两者都不在
+    private final int[] streamedSlots;
+    private final int[] byteSlots;
+    private final List<Pass> passes = new ArrayList<>();
+
+    private RuleSet(List<CodeRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+
+        List<Integer> lineList = new ArrayList<>();
+        List<Integer> streamedList = new ArrayList<>();
+        List<Integer> byteList = new ArrayList<>();
+        List<Integer> tokenList = new ArrayList<>();
+        List<Integer> methodList = new ArrayList<>();
+        List<Integer> fileList = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            CodeRule rule = rules.get(i);
+            RuleScope scope = scopeOf(rule.getClass());
+            switch (scope) {
+                case LINE:
+                    requireType(rule, scope, LineRule.class);
+                    lineList.add(i);
+                    if (rule instanceof ByteLineRule) {
+                        byteList.add(i);
+                    } else if (!needsTokens(rule.getClass())) {
+                        streamedList.add(i);
+                    }
+                    lineRuleNames.add(nameOf(rule));
+                    break;
+                case TOKEN:
+                    requireType(rule, scope, TokenRule.class);
+                    tokenList.add(i);
+                    break;
+                case METHOD:
+                    requireType(rule, scope, MethodRule.class);
+                    methodList.add(i);
+                    break;
+                default:
+                    requireType(rule, scope, FileRule.class);
+                    fileList.add(i);
+                    break;
+            }
+        }
+
+        lineSlots = toArray(lineList);
+        streamedSlots = toArray(streamedList);
+        byteSlots = toArray(byteList);
+        lineRules = new LineRule[lineSlots.length];
+        for (int i = 0; i < lineSlots.length; i++) {
+            lineRules[i] = (LineRule) rules.get(lineSlots[i]);
+        }
+        if (lineSlots.length > 0) {
+            passes.add(new LinePass());
+        }
+        if (!tokenList.isEmpty()) {
+            passes.add(new TokenPass(toArray(tokenList)));
+        }
+        if (!methodList.isEmpty()) {
+            passes.add(new MethodPass(toArray(methodList)));
+        }
+        for (int slot : fileList) {
+            passes.add(new FilePass(slot));
+        }
+    }
+
+    /**
+     * 加载类路径上登记的规则。配置中 &lt;id&gt;.enabled=false 的规则只读取注解，不会被实例化。
+     */
+    public static RuleSet load(Properties config) {
+        List<CodeRule> rules = new ArrayList<>();
+        ServiceLoader<CodeRule> loader = ServiceLoader.load(CodeRule.class, CodeRule.class.getClassLoader());
+        loader.stream().forEach(provider -> {
+            if (isEnabled(provider.type(), config)) {
+                rules.add(provider.get());
+            }
+        });
+        return new RuleSet(rules);
+    }
+
+    public static RuleSet of(List<CodeRule> rules) {
+        return new RuleSet(rules);
+    }
+
+    /**
+     * 读取规则开关：先取插件自带的 rules-config.properties，再用 configFile 覆盖，
+     * 最后关闭 disabledRules 中以逗号分隔的规则。
+     */
+    public static Properties loadConfig(File configFile, String disabledRules) throws IOException {
+        Properties config = defaultConfig();
+        if (configFile != null) {
+            try (Reader reader = Files.newBufferedReader(configFile.toPath(), StandardCharsets.UTF_8)) {
+                config.load(reader);
+            }
+        }
+        if (disabledRules != null) {
+            for (String id : disabledRules.split(",")) {
+                if (!id.trim().isEmpty()) {
+                    config.setProperty(id.trim() + ".enabled", "false");
+                }
+            }
+        }
+        return config;
+    }
+
+    // 插件自带的 rules-config.properties
+    public static Properties defaultConfig() {
+        Properties config = new Properties();
+        try (InputStream in = RuleSet.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                config.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取规则配置失败: " + CONFIG_RESOURCE, e);
+        }
+        return config;
+    }
+
+    public static RuleScope scopeOf(Class<?> type) {
+        ReviewRule info = type.getAnnotation(ReviewRule.class);
+        return info != null ? info.scope() : RuleScope.FILE;
+    }
+
+    public static String idOf(Class<?> type) {
+        ReviewRule info = type.getAnnotation(ReviewRule.class);
+        return info != null ? info.id() : type.getSimpleName();
+    }
+
+    public static boolean needsTokens(Class<?> type) {
+        ReviewRule info = type.getAnnotation(ReviewRule.class);
+        return info != null && info.needsTokens();
+    }
+
+    private static boolean isEnabled(Class<?> type, Properties config) {
+        ReviewRule info = type.getAnnotation(ReviewRule.class);
+        if (info != null && !info.parent().isEmpty() && !isSwitchedOn(config, info.parent(), true)) {
+            return false;
+        }
+        return isSwitchedOn(config, idOf(type), info == null || info.enabledByDefault());
+    }
+
+    private static boolean isSwitchedOn(Properties config, String id, boolean defaultValue) {
+        String value = config.getProperty(id + ".enabled");
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    private static void requireType(CodeRule rule, RuleScope scope, Class<?> type) {
+        if (!type.isInstance(rule)) {
+            throw new IllegalStateException("规则 " + rule.getClass().getName() + " 声明为 " + scope
+                    + " 范围，但没有实现 " + type.getSimpleName());
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static String nameOf(CodeRule rule) {
+        return rule.getClass().getSimpleName();
+    }
+
+    // 按规则登记顺序编号的规则名，用于耗时统计
+    public String ruleName(int slot) {
+        return nameOf(rules.get(slot));
+    }
+
+    public List<CodeRule> getRules() {
+        return rules;
+    }
+
+    // 按执行顺序排列的遍历，调用方可以在遍历之间计时或检查时间预算
+    public List<Pass> getPasses() {
+        return passes;
+    }
+
+    public List<String> getLineRuleNames() {
+        return lineRuleNames;
+    }
+
+    // 流式分析中是否有需要执行的逐行规则
+    public boolean hasStreamedRules() {
+        return streamedSlots.length > 0 || byteSlots.length > 0;
+    }
+
+    // 每个规则一个问题列表，按规则登记顺序排列
+    public List<List<CodeIssue>> newIssueLists() {
+        List<List<CodeIssue>> issues = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            issues.add(new ArrayList<>());
+        }
+        return issues;
+    }
+
+    public RuleTimes newRuleTimes() {
+        return new RuleTimes(rules.size());
+    }
+
+    public static List<CodeIssue> merge(List<List<CodeIssue>> issues) {
+        int size = 0;
+        for (List<CodeIssue> ruleIssues : issues) {
+            size += ruleIssues.size();
+        }
+        List<CodeIssue> merged = new ArrayList<>(size);
+        for (List<CodeIssue> ruleIssues : issues) {
+            merged.addAll(ruleIssues);
+        }
+        return merged;
+    }
+
+    // 对一行执行全部逐行规则
+    public void checkLine(String fileName, LineText line, SourceView source, List<List<CodeIssue>> issues) {
+        for (int k = 0; k < lineRules.length; k++) {
+            lineRules[k].checkLine(fileName, line, source, issues.get(lineSlots[k]));
+        }
+    }
+
+    // 流式分析中需要解码后逐行执行的规则名，不包括 ByteLineRule 和需要词法单元的规则
+    public List<String> getStreamedLineRuleNames() {
+        return namesOf(streamedSlots);
+    }
+
+    public List<String> getByteLineRuleNames() {
+        return namesOf(byteSlots);
+    }
+
+    private List<String> namesOf(int[] slots) {
+        List<String> names = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            names.add(nameOf(rules.get(slot)));
+        }
+        return names;
+    }
+
+    /**
+     * 流式分析时对一行执行除 ByteLineRule 以外的逐行规则，source 为 null。
+     * 全部行执行完（包括中途停止）后由调用方调用 {@link RuleTimes#finishSampling()}。
+     */
+    public void checkStreamedLine(String fileName, LineText line, List<List<CodeIssue>> issues, RuleTimes times) {
+        if (!times.sample()) {
+            for (int slot : streamedSlots) {
+                ((LineRule) rules.get(slot)).checkLine(fileName, line, null, issues.get(slot));
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        for (int slot : streamedSlots) {
+            times.start(slot);
+            ((LineRule) rules.get(slot)).checkLine(fileName, line, null, issues.get(slot));
+            long now = System.nanoTime();
+            times.addSample(slot, now - start);
+            start = now;
+        }
+    }
+
+    /**
+     * 流式分析时执行全部 {@link ByteLineRule}，每个规则读取一遍未解码的内容。
+     * 每读取一块检查一次截止时间，超时抛出 {@link Deadline.ExceededException}，已经发现的问题保留在 issues 中。
+     *
+     * @return 行数，没有这类规则时返回 -1
+     */
+    public int checkBytes(FileChange fileChange, LineRanges scope, List<List<CodeIssue>> issues, RuleTimes times,
+                          Deadline deadline) throws IOException {
+        int lineCount = -1;
+        for (int slot : byteSlots) {
+            times.start(slot);
+            long start = System.nanoTime();
+            try (ReadableByteChannel channel = deadline.guard(fileChange.openChannel())) {
+                lineCount = ((ByteLineRule) rules.get(slot)).checkBytes(fileChange.getFilePath(), channel, scope,
+                        issues.get(slot));
+            } finally {
+                times.add(slot, System.nanoTime() - start);
+            }
+        }
+        return lineCount;
+    }
+
+    // 依次执行全部遍历
+    public List<CodeIssue> check(FileChange fileChange, SourceView source) {
+        List<List<CodeIssue>> issues = newIssueLists();
+        for (Pass pass : passes) {
+            pass.run(fileChange, source, issues, null, Deadline.NONE);
+        }
+        return merge(issues);
+    }
+
+    // 需要检查的行区间：只检查变更行模式下为编辑区间加上下文，否则为整个文件
+    static LineRanges lineScope(FileChange fileChange, SourceView source) {
+        LineRanges changedLines = fileChange.getChangedLines();
+        return changedLines != null ? changedLines : LineRanges.all(source.getLineCount());
+    }
+
+    /**
+     * 对文件的一次遍历，执行一个或多个规则。
+     */
+    public abstract class Pass {
+        private final int[] slots;
+        private final String name;
+
+        private Pass(int[] slots) {
+            this.slots = slots;
+            List<String> names = new ArrayList<>();
+            for (int slot : slots) {
+                names.add(nameOf(rules.get(slot)));
+            }
+            this.name = String.join("+", names);
+        }
+
+        // 超出预算时列出未执行的规则
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 逐行、逐个词法单元和逐个方法检查截止时间，超时抛出 {@link Deadline.ExceededException}，
+         * 已经发现的问题保留在 issues 中。文件级规则内部无法打断。
+         *
+         * @param times 各规则的耗时计入其中，为 null 时不计时
+         * @return 本次遍历新增的问题数
+         */
+        public int run(FileChange fileChange, SourceView source, List<List<CodeIssue>> issues, RuleTimes times,
+                       Deadline deadline) {
+            int before = count(issues);
+            if (times != null) {
+                for (int slot : slots) {
+                    times.start(slot);
+                }
+            }
+            try {
+                execute(fileChange.getFilePath(), fileChange, source, issues, times, deadline);
+            } finally {
+                if (times != null) {
+                    times.finishSampling();
+                }
+            }
+            return count(issues) - before;
+        }
+
+        private int count(List<List<CodeIssue>> issues) {
+            int count = 0;
+            for (int slot : slots) {
+                count += issues.get(slot).size();
+            }
+            return count;
+        }
+
+        int slot(int k) {
+            return slots[k];
+        }
+
+        abstract void execute(String fileName, FileChange fileChange, SourceView source,
+                              List<List<CodeIssue>> issues, RuleTimes times, Deadline deadline);
+    }
+
+    private final class LinePass extends Pass {
+        private LinePass() {
+            super(lineSlots);
+        }
+
+        @Override
+        void execute(String fileName, FileChange fileChange, SourceView source, List<List<CodeIssue>> issues,
+                     RuleTimes times, Deadline deadline) {
+            LineRanges scope = lineScope(fileChange, source);
+            SourceView.Line line = source.cursor();
+            for (int r = 0; r < scope.size(); r++) {
+                for (int i = scope.start(r); i < scope.end(r); i++) {
+                    deadline.check();
+                    if (times != null && times.sample()) {
+                        checkLineTimed(fileName, line.moveTo(i), source, issues, times);
+                    } else {
+                        checkLine(fileName, line.moveTo(i), source, issues);
+                    }
+                }
+            }
+        }
+
+        private void checkLineTimed(String fileName, LineText line, SourceView source, List<List<CodeIssue>> issues,
+                                    RuleTimes times) {
+            long start = System.nanoTime();
+            for (int k = 0; k < lineRules.length; k++) {
+                lineRules[k].checkLine(fileName, line, source, issues.get(lineSlots[k]));
+                long now = System.nanoTime();
+                times.addSample(lineSlots[k], now - start);
+                start = now;
+            }
+        }
+    }
+
+    private final class TokenPass extends Pass {
+        private final TokenRule[] tokenRules;
+
+        private TokenPass(int[] slots) {
+            super(slots);
+            tokenRules = new TokenRule[slots.length];
+            for (int k = 0; k < slots.length; k++) {
+                tokenRules[k] = (TokenRule) rules.get(slots[k]);
+            }
+        }
+
+        @Override
+        void execute(String fileName, FileChange fileChange, SourceView source, List<List<CodeIssue>> issues,
+                     RuleTimes times, Deadline deadline) {
+            LineRanges scope = lineScope(fileChange, source);
+            TokenStream tokens = source.tokens(deadline);
+            for (int r = 0; r < scope.size(); r++) {
+                int end = scope.end(r);
+                for (int i = tokens.firstIndexAtLine(scope.start(r)); i < tokens.size() && tokens.line(i) < end; i++) {
+                    deadline.check();
+                    if (times != null && times.sample()) {
+                        checkTokenTimed(fileName, tokens, i, issues, times);
+                    } else {
+                        for (int k = 0; k < tokenRules.length; k++) {
+                            tokenRules[k].checkToken(fileName, tokens, i, issues.get(slot(k)));
+                        }
+                    }
+                }
+            }
+        }
+
+        private void checkTokenTimed(String fileName, TokenStream tokens, int index, List<List<CodeIssue>> issues,
+                                     RuleTimes times) {
+            long start = System.nanoTime();
+            for (int k = 0; k < tokenRules.length; k++) {
+                tokenRules[k].checkToken(fileName, tokens, index, issues.get(slot(k)));
+                long now = System.nanoTime();
+                times.addSample(slot(k), now - start);
+                start = now;
+            }
+        }
+    }
+
+    private final class MethodPass extends Pass {
+        private final MethodRule[] methodRules;
+
+        private MethodPass(int[] slots) {
+            super(slots);
+            methodRules = new MethodRule[slots.length];
+            for (int k = 0; k < slots.length; k++) {
+                methodRules[k] = (MethodRule) rules.get(slots[k]);
+            }
+        }
+
+        @Override
+        void execute(String fileName, FileChange fileChange, SourceView source, List<List<CodeIssue>> issues,
+                     RuleTimes times, Deadline deadline) {
+            LineRanges scope = lineScope(fileChange, source);
+            if (scope.isEmpty()) {
+                return;
+            }
+            TokenStream tokens = source.tokens(deadline);
+            MethodIndex methods = MethodIndex.build(tokens);
+            // 只检查与变更区间重叠的方法
+            for (int m = 0; m < methods.size(); m++) {
+                deadline.check();
+                if (!scope.overlaps(methods.firstLine(m), methods.lastLine(m))) {
+                    continue;
+                }
+                if (times == null) {
+                    for (int k = 0; k < methodRules.length; k++) {
+                        methodRules[k].checkMethod(fileName, tokens, methods, m, issues.get(slot(k)));
+                    }
+                    continue;
+                }
+                long start = System.nanoTime();
+                for (int k = 0; k < methodRules.length; k++) {
+                    methodRules[k].checkMethod(fileName, tokens, methods, m, issues.get(slot(k)));
+                    long now = System.nanoTime();
+                    times.add(slot(k), now - start);
+                    start = now;
+                }
+            }
+        }
+    }
+
+    private final class FilePass extends Pass {
+        private final FileRule rule;
+
+        private FilePass(int slot) {
+            super(new int[]{slot});
+            this.rule = (FileRule) rules.get(slot);
+        }
+
+        @Override
+        void execute(String fileName, FileChange fileChange, SourceView source, List<List<CodeIssue>> issues,
+                     RuleTimes times, Deadline deadline) {
+            long start = System.nanoTime();
+            issues.get(slot(0)).addAll(rule.check(fileChange, source));
+            if (times != null) {
+                times.add(slot(0), System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.codereviewer.rules;
+
+/**
+ * 一个文件的分析中各规则的累计耗时，按规则登记顺序编号，由 {@link RuleSet#newRuleTimes()} 为每个文件创建。
+ * <p>
+ * 多个规则共用一次遍历，逐行和逐个词法单元调用规则的次数很多，每 {@link #SAMPLE_INTERVAL} 个单位计时一次，
+ * 遍历结束后按实际单位数放大；逐个方法、文件级规则和字节扫描每次调用都计时。
+ */
+public final class RuleTimes {
+
+    // 须为 2 的幂
+    static final int SAMPLE_INTERVAL = 16;
+
+    private final long[] nanos;
+    private final long[] sampledNanos;
+    private final boolean[] ran;
+    private long units;
+    private long sampledUnits;
+
+    RuleTimes(int size) {
+        nanos = new long[size];
+        sampledNanos = new long[size];
+        ran = new boolean[size];
+    }
+
+    void start(int slot) {
+        ran[slot] = true;
+    }
+
+    // 每个单位调用一次，返回本单位是否计时
+    boolean sample() {
+        if ((units++ & (SAMPLE_INTERVAL - 1)) != 0) {
+            return false;
+        }
+        sampledUnits++;
+        return true;
+    }
+
+    void addSample(int slot, long elapsed) {
+        sampledNanos[slot] += elapsed;
+    }
+
+    void add(int slot, long elapsed) {
+        nanos[slot] += elapsed;
+    }
+
+    /**
+     * 把抽样计时按实际单位数放大后计入各规则，每次遍历结束（包括超时中断）后调用。
+     */
+    public void finishSampling() {
+        if (sampledUnits > 0) {
+            double scale = (double) units / sampledUnits;
+            for (int slot = 0; slot < nanos.length; slot++) {
+                nanos[slot] += Math.round(sampledNanos[slot] * scale);
+                sampledNanos[slot] = 0;
+            }
+        }
+        units = 0;
+        sampledUnits = 0;
+    }
+
+    // 规则是否在本文件上执行过（包括被时间预算打断的）
+    public boolean ran(int slot) {
+        return ran[slot];
+    }
+
+    public long nanos(int slot) {
+        return nanos[slot];
+    }
+}
@@ -1,61 +1,113 @@
 package com.codereviewer.rules;
 
 import com.codereviewer.model.CodeIssue;
-import com.codereviewer.model.FileChange;
+import com.codereviewer.model.LineRanges;
+import com.codereviewer.model.LineText;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import com.codereviewer.model.SourceView;
+import com.codereviewer.utils.StyleScanner;
+import com.codereviewer.utils.TokenStream;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
-public class StyleRule extends CodeRule {
+@ReviewRule(id = "style", scope = RuleScope.LINE)
+public class StyleRule extends CodeRule implements ByteLineRule {
+
+    // 行长上限（码点数）
+    private static final int MAX_LINE_LENGTH = 120;
+
+    private static final RuleDescriptor LINE_TOO_LONG = RuleDescriptor.of("STYLE_001", Severity.INFO,
+            "代码行过长 ({0} 字符)", "建议将代码行长度控制在120字符以内");
+    private static final RuleDescriptor TAB_INDENTATION = RuleDescriptor.of("STYLE_002", Severity.INFO,
+            "使用了Tab字符进行缩进", "建议使用4个空格代替Tab字符");
+    private static final RuleDescriptor TRAILING_WHITESPACE = RuleDescriptor.of("STYLE_003", Severity.INFO,
+            "行末存在多余的空白字符", "删除行末的空白字符");
+    private static final RuleDescriptor BRACE_ON_OWN_LINE = RuleDescriptor.of("STYLE_004", Severity.INFO,
+            "左大括号应该与控制语句在同一行", "将左大括号移至控制语句的末尾");
 
     @Override
-    public List<CodeIssue> check(FileChange fileChange) {
-        List<CodeIssue> issues = new ArrayList<>();
-        String[] lines = fileChange.getContent().split("\n");
-
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
-            int lineNumber = i + 1;
-
-            checkLineLength(fileChange.getFilePath(), lineNumber, line, issues);
-            checkIndentation(fileChange.getFilePath(), lineNumber, line, issues);
-            checkTrailingWhitespace(fileChange.getFilePath(), lineNumber, line, issues);
-            checkBraceStyle(fileChange.getFilePath(), lineNumber, line, issues);
+    public void checkLine(String fileName, LineText line, SourceView source, List<CodeIssue> issues) {
+        int lineNumber = line.getIndex() + 1;
+        checkLineLength(fileName, lineNumber, line, issues);
+        checkIndentation(fileName, lineNumber, line, issues);
+        checkTrailingWhitespace(fileName, lineNumber, line, issues);
+        // 左大括号的检查需要词法单元，流式分析时不执行
+        if (source != null) {
+            checkBraceStyle(fileName, lineNumber, line.getIndex(), source, issues);
         }
-
-        return issues;
     }
 
-    private void checkLineLength(String fileName, int lineNumber, String line, List<CodeIssue> issues) {
-        if (line.length() > 120) {
-            issues.add(createIssue(fileName, lineNumber, "INFO", "STYLE_001",
-                    "代码行过长 (" + line.length() + " 字符)",
-                    "建议将代码行长度控制在120字符以内"));
+    // UTF-16 长度不超过上限时码点数也不会超过，只有长行才需要计算码点
+    private void checkLineLength(String fileName, int lineNumber, LineText line, List<CodeIssue> issues) {
+        if (line.length() > MAX_LINE_LENGTH) {
+            int codePoints = line.codePointCount();
+            if (codePoints > MAX_LINE_LENGTH) {
+                issues.add(createIssue(fileName, lineNumber, LINE_TOO_LONG, codePoints));
+            }
         }
     }
 
-    private void checkIndentation(String fileName, int lineNumber, String line, List<CodeIssue> issues) {
-        if (line.startsWith("\t")) {
-            issues.add(createIssue(fileName, lineNumber, "INFO", "STYLE_002",
-                    "使用了Tab字符进行缩进",
-                    "建议使用4个空格代替Tab字符"));
+    private void checkIndentation(String fileName, int lineNumber, LineText line, List<CodeIssue> issues) {
+        if (line.startsWith('\t')) {
+            issues.add(createIssue(fileName, lineNumber, TAB_INDENTATION));
         }
     }
 
-    private void checkTrailingWhitespace(String fileName, int lineNumber, String line, List<CodeIssue> issues) {
-        if (line.endsWith(" ") || line.endsWith("\t")) {
-            issues.add(createIssue(fileName, lineNumber, "INFO", "STYLE_003",
-                    "行末存在多余的空白字符",
-                    "删除行末的空白字符"));
+    private void checkTrailingWhitespace(String fileName, int lineNumber, LineText line, List<CodeIssue> issues) {
+        if (line.endsWith(' ') || line.endsWith('\t')) {
+            issues.add(createIssue(fileName, lineNumber, TRAILING_WHITESPACE));
         }
     }
 
-    private void checkBraceStyle(String fileName, int lineNumber, String line, List<CodeIssue> issues) {
-        String trimmed = line.trim();
-        if (trimmed.equals("{")) {
-            issues.add(createIssue(fileName, lineNumber, "INFO", "STYLE_004",
-                    "左大括号应该与控制语句在同一行",
-                    "将左大括号移至控制语句的末尾"));
+    /**
+     * 流式分析时用 {@link StyleScanner} 在字节上完成行长、缩进和行末空白的检查，问题顺序与 {@link #checkLine} 相同。
+     * 只有左大括号的行需要词法单元排除注释和文本块，与逐行检查一样不在流式分析中报告；
+     * 也因此完整分析的文件仍按行检查，字节扫描只用于流式分析。
+     */
+    @Override
+    public int checkBytes(String fileName, ReadableByteChannel channel, LineRanges scope, List<CodeIssue> issues)
+            throws IOException {
+        StyleScanner scanner = new StyleScanner((index, codePoints, flags) -> {
+            if (scope != null && !scope.contains(index)) {
+                return;
+            }
+            int lineNumber = index + 1;
+            if (codePoints > MAX_LINE_LENGTH) {
+                issues.add(createIssue(fileName, lineNumber, LINE_TOO_LONG, codePoints));
+            }
+            if ((flags & StyleScanner.TAB_INDENT) != 0) {
+                issues.add(createIssue(fileName, lineNumber, TAB_INDENTATION));
+            }
+            if ((flags & StyleScanner.TRAILING_WHITESPACE) != 0) {
+                issues.add(createIssue(fileName, lineNumber, TRAILING_WHITESPACE));
+            }
+        });
+        return scanner.scan(channel);
+    }
+
+    private void checkBraceStyle(String fileName, int lineNumber, int index, SourceView source,
+                                 List<CodeIssue> issues) {
+        // 行视图由所有逐行规则共享，这里只在缓冲区上查找首尾的非空白字符，不修改视图；
+        // 再通过词法单元排除注释和文本块中的 "{"
+        CharSequence buffer = source.getBuffer();
+        int start = source.lineStart(index);
+        int end = source.lineEnd(index);
+        while (start < end && buffer.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && buffer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start == 1 && buffer.charAt(start) == '{' && isBraceToken(source.tokens(), start)) {
+            issues.add(createIssue(fileName, lineNumber, BRACE_ON_OWN_LINE));
         }
     }
-}
\ No newline at end of file
+
+    private boolean isBraceToken(TokenStream tokens, int offset) {
+        int index = tokens.indexAt(offset);
+        return index >= 0 && tokens.kind(index) == TokenStream.LBRACE;
+    }
+}
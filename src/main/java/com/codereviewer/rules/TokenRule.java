@@ -0,0 +1,14 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.utils.TokenStream;
+
+import java.util.List;
+
+/**
+ * {@link RuleScope#TOKEN} 范围的检查，对检查区间内的每个词法单元调用一次，所有规则共用同一次遍历。
+ */
+public interface TokenRule {
+
+    void checkToken(String fileName, TokenStream tokens, int index, List<CodeIssue> issues);
+}
@@ -0,0 +1,485 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按 (blob id, 规则集指纹) 缓存单个文件的分析结果。
+ * <p>
+ * 数据文件只追加写入紧凑的二进制记录，索引文件在启动时通过内存映射整体加载，关闭时重写。
+ * 缓存总大小超过上限时按最近访问时间淘汰，并压缩数据文件。
+ * <p>
+ * 两个文件的文件头都带有代号，压缩时新数据文件使用下一个代号。关闭时先替换数据文件再写索引，
+ * 两步之间中断时索引的代号与数据文件不符，启动时整个索引作废，不会按旧的偏移读取新文件。
+ * <p>
+ * 缓存目录可以在多个构建之间共享。从打开到关闭一直持有目录中锁文件上的排他锁，
+ * 其他进程（或同一进程中的另一个实例）打开时得不到锁，本次评审不使用缓存，不会交错追加或互相覆盖索引。
+ * 每条记录还保存自己的键，读取时核对，索引指向了其他文件的记录时按未命中处理。
+ */
+public class AnalysisCache implements AutoCloseable {
+
+    private static final String INDEX_FILE = "analysis-cache.idx";
+    private static final String DATA_FILE = "analysis-cache.dat";
+    private static final String LOCK_FILE = "analysis-cache.lock";
+    private static final int MAGIC = 0x43524331; // "CRC1"
+    private static final int DATA_MAGIC = 0x43524344; // "CRCD"
+    private static final int FORMAT_VERSION = 4;
+    private static final int BLOB_ID_BYTES = Constants.OBJECT_ID_LENGTH;
+    private static final int INDEX_HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int ENTRY_BYTES = BLOB_ID_BYTES + 8 + 8 + 4 + 8;
+    // 数据文件头：魔数、格式版本和代号
+    private static final int DATA_HEADER_BYTES = 4 + 4 + 8;
+    // 一个问题至少包含行号和四个字符串长度以及参数个数
+    private static final int MIN_ISSUE_BYTES = 4 * 6;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final FileChannel data;
+    private final FileChannel lock;
+    private long generation;
+    private long dataEnd;
+    private boolean dirty;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private AnalysisCache(Path directory, long maxBytes, FileChannel lock) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.lock = lock;
+
+        long indexGeneration = loadIndex(directory.resolve(INDEX_FILE));
+        this.data = FileChannel.open(directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Long dataGeneration = readDataHeader(data);
+        if (dataGeneration == null) {
+            // 新建或无法识别的数据文件，从头开始，代号与旧索引不同
+            generation = indexGeneration + 1;
+            data.truncate(0);
+            writeDataHeader(data, generation);
+            entries.clear();
+            dirty = true;
+        } else {
+            generation = dataGeneration;
+            if (generation != indexGeneration) {
+                // 索引属于另一个数据文件（例如压缩后未来得及写索引），整个作废
+                entries.clear();
+                dirty = true;
+            }
+        }
+        this.dataEnd = data.size();
+
+        // 数据文件被截断过时丢弃失效的索引项
+        entries.values().removeIf(entry -> entry.offset < DATA_HEADER_BYTES || entry.offset + entry.length > dataEnd);
+    }
+
+    /**
+     * @return 缓存目录正被其他评审使用时返回 null
+     */
+    public static AnalysisCache open(Path directory, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lock = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock held;
+            try {
+                held = lock.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // 同一进程中的另一个实例已持有锁
+                held = null;
+            }
+            if (held == null) {
+                lock.close();
+                return null;
+            }
+            return new AnalysisCache(directory, maxBytes, lock);
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // 只查询是否存在，不读取记录，也不计入命中数
+    public boolean contains(Key key) {
+        synchronized (entries) {
+            return entries.containsKey(key);
+        }
+    }
+
+    public List<CodeIssue> get(Key key, String fileName) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null) {
+                entry.lastAccess = System.currentTimeMillis();
+                dirty = true;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+            while (buffer.hasRemaining()) {
+                if (data.read(buffer, entry.offset + buffer.position()) < 0) {
+                    throw new IOException("缓存数据不完整");
+                }
+            }
+            List<CodeIssue> issues = decode(buffer.array(), key, fileName);
+            hits.incrementAndGet();
+            return issues;
+        } catch (IOException e) {
+            // 读取失败按未命中处理，并移除损坏的记录
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(Key key, List<CodeIssue> issues) throws IOException {
+        byte[] record = encode(key, issues);
+        synchronized (entries) {
+            long offset = dataEnd;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                data.write(buffer, offset + buffer.position());
+            }
+            dataEnd += record.length;
+            entries.put(key, new Entry(offset, record.length, System.currentTimeMillis()));
+            dirty = true;
+        }
+    }
+
+    /**
+     * 压缩后的数据文件先替换到位再写索引，新数据文件的代号比旧索引大，
+     * 两步之间中断时下次打开会丢弃旧索引，而不是按旧偏移读取新数据。
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (entries) {
+            try {
+                Path compacted = null;
+                try {
+                    if (dirty) {
+                        evict();
+                        compacted = compact();
+                    }
+                } finally {
+                    data.close();
+                }
+                if (compacted != null) {
+                    Files.move(compacted, directory.resolve(DATA_FILE), StandardCopyOption.REPLACE_EXISTING);
+                    generation++;
+                }
+                if (dirty) {
+                    writeIndex();
+                }
+            } finally {
+                // 索引写完后才释放锁，下一个进程看到的是一致的两个文件
+                lock.close();
+            }
+        }
+    }
+
+    // 返回索引的代号，没有可用的索引时返回 0
+    private long loadIndex(Path indexFile) throws IOException {
+        if (!Files.isRegularFile(indexFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (index.remaining() < INDEX_HEADER_BYTES || index.getInt() != MAGIC || index.getInt() != FORMAT_VERSION) {
+                return 0;
+            }
+            long indexGeneration = index.getLong();
+            int count = index.getInt();
+            if (count < 0 || index.remaining() < (long) count * ENTRY_BYTES) {
+                return 0;
+            }
+            byte[] blobId = new byte[BLOB_ID_BYTES];
+            for (int i = 0; i < count; i++) {
+                index.get(blobId);
+                long fingerprint = index.getLong();
+                long offset = index.getLong();
+                int length = index.getInt();
+                long lastAccess = index.getLong();
+                if (length >= 0) {
+                    entries.put(new Key(ObjectId.fromRaw(blobId), fingerprint), new Entry(offset, length, lastAccess));
+                }
+            }
+            return indexGeneration;
+        }
+    }
+
+    // 返回数据文件的代号，文件为空或文件头无法识别时返回 null
+    private static Long readDataHeader(FileChannel channel) throws IOException {
+        if (channel.size() < DATA_HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                return null;
+            }
+        }
+        header.flip();
+        if (header.getInt() != DATA_MAGIC || header.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+        return header.getLong();
+    }
+
+    private static void writeDataHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_BYTES);
+        header.putInt(DATA_MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    // 超出上限时淘汰最久未访问的记录
+    private void evict() {
+        long liveBytes = liveBytes();
+        if (liveBytes <= maxBytes) {
+            return;
+        }
+        List<Map.Entry<Key, Entry>> byAccess = new ArrayList<>(entries.entrySet());
+        byAccess.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        for (Map.Entry<Key, Entry> e : byAccess) {
+            if (liveBytes <= maxBytes) {
+                break;
+            }
+            liveBytes -= e.getValue().length;
+            entries.remove(e.getKey());
+        }
+    }
+
+    // 无效数据超过一半时把存活记录复制到新的数据文件，返回新文件路径
+    private Path compact() throws IOException {
+        if (dataEnd <= liveBytes() * 2) {
+            return null;
+        }
+        Path compacted = directory.resolve(DATA_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeDataHeader(out, generation + 1);
+            out.position(DATA_HEADER_BYTES);
+            long position = DATA_HEADER_BYTES;
+            for (Entry entry : entries.values()) {
+                long copied = 0;
+                while (copied < entry.length) {
+                    copied += data.transferTo(entry.offset + copied, entry.length - copied, out);
+                }
+                entry.offset = position;
+                position += entry.length;
+            }
+            out.force(true);
+        }
+        return compacted;
+    }
+
+    private long liveBytes() {
+        long liveBytes = 0;
+        for (Entry entry : entries.values()) {
+            liveBytes += entry.length;
+        }
+        return liveBytes;
+    }
+
+    private void writeIndex() throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER_BYTES + entries.size() * ENTRY_BYTES);
+        index.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation).putInt(entries.size());
+        byte[] blobId = new byte[BLOB_ID_BYTES];
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            e.getKey().blobId.copyRawTo(blobId, 0);
+            index.put(blobId)
+                    .putLong(e.getKey().fingerprint)
+                    .putLong(e.getValue().offset)
+                    .putInt(e.getValue().length)
+                    .putLong(e.getValue().lastAccess);
+        }
+
+        // 先写临时文件再替换，避免中断时留下损坏的索引
+        Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+        Files.write(tmp, index.array());
+        Files.move(tmp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 记录保存规则描述和消息参数，读取时重新得到共享的描述，不保存格式化后的文本。
+     * 字符串和参数个数都以 int 记录长度，不受 writeUTF 的 64 KB 和单字节计数的限制。
+     */
+    private static byte[] encode(Key key, List<CodeIssue> issues) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte[] blobId = new byte[BLOB_ID_BYTES];
+            key.blobId.copyRawTo(blobId, 0);
+            out.write(blobId);
+            out.writeLong(key.fingerprint);
+            out.writeInt(issues.size());
+            for (CodeIssue issue : issues) {
+                RuleDescriptor rule = issue.getRule();
+                Object[] args = issue.getArgs();
+                out.writeInt(issue.getLineNumber());
+                writeString(out, rule.getSeverity().name());
+                writeString(out, rule.getRuleId());
+                writeString(out, nullToEmpty(rule.getMessageTemplate()));
+                writeString(out, nullToEmpty(rule.getSuggestionTemplate()));
+                out.writeInt(args != null ? args.length : 0);
+                if (args != null) {
+                    for (Object arg : args) {
+                        writeString(out, String.valueOf(arg));
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 数量和长度先与记录的剩余字节数比较，损坏的记录不会按错误的数量分配内存；
+     * 解码中的任何运行时异常都视为记录损坏，由 get 按未命中处理。
+     */
+    private static List<CodeIssue> decode(byte[] record, Key key, String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte[] blobId = new byte[BLOB_ID_BYTES];
+            in.readFully(blobId);
+            if (in.readLong() != key.fingerprint || !key.blobId.equals(ObjectId.fromRaw(blobId))) {
+                throw new IOException("缓存记录属于其他文件");
+            }
+            int count = in.readInt();
+            if (count < 0 || count > in.available() / MIN_ISSUE_BYTES) {
+                throw new IOException("缓存记录中的问题数无效: " + count);
+            }
+            List<CodeIssue> issues = new ArrayList<>(count);
+            // 同一记录中相同的描述共用一个实例
+            Map<RuleDescriptor, RuleDescriptor> rules = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int lineNumber = in.readInt();
+                Severity severity = Severity.valueOf(readString(in));
+                String ruleId = readString(in);
+                String message = readString(in);
+                String suggestion = readString(in);
+                int argCount = in.readInt();
+                if (argCount < 0 || argCount > in.available() / 4) {
+                    throw new IOException("缓存记录中的参数个数无效: " + argCount);
+                }
+                Object[] args = new Object[argCount];
+                for (int a = 0; a < args.length; a++) {
+                    args[a] = readString(in);
+                }
+                RuleDescriptor rule = rules.computeIfAbsent(RuleDescriptor.of(ruleId, severity, message, suggestion),
+                        descriptor -> descriptor);
+                issues.add(new CodeIssue(fileName, lineNumber, rule, args));
+            }
+            return issues;
+        } catch (RuntimeException e) {
+            throw new IOException("缓存记录损坏", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("缓存记录中的字符串长度无效: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    // 缓存键：blob id 加上规则集与规则配置的指纹
+    public static final class Key {
+        private final ObjectId blobId;
+        private final long fingerprint;
+
+        public Key(ObjectId blobId, long fingerprint) {
+            this.blobId = blobId;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return fingerprint == key.fingerprint && blobId.equals(key.blobId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(blobId, fingerprint);
+        }
+    }
+
+    private static final class Entry {
+        private long offset;
+        private final int length;
+        private long lastAccess;
+
+        private Entry(long offset, int length, long lastAccess) {
+            this.offset = offset;
+            this.length = length;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.ReviewResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 问题基线：已知问题的指纹（见 {@link IssueFingerprints}），报告中只保留不在基线中的问题。
+ * <p>
+ * 基线文件是一个开放寻址的哈希表：16 字节文件头后是 2 的幂个 long 槽位，空槽为 0，装载率不超过 50%。
+ * 打开时通过内存映射直接查询，不需要整体读入或重建，每个问题的查询为 O(1)。
+ */
+public final class Baseline {
+
+    private static final int MAGIC = 0x43524231; // "CRB1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int MIN_SLOTS = 16;
+
+    private final LongBuffer slots;
+    private final int mask;
+    private final int size;
+
+    private Baseline(LongBuffer slots, int size) {
+        this.slots = slots;
+        this.mask = slots.capacity() - 1;
+        this.size = size;
+    }
+
+    public static Baseline open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("不是有效的基线文件: " + file);
+            }
+            int size = mapped.getInt(8);
+            int capacity = mapped.getInt(12);
+            if (Integer.bitCount(capacity) != 1 || mapped.limit() != HEADER_BYTES + (long) capacity * Long.BYTES) {
+                throw new IOException("基线文件已损坏: " + file);
+            }
+            return new Baseline(mapped.position(HEADER_BYTES).slice().asLongBuffer(), size);
+        }
+    }
+
+    /**
+     * 写入基线，重复的指纹只保留一个。
+     *
+     * @return 写入的指纹数
+     */
+    public static int write(Path file, long[] fingerprints) throws IOException {
+        int capacity = MIN_SLOTS;
+        while (capacity < fingerprints.length * 2L) {
+            capacity <<= 1;
+        }
+        long[] table = new long[capacity];
+        int mask = capacity - 1;
+        int size = 0;
+        for (long fingerprint : fingerprints) {
+            long key = normalize(fingerprint);
+            int slot = slot(key, mask);
+            while (table[slot] != 0 && table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == 0) {
+                table[slot] = key;
+                size++;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + capacity * Long.BYTES);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt(capacity);
+        buffer.asLongBuffer().put(table);
+        buffer.rewind();
+
+        // 先写临时文件再替换，正在使用旧基线的进程不受影响
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = parent.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        return size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long fingerprint) {
+        long key = normalize(fingerprint);
+        int slot = slot(key, mask);
+        while (true) {
+            long value = slots.get(slot);
+            if (value == key) {
+                return true;
+            }
+            if (value == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * 去掉基线中已有的问题，文件列表与取消状态保持不变。
+     */
+    public ReviewResult filter(ReviewResult result) {
+        IssueStore issues = result.getIssueStore();
+        long[] fingerprints = IssueFingerprints.compute(result);
+        IssueStore kept = new IssueStore();
+        for (int i = 0; i < issues.size(); i++) {
+            if (!contains(fingerprints[i])) {
+                kept.add(issues.get(i));
+            }
+        }
+
+        ReviewResult filtered = new ReviewResult();
+        filtered.setFileChanges(result.getFileChanges());
+        filtered.setIssueStore(kept);
+        filtered.setCancelled(result.isCancelled());
+        filtered.setSkippedFiles(result.getSkippedFiles());
+        filtered.setSuppressedIssues(result.getSuppressedIssues() + issues.size() - kept.size());
+        return filtered;
+    }
+
+    // 0 表示空槽，指纹恰好为 0 时换成 1
+    private static long normalize(long fingerprint) {
+        return fingerprint != 0 ? fingerprint : 1;
+    }
+
+    private static int slot(long key, int mask) {
+        long mixed = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        return (int) (mixed ^ (mixed >>> 33)) & mask;
+    }
+}
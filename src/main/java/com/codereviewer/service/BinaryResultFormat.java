@@ -0,0 +1,337 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.Severity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑的二进制评审结果，供程序读取以及在目标之间传递结果，不包含文件内容。
+ * <p>
+ * 格式：魔数 "CRR1"，之后全部为无符号 varint：版本、字符串表（数量，每项为 UTF-8 字节数和字节）、
+ * 附加属性（键值对）、标志位（取消）、跳过的文件数、基线去掉的问题数、文件列表（路径、变更类型、blob id）、
+ * 规则表（编号、级别、消息模板、建议模板）、问题文件表，最后是问题（文件、与上一个问题的行号差（zigzag）、
+ * 规则、参数、代码片段）。字符串都以字符串表下标加 1 引用，0 表示 null。
+ */
+public final class BinaryResultFormat {
+
+    private static final byte[] MAGIC = {'C', 'R', 'R', '1'};
+    private static final int VERSION = 1;
+
+    private BinaryResultFormat() {
+    }
+
+    // 读取结果与写入时附带的属性
+    public static final class Contents {
+        private final ReviewResult result;
+        private final Map<String, String> attributes;
+
+        private Contents(ReviewResult result, Map<String, String> attributes) {
+            this.result = result;
+            this.attributes = attributes;
+        }
+
+        public ReviewResult getResult() { return result; }
+        public Map<String, String> getAttributes() { return attributes; }
+    }
+
+    public static void write(File file, ReviewResult result) throws IOException {
+        write(file, result, Collections.emptyMap());
+    }
+
+    /**
+     * 先写临时文件再替换，读取方不会看到写了一半的文件。
+     */
+    public static void write(File file, ReviewResult result, Map<String, String> attributes) throws IOException {
+        Encoder encoder = new Encoder();
+        encoder.encode(result, attributes);
+
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            encoder.writeTo(out);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 文件中的 FileChange 只有路径、变更类型和 blob id，需要内容时由调用方按 blob id 加载。
+     */
+    public static Contents read(File file) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        if (data.length < MAGIC.length || !Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC)) {
+            throw new IOException("不是评审结果文件: " + file);
+        }
+        Decoder in = new Decoder(data, MAGIC.length);
+        try {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的评审结果版本 " + version + ": " + file);
+            }
+            return in.decode();
+        } catch (IOException | RuntimeException e) {
+            // 数量、长度和下标都已校验，其余解码异常同样视为文件损坏
+            throw new IOException("评审结果文件已损坏: " + file + "（" + e.getMessage() + "）", e);
+        }
+    }
+
+    private static final class Encoder {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Buffer body = new Buffer();
+
+        private void encode(ReviewResult result, Map<String, String> attributes) {
+            body.writeInt(attributes.size());
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                writeString(attribute.getKey());
+                writeString(attribute.getValue());
+            }
+            body.writeInt(result.isCancelled() ? 1 : 0);
+            body.writeInt(result.getSkippedFiles());
+            body.writeInt(result.getSuppressedIssues());
+
+            List<FileChange> changes = result.getFileChanges() != null ? result.getFileChanges() : List.of();
+            body.writeInt(changes.size());
+            for (FileChange change : changes) {
+                writeString(change.getFilePath());
+                writeString(change.getChangeType());
+                writeString(change.getBlobId());
+            }
+
+            IssueStore issues = result.getIssueStore();
+            Map<RuleDescriptor, Integer> ruleIndexes = new HashMap<>();
+            List<RuleDescriptor> rules = new ArrayList<>();
+            int[] issueRules = new int[issues.size()];
+            for (int i = 0; i < issues.size(); i++) {
+                RuleDescriptor rule = issues.rule(i);
+                Integer index = ruleIndexes.get(rule);
+                if (index == null) {
+                    index = rules.size();
+                    rules.add(rule);
+                    ruleIndexes.put(rule, index);
+                }
+                issueRules[i] = index;
+            }
+            body.writeInt(rules.size());
+            for (RuleDescriptor rule : rules) {
+                writeString(rule.getRuleId());
+                body.writeInt(rule.getSeverity().ordinal());
+                writeString(rule.getMessageTemplate());
+                writeString(rule.getSuggestionTemplate());
+            }
+
+            body.writeInt(issues.fileCount());
+            for (int file = 0; file < issues.fileCount(); file++) {
+                writeString(issues.fileName(file));
+            }
+
+            body.writeInt(issues.size());
+            int previousLine = 0;
+            for (int i = 0; i < issues.size(); i++) {
+                CodeIssue issue = issues.get(i);
+                int line = issues.lineNumber(i);
+                body.writeInt(issues.fileIndex(i));
+                body.writeInt((line - previousLine) << 1 ^ (line - previousLine) >> 31);
+                body.writeInt(issueRules[i]);
+                Object[] args = issue.getArgs();
+                body.writeInt(args != null ? args.length : 0);
+                if (args != null) {
+                    for (Object arg : args) {
+                        writeString(arg != null ? String.valueOf(arg) : null);
+                    }
+                }
+                writeString(issue.getCodeSnippet());
+                previousLine = line;
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                body.writeInt(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.put(value, index);
+            }
+            body.writeInt(index + 1);
+        }
+
+        private void writeTo(OutputStream out) throws IOException {
+            Buffer header = new Buffer();
+            header.write(MAGIC, 0, MAGIC.length);
+            header.writeInt(VERSION);
+            header.writeInt(strings.size());
+            for (String value : strings.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                header.writeInt(bytes.length);
+                header.write(bytes, 0, bytes.length);
+            }
+            out.write(header.bytes, 0, header.size);
+            out.write(body.bytes, 0, body.size);
+        }
+    }
+
+    /**
+     * 数量和长度都先与剩余字节数比较（每个元素至少占一个字节），下标都检查范围，
+     * 损坏或截断的文件报 IOException，不会按错误的数量分配数组。
+     */
+    private static final class Decoder {
+        private final byte[] data;
+        private int position;
+        private String[] strings;
+
+        private Decoder(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private Contents decode() throws IOException {
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readCount();
+                strings[i] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+
+            int attributeCount = readCount();
+            Map<String, String> attributes = new LinkedHashMap<>();
+            for (int i = 0; i < attributeCount; i++) {
+                attributes.put(readString(), readString());
+            }
+
+            ReviewResult result = new ReviewResult();
+            result.setCancelled((readInt() & 1) != 0);
+            result.setSkippedFiles(readInt());
+            result.setSuppressedIssues(readInt());
+
+            int fileCount = readCount();
+            List<FileChange> changes = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                FileChange change = new FileChange();
+                change.setFilePath(readString());
+                change.setChangeType(readString());
+                change.setBlobId(readString());
+                changes.add(change);
+            }
+            result.setFileChanges(changes);
+
+            Severity[] severities = Severity.values();
+            RuleDescriptor[] rules = new RuleDescriptor[readCount()];
+            for (int i = 0; i < rules.length; i++) {
+                String ruleId = readString();
+                Severity severity = severities[readIndex(severities.length)];
+                rules[i] = RuleDescriptor.of(ruleId, severity, readString(), readString());
+            }
+            String[] issueFiles = new String[readCount()];
+            for (int i = 0; i < issueFiles.length; i++) {
+                issueFiles[i] = readString();
+            }
+
+            IssueStore issues = new IssueStore();
+            int issueCount = readCount();
+            int line = 0;
+            for (int i = 0; i < issueCount; i++) {
+                String fileName = issueFiles[readIndex(issueFiles.length)];
+                int delta = readInt();
+                line += delta >>> 1 ^ -(delta & 1);
+                RuleDescriptor rule = rules[readIndex(rules.length)];
+                int argCount = readCount();
+                Object[] args = new Object[argCount];
+                for (int arg = 0; arg < argCount; arg++) {
+                    args[arg] = readString();
+                }
+                String snippet = readString();
+                if (snippet == null) {
+                    issues.add(fileName, line, rule, args);
+                } else {
+                    CodeIssue issue = new CodeIssue(fileName, line, rule, args);
+                    issue.setCodeSnippet(snippet);
+                    issues.add(issue);
+                }
+            }
+            result.setIssueStore(issues);
+            return new Contents(result, attributes);
+        }
+
+        private String readString() throws IOException {
+            int index = readIndex(strings.length + 1);
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        // 数量或字节长度，不能超过剩余的字节数
+        private int readCount() throws IOException {
+            int count = readInt();
+            if (count < 0 || count > data.length - position) {
+                throw new IOException("数量 " + count + " 超出剩余数据");
+            }
+            return count;
+        }
+
+        private int readIndex(int limit) throws IOException {
+            int index = readInt();
+            if (index < 0 || index >= limit) {
+                throw new IOException("下标 " + index + " 超出范围");
+            }
+            return index;
+        }
+
+        private int readInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (position >= data.length) {
+                    throw new IOException("数据提前结束");
+                }
+                byte b = data[position++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("整数编码过长");
+        }
+    }
+
+    // 可增长的字节缓冲区
+    private static final class Buffer {
+        private byte[] bytes = new byte[4096];
+        private int size;
+
+        private void writeInt(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -1,56 +1,538 @@
 package com.codereviewer.service;
 
+import com.codereviewer.metrics.ReviewMetrics;
 import com.codereviewer.model.CodeIssue;
 import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.LineRanges;
+import com.codereviewer.model.LineStream;
 import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import com.codereviewer.model.SourceView;
 import com.codereviewer.rules.*;
+import com.codereviewer.utils.Deadline;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectId;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CodeAnalyzer {
 
-    private List<CodeRule> rules;
+    // 缓存指纹使用 64 位 FNV-1a
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 超过该大小（字节）的文件以流的方式分析，只执行逐行规则
+    public static final long DEFAULT_STREAMING_THRESHOLD = 4L * 1024 * 1024;
+
+    // 流式分析时每行保留的字符数，更长的部分只计入长度
+    private static final int STREAMING_LINE_CHARS = 4096;
+
+    // 分析线程的结束标记
+    private static final int END_OF_QUEUE = -1;
+
+    // 单个文件超出时间预算时报告的问题，其余规则不再执行
+    private static final RuleDescriptor BUDGET_EXCEEDED = RuleDescriptor.of("REVIEW_001", Severity.INFO,
+            "文件分析超出时间预算 ({0} ms)，未执行的规则: {1}", "确认是否为生成的代码，可通过 excludePatterns 排除该文件");
+
+    private final RuleSet ruleSet;
+    private final int threads;
+    private boolean changedLinesOnly;
+    private int contextLines;
+    private AnalysisCache cache;
+    private ReviewMetrics metrics = new ReviewMetrics();
+    private int maxCritical = -1;
+    private int maxWarnings = -1;
+    private long fileBudgetNanos;
+    private long streamingThreshold = DEFAULT_STREAMING_THRESHOLD;
+    private GeneratedFileDetector.Policy generatedPolicy = GeneratedFileDetector.Policy.LIGHT;
+    private final GeneratedFileDetector generatedDetector = new GeneratedFileDetector();
+    private int queueDepth;
 
     public CodeAnalyzer() {
-        initRules();
+        this(1);
+    }
+
+    /**
+     * @param threads 分析线程数，小于等于 0 时使用可用处理器数，1 表示顺序执行
+     */
+    public CodeAnalyzer(int threads) {
+        this(threads, RuleSet.load(RuleSet.defaultConfig()));
+    }
+
+    // 规则由调用方通过 RuleSet.load 按配置加载
+    public CodeAnalyzer(int threads, RuleSet ruleSet) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.ruleSet = ruleSet;
+    }
+
+    public List<CodeRule> getRules() {
+        return ruleSet.getRules();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // 只检查编辑区间及其前后 contextLines 行，新增文件仍检查全部内容
+    public void setChangedLinesOnly(boolean changedLinesOnly, int contextLines) {
+        this.changedLinesOnly = changedLinesOnly;
+        this.contextLines = contextLines;
+    }
+
+    /**
+     * 严重问题或一般问题数超过上限后取消剩余文件的分析，小于 0 表示不限制。
+     * 取消后的结果只包含已分析的文件，{@link ReviewResult#isCancelled()} 为 true。
+     */
+    public void setIssueLimits(int maxCritical, int maxWarnings) {
+        this.maxCritical = maxCritical;
+        this.maxWarnings = maxWarnings;
+    }
+
+    // 单个文件的分析时间预算（毫秒），超出后跳过剩余规则并报告 REVIEW_001，0 表示不限制
+    public void setFileTimeBudget(long millis) {
+        this.fileBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    /**
+     * @param streamingThreshold 超过该大小（字节）的文件不整体载入，按块解码并只执行 {@link LineRule}
+     * @param generatedPolicy    识别为生成代码的文件的处理方式，LIGHT 表示与大文件一样流式分析
+     */
+    public void setStreaming(long streamingThreshold, GeneratedFileDetector.Policy generatedPolicy) {
+        this.streamingThreshold = streamingThreshold;
+        this.generatedPolicy = generatedPolicy;
     }
 
-    private void initRules() {
-        rules = Arrays.asList(
-                new NamingRule(),
-                new ComplexityRule(),
-                new StyleRule()
-        );
+    // 流水线中已读入内容、等待分析的文件数上限，小于等于 0 时为线程数的两倍
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
     }
 
+    // 内容已在内存中或由 FileChange 按需读取
     public ReviewResult analyze(List<FileChange> fileChanges) {
-        ReviewResult result = new ReviewResult();
-        List<CodeIssue> allIssues = new ArrayList<>();
+        return analyze(fileChanges, ContentSource.NONE);
+    }
+
+    /**
+     * 以流水线方式分析：一个生产线程按 {@link ContentSource#loadOrder} 的顺序读入内容并放入有界队列，
+     * 队列满时阻塞；分析线程从队列取出文件，分析完成后立即释放内容；问题按文件原始顺序汇总到列式存储。
+     * 同时驻留内存的文件内容只与线程数和队列深度有关，与变更文件的总数无关。
+     */
+    public ReviewResult analyze(List<FileChange> fileChanges, ContentSource contentSource) {
+        Gate gate = new Gate();
+        Collector collector = new Collector(fileChanges);
+        if (threads > 1 && fileChanges.size() > 1) {
+            analyzePipelined(fileChanges, contentSource, gate, collector);
+        } else {
+            for (int i = 0; i < fileChanges.size(); i++) {
+                collector.accept(i, analyzeLoaded(fileChanges.get(i), contentSource, gate));
+            }
+        }
+        return collector.result();
+    }
+
+    private void analyzePipelined(List<FileChange> fileChanges, ContentSource contentSource, Gate gate,
+                                  Collector collector) {
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(queueDepth > 0 ? queueDepth : threads * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CompletionService<Void> tasks = new ExecutorCompletionService<>(pool);
+        try {
+            tasks.submit(() -> {
+                for (int index : contentSource.loadOrder(fileChanges)) {
+                    FileChange fileChange = fileChanges.get(index);
+                    // 已取消或缓存命中的文件不需要内容
+                    if (!gate.cancelled.get() && !isCached(fileChange)) {
+                        contentSource.load(fileChange);
+                    }
+                    queue.put(index);
+                }
+                for (int i = 0; i < threads; i++) {
+                    queue.put(END_OF_QUEUE);
+                }
+                return null;
+            });
+            for (int i = 0; i < threads; i++) {
+                tasks.submit(() -> {
+                    for (int index = queue.take(); index != END_OF_QUEUE; index = queue.take()) {
+                        FileChange fileChange = fileChanges.get(index);
+                        List<CodeIssue> issues;
+                        try {
+                            issues = analyzeGated(fileChange, gate);
+                        } finally {
+                            contentSource.release(fileChange);
+                        }
+                        collector.accept(index, issues);
+                    }
+                    return null;
+                });
+            }
+            // 任一任务失败时立即停止其余任务，避免生产线程阻塞在已满的队列上
+            for (int i = 0; i <= threads; i++) {
+                tasks.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("代码分析被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("代码分析失败: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<CodeIssue> analyzeLoaded(FileChange fileChange, ContentSource contentSource, Gate gate) {
+        if (!gate.cancelled.get() && !isCached(fileChange)) {
+            try {
+                contentSource.load(fileChange);
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取文件内容失败: " + fileChange.getFilePath(), e);
+            }
+        }
+        try {
+            return analyzeGated(fileChange, gate);
+        } finally {
+            contentSource.release(fileChange);
+        }
+    }
+
+    private boolean isCached(FileChange fileChange) {
+        AnalysisCache.Key key = cacheKey(fileChange);
+        return key != null && cache.contains(key);
+    }
+
+    // 记录每个文件和每个规则的耗时，未设置时使用内部实例
+    public void setMetrics(ReviewMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // 设置后按 blob id 复用历史分析结果，命中时不再读取内容和执行规则
+    public void setCache(AnalysisCache cache) {
+        this.cache = cache;
+    }
+
+    // 已取消时返回 null，不再分析；分析完成后累计问题数并判断是否超过上限
+    private List<CodeIssue> analyzeGated(FileChange fileChange, Gate gate) {
+        if (gate.cancelled.get()) {
+            return null;
+        }
+        List<CodeIssue> issues = analyzeFileIfPresent(fileChange);
+        if (maxCritical < 0 && maxWarnings < 0) {
+            return issues;
+        }
+        int critical = 0;
+        int warnings = 0;
+        for (CodeIssue issue : issues) {
+            Severity severity = issue.getRule().getSeverity();
+            if (severity == Severity.CRITICAL) {
+                critical++;
+            } else if (severity == Severity.WARNING) {
+                warnings++;
+            }
+        }
+        if ((maxCritical >= 0 && gate.critical.addAndGet(critical) > maxCritical)
+                | (maxWarnings >= 0 && gate.warnings.addAndGet(warnings) > maxWarnings)) {
+            gate.cancelled.set(true);
+        }
+        return issues;
+    }
+
+    private List<CodeIssue> analyzeFileIfPresent(FileChange fileChange) {
+        ReviewMetrics.FileTimer timer = metrics.file(fileChange.getFilePath());
+        long bytes = fileChange.getContentLength();
+
+        AnalysisCache.Key key = cacheKey(fileChange);
+        if (key != null) {
+            List<CodeIssue> cached = cache.get(key, fileChange.getFilePath());
+            if (cached != null) {
+                timer.stop(0, bytes, true, cached.size());
+                return cached;
+            }
+        }
+
+        List<CodeIssue> issues = new ArrayList<>();
+        int lineCount;
+        boolean generated = isGenerated(fileChange);
+        if (generated) {
+            metrics.countGenerated();
+        }
+        if (generated && generatedPolicy == GeneratedFileDetector.Policy.SKIP) {
+            lineCount = 0;
+        } else if (generated || bytes > streamingThreshold) {
+            metrics.countStreamed();
+            lineCount = analyzeStreaming(fileChange, issues);
+        } else {
+            ReviewMetrics.StepTimer load = metrics.step(ReviewMetrics.STEP_LOAD, fileChange.getFilePath());
+            SourceView source = fileChange.getSourceView();
+            load.stop(0);
+            lineCount = source.getLineCount();
+            if (!source.isEmpty()) {
+                issues = analyzeFile(fileChange);
+            }
+        }
+
+        // 超出时间预算的结果不完整，不写入缓存
+        if (key != null && !isTruncated(issues)) {
+            try {
+                cache.put(key, issues);
+            } catch (IOException e) {
+                // 缓存写入失败不影响评审结果
+            }
+        }
+        timer.stop(lineCount, bytes, false, issues.size());
+        return issues;
+    }
+
+    private boolean isGenerated(FileChange fileChange) {
+        if (generatedPolicy == GeneratedFileDetector.Policy.FULL) {
+            return false;
+        }
+        try {
+            return generatedDetector.isGenerated(fileChange);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取文件内容失败: " + fileChange.getFilePath(), e);
+        }
+    }
+
+    /**
+     * 按块解码内容，逐行执行 {@link LineRule}，不构建完整的行视图和词法单元，内存占用与文件大小无关。
+     * {@link ByteLineRule} 直接扫描未解码的字节，需要词法单元的逐行规则不执行；没有其余规则时不再解码。
+     *
+     * @return 读取的行数
+     */
+    private int analyzeStreaming(FileChange fileChange, List<CodeIssue> issues) {
+        List<String> byteRules = ruleSet.getByteLineRuleNames();
+        List<String> ruleNames = ruleSet.getStreamedLineRuleNames();
+        LineRanges scope = changedLinesOnly && fileChange.getEditList() != null
+                ? LineRanges.of(fileChange.getEditList(), contextLines, Integer.MAX_VALUE) : null;
+        if (!ruleSet.hasStreamedRules() || (scope != null && scope.isEmpty())) {
+            return 0;
+        }
 
-        for (FileChange fileChange : fileChanges) {
-            if (fileChange.getContent().isEmpty()) {
-                continue;
+        String fileName = fileChange.getFilePath();
+        Deadline deadline = Deadline.after(fileBudgetNanos);
+        ReviewMetrics.StepTimer step = metrics.step(ReviewMetrics.STEP_STREAM, fileName);
+        List<List<CodeIssue>> ruleIssues = ruleSet.newIssueLists();
+        RuleTimes times = ruleSet.newRuleTimes();
+        int[] stoppedAt = {-1};
+        int lineCount = 0;
+        String skipped = null;
+        try {
+            lineCount = ruleSet.checkBytes(fileChange, scope, ruleIssues, times, deadline);
+            if (!ruleNames.isEmpty()) {
+                try (ReadableByteChannel channel = fileChange.openChannel()) {
+                    lineCount = LineStream.read(channel, STREAMING_LINE_CHARS, line -> {
+                        int index = line.getIndex();
+                        // 每隔一段行数检查一次时间预算
+                        if ((index & 1023) == 0 && deadline.isExceeded()) {
+                            stoppedAt[0] = index;
+                            return false;
+                        }
+                        if (scope == null || scope.contains(index)) {
+                            ruleSet.checkStreamedLine(fileName, line, ruleIssues, times);
+                        }
+                        return true;
+                    });
+                } finally {
+                    times.finishSampling();
+                }
             }
+        } catch (Deadline.ExceededException e) {
+            // 字节扫描中断时，已经发现的问题保留，其余逐行规则也未执行
+            List<String> names = new ArrayList<>(byteRules);
+            names.addAll(ruleNames);
+            skipped = String.join(", ", names);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取文件内容失败: " + fileName, e);
+        }
+        recordRuleTimes(fileName, times, ruleIssues);
+        issues.addAll(RuleSet.merge(ruleIssues));
+        if (stoppedAt[0] >= 0) {
+            skipped = String.join(", ", ruleNames) + " (第 " + (stoppedAt[0] + 1) + " 行之后)";
+        }
+        if (skipped != null) {
+            issues.add(new CodeIssue(fileName, Math.max(stoppedAt[0], 0) + 1, BUDGET_EXCEEDED,
+                    TimeUnit.NANOSECONDS.toMillis(deadline.elapsedNanos()), skipped));
+        }
+        step.stop(issues.size());
+        return lineCount;
+    }
+
+    private AnalysisCache.Key cacheKey(FileChange fileChange) {
+        if (cache == null || fileChange.getBlobId() == null) {
+            return null;
+        }
+
+        // 指纹覆盖规则集、规则版本和分析选项；只检查变更行时还包含编辑区间
+        long fingerprint = mix(FNV_OFFSET, "code-review-cache");
+        for (CodeRule rule : ruleSet.getRules()) {
+            fingerprint = mix(fingerprint, rule.getClass().getName());
+            fingerprint = mix(fingerprint, rule.getVersion());
+        }
+        // 流式阈值与生成代码的处理方式决定了大文件和生成代码执行哪些规则
+        fingerprint = mix(fingerprint, generatedPolicy.name());
+        fingerprint = mix(fingerprint, (int) Math.min(Integer.MAX_VALUE, streamingThreshold));
+        if (changedLinesOnly && fileChange.getEditList() != null) {
+            fingerprint = mix(fingerprint, "changed-lines");
+            fingerprint = mix(fingerprint, contextLines);
+            for (Edit edit : fileChange.getEditList()) {
+                fingerprint = mix(fingerprint, edit.getBeginB());
+                fingerprint = mix(fingerprint, edit.getEndB());
+            }
+        }
+        return new AnalysisCache.Key(ObjectId.fromString(fileChange.getBlobId()), fingerprint);
+    }
 
-            List<CodeIssue> fileIssues = analyzeFile(fileChange);
-            allIssues.addAll(fileIssues);
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = mix(hash, value.charAt(i));
         }
+        return hash;
+    }
 
-        result.setIssues(allIssues);
-        result.setFileChanges(fileChanges);
-        return result;
+    private static long mix(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
     }
 
     private List<CodeIssue> analyzeFile(FileChange fileChange) {
         List<CodeIssue> issues = new ArrayList<>();
+        SourceView source = fileChange.getSourceView();
+
+        if (changedLinesOnly && fileChange.getEditList() != null) {
+            LineRanges changedLines = LineRanges.of(fileChange.getEditList(), contextLines, source.getLineCount());
+            fileChange.setChangedLines(changedLines);
+            if (changedLines.isEmpty()) {
+                return issues;
+            }
+        }
 
-        for (CodeRule rule : rules) {
-            List<CodeIssue> ruleIssues = rule.check(fileChange);
-            issues.addAll(ruleIssues);
+        // 词法分析和每次遍历内部按行、词法单元和方法检查截止时间，单个规则耗时过长时也能及时停下
+        Deadline deadline = Deadline.after(fileBudgetNanos);
+        List<List<CodeIssue>> ruleIssues = ruleSet.newIssueLists();
+        RuleTimes times = ruleSet.newRuleTimes();
+        List<RuleSet.Pass> passes = ruleSet.getPasses();
+        int p = -1;
+        try {
+            ReviewMetrics.StepTimer lex = metrics.step(ReviewMetrics.STEP_LEX, fileChange.getFilePath());
+            source.tokens(deadline);
+            lex.stop(0);
+
+            // 每个规则的问题按登记顺序合并
+            for (p = 0; p < passes.size(); p++) {
+                if (deadline.isExceeded()) {
+                    break;
+                }
+                passes.get(p).run(fileChange, source, ruleIssues, times, deadline);
+            }
+        } catch (Deadline.ExceededException e) {
+            // 中断的遍历已经发现的问题保留
         }
 
+        recordRuleTimes(fileChange.getFilePath(), times, ruleIssues);
+        issues.addAll(RuleSet.merge(ruleIssues));
+        if (p < passes.size()) {
+            List<String> skipped = new ArrayList<>();
+            if (p < 0) {
+                skipped.add("词法分析");
+                p = 0;
+            }
+            for (RuleSet.Pass pass : passes.subList(p, passes.size())) {
+                skipped.add(pass.getName());
+            }
+            issues.add(new CodeIssue(fileChange.getFilePath(), 1, BUDGET_EXCEEDED,
+                    TimeUnit.NANOSECONDS.toMillis(deadline.elapsedNanos()), String.join(", ", skipped)));
+        }
         return issues;
     }
-}
\ No newline at end of file
+
+    // 按规则类名登记每个执行过的规则的耗时与问题数
+    private void recordRuleTimes(String fileName, RuleTimes times, List<List<CodeIssue>> ruleIssues) {
+        for (int slot = 0; slot < ruleIssues.size(); slot++) {
+            if (times.ran(slot)) {
+                metrics.recordRule(ruleSet.ruleName(slot), fileName, times.nanos(slot), ruleIssues.get(slot).size());
+            }
+        }
+    }
+
+    // 超出时间预算的文件只有部分结果，沿用保存的结果时需要重新分析
+    public static boolean isBudgetExceeded(CodeIssue issue) {
+        return BUDGET_EXCEEDED.getRuleId().equals(issue.getRuleId());
+    }
+
+    private static boolean isTruncated(List<CodeIssue> issues) {
+        return !issues.isEmpty() && issues.get(issues.size() - 1).getRule() == BUDGET_EXCEEDED;
+    }
+
+    /**
+     * 按文件原始顺序把各文件的问题写入列式存储，先完成的文件在此等待排在前面的文件，
+     * 写入后不再保留单个文件的问题列表。保证结果与顺序执行一致。
+     */
+    private static final class Collector {
+        private static final Object SKIPPED = new Object();
+
+        private final List<FileChange> fileChanges;
+        private final Object[] pending;
+        private final IssueStore store = new IssueStore();
+        private final List<FileChange> analyzed = new ArrayList<>();
+        private int next;
+
+        private Collector(List<FileChange> fileChanges) {
+            this.fileChanges = fileChanges;
+            this.pending = new Object[fileChanges.size()];
+        }
+
+        // 已取消、未分析的文件 issues 为 null
+        @SuppressWarnings("unchecked")
+        private synchronized void accept(int index, List<CodeIssue> issues) {
+            pending[index] = issues != null ? issues : SKIPPED;
+            while (next < pending.length && pending[next] != null) {
+                Object done = pending[next];
+                pending[next] = SKIPPED;
+                if (done != SKIPPED) {
+                    store.addAll((List<CodeIssue>) done);
+                    analyzed.add(fileChanges.get(next));
+                }
+                next++;
+            }
+        }
+
+        private ReviewResult result() {
+            ReviewResult result = new ReviewResult();
+            result.setIssueStore(store);
+            // 最后一个文件才超过上限时没有可取消的工作，结果仍是完整的
+            if (analyzed.size() < fileChanges.size()) {
+                result.setFileChanges(analyzed);
+                result.setCancelled(true);
+                result.setSkippedFiles(fileChanges.size() - analyzed.size());
+            } else {
+                result.setFileChanges(fileChanges);
+            }
+            return result;
+        }
+    }
+
+    // 一次 analyze 调用内各线程共享的问题计数与取消标记
+    private static final class Gate {
+        private final AtomicInteger critical = new AtomicInteger();
+        private final AtomicInteger warnings = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+    }
+}
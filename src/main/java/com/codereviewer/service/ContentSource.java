@@ -0,0 +1,40 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.FileChange;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 分析流水线中文件内容的来源：生产线程按 {@link #loadOrder} 的顺序调用 {@link #load} 读入内容，
+ * 分析线程在文件分析完成后立即调用 {@link #release} 释放内容，同时驻留内存的内容只有队列中和正在分析的文件。
+ */
+public interface ContentSource {
+
+    // 内容已在内存中（或由 FileChange 自行按需读取），不做任何处理
+    ContentSource NONE = new ContentSource() {
+        @Override
+        public void load(FileChange change) {
+        }
+
+        @Override
+        public void release(FileChange change) {
+        }
+    };
+
+    // 读取顺序（文件下标），默认按内容从大到小，避免大文件最后才开始而拖慢整体
+    default int[] loadOrder(List<FileChange> changes) {
+        Integer[] order = new Integer[changes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> changes.get(i).getContentLength()).reversed());
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    void load(FileChange change) throws IOException;
+
+    void release(FileChange change);
+}
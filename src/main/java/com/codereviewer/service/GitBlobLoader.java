@@ -0,0 +1,130 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.ContentLoader;
+import com.codereviewer.model.FileChange;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 通过同一个 {@link ObjectReader} 从对象库读取变更文件的 blob 内容。
+ * 小 blob 批量预读，大 blob 只记录 id，规则需要时再以流的方式读取。
+ * 也可以先只挂上按需读取的加载器（{@link #attach}），再由分析流水线按从大到小的顺序逐个读入和释放（{@link #contentSource()}）。
+ */
+public class GitBlobLoader implements AutoCloseable {
+
+    // 超过该大小的 blob 不预读
+    public static final long PREFETCH_LIMIT = 1024 * 1024;
+
+    private final ObjectReader reader;
+
+    public GitBlobLoader(Repository repository) {
+        this.reader = repository.newObjectReader();
+        // 只调低这个 reader 的阈值：JGit 默认把 50 MB 以下的对象整体读入内存后再提供流，
+        // 超过阈值的 blob 在读取时才逐块解压。不修改进程级的 WindowCacheConfig，以免影响同一 JVM 中的其他插件
+        reader.setStreamFileThreshold((int) PREFETCH_LIMIT);
+    }
+
+    public ObjectReader getReader() {
+        return reader;
+    }
+
+    public void load(List<FileChange> changes) throws IOException {
+        for (FileChange change : changes) {
+            if (change.getBlobId() != null) {
+                load(change, ObjectId.fromString(change.getBlobId()));
+            }
+        }
+    }
+
+    /**
+     * 只读取对象大小并挂上按需读取的加载器，不读取内容。
+     */
+    public void attach(List<FileChange> changes) throws IOException {
+        for (FileChange change : changes) {
+            if (change.getBlobId() != null) {
+                ObjectId id = ObjectId.fromString(change.getBlobId());
+                change.setContentLoader(new StreamingBlob(id, reader.getObjectSize(id, Constants.OBJ_BLOB)));
+            }
+        }
+    }
+
+    // 按内容从大到小逐个读入（ContentSource 默认顺序，大文件先交给分析线程），分析完成后恢复为按需读取的加载器
+    public ContentSource contentSource() {
+        return new ContentSource() {
+            @Override
+            public void load(FileChange change) throws IOException {
+                if (change.getBlobId() != null) {
+                    GitBlobLoader.this.load(change, ObjectId.fromString(change.getBlobId()));
+                }
+            }
+
+            // 之后（如基线指纹）仍可按需重新读取
+            @Override
+            public void release(FileChange change) {
+                if (change.getBlobId() == null || change.getContentLoader() instanceof StreamingBlob) {
+                    return;
+                }
+                ObjectId id = ObjectId.fromString(change.getBlobId());
+                try {
+                    long size;
+                    synchronized (reader) {
+                        size = reader.getObjectSize(id, Constants.OBJ_BLOB);
+                    }
+                    change.setContentLoader(new StreamingBlob(id, size));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("读取对象失败: " + change.getFilePath(), e);
+                }
+            }
+        };
+    }
+
+    // 流水线中读取与按需读取可能在不同线程同时进行，ObjectReader 不是线程安全的
+    private void load(FileChange change, ObjectId id) throws IOException {
+        synchronized (reader) {
+            ObjectLoader loader = reader.open(id, Constants.OBJ_BLOB);
+            if (!loader.isLarge() && loader.getSize() <= PREFETCH_LIMIT) {
+                change.setContentLoader(ContentLoader.of(loader.getCachedBytes()));
+            } else {
+                change.setContentLoader(new StreamingBlob(id, loader.getSize()));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    // 大 blob 在打开流时才解压，ObjectReader 不是线程安全的，打开时需要加锁
+    private final class StreamingBlob implements ContentLoader {
+        private final ObjectId id;
+        private final long size;
+
+        private StreamingBlob(ObjectId id, long size) {
+            this.id = id;
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            ObjectLoader loader;
+            synchronized (reader) {
+                loader = reader.open(id, Constants.OBJ_BLOB);
+            }
+            return loader.openStream();
+        }
+    }
+}
@@ -1,103 +1,399 @@
 package com.codereviewer.service;
 
+import com.codereviewer.metrics.ReviewMetrics;
 import com.codereviewer.model.FileChange;
-import org.eclipse.jgit.api.Git;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.ReviewResult;
+import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class GitService {
+/**
+ * 计算基线分支与 HEAD 之间的变更。返回的文件只带有按需读取的加载器，不预先读取内容。
+ * 仓库和 {@link GitBlobLoader} 会一直保持打开，以便分析时再从对象库读取，使用完毕后需要调用 {@link #close()}。
+ */
+public class GitService implements AutoCloseable {
 
+    public static final int DEFAULT_RENAME_LIMIT = 400;
+
+    private Repository repository;
+    private GitBlobLoader blobLoader;
+    private boolean changedLinesOnly;
+    private ReviewMetrics metrics = new ReviewMetrics();
+    private String includePatterns;
+    private String excludePatterns;
+    private boolean detectRenames;
+    private int renameLimit = DEFAULT_RENAME_LIMIT;
+    private boolean useMergeBase;
+    private ObjectId reviewedHead;
+    private ObjectId reviewedBase;
+
+    // 开启后为每个修改的文件保留编辑区间，供只检查变更行模式使用
+    public void setChangedLinesOnly(boolean changedLinesOnly) {
+        this.changedLinesOnly = changedLinesOnly;
+    }
+
+    public void setMetrics(ReviewMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Ant 风格的包含/排除模式（逗号分隔，相对于项目目录），在遍历树时过滤，被排除的子树不会进入
+    public void setPathPatterns(String includePatterns, String excludePatterns) {
+        this.includePatterns = includePatterns;
+        this.excludePatterns = excludePatterns;
+    }
+
+    // 开启重命名检测后，重命名的文件报告为 RENAME 而不是一对 DELETE/ADD；renameLimit 限制参与配对的文件数
+    public void setRenameDetection(boolean detectRenames, int renameLimit) {
+        this.detectRenames = detectRenames;
+        this.renameLimit = renameLimit;
+    }
+
+    // 与基线分支和 HEAD 的合并基点比较，而不是基线分支的最新提交，基线分支上后来的改动不会出现在差异中
+    public void setUseMergeBase(boolean useMergeBase) {
+        this.useMergeBase = useMergeBase;
+    }
+
+    /**
+     * @param baseBranch 基线分支，也可以是任意可解析的修订（如提交 id）
+     */
     public List<FileChange> getChangedFiles(File projectDir, String baseBranch) throws Exception {
         List<FileChange> changes = new ArrayList<>();
+        open(projectDir);
 
-        try (Repository repository = new FileRepositoryBuilder()
-                .setGitDir(new File(projectDir, ".git"))
-                .readEnvironment()
-                .findGitDir()
-                .build()) {
+        // 获取当前HEAD和基线分支的commit
+        ObjectId headId = repository.resolve("HEAD");
+        ObjectId baseId = repository.resolve(baseBranch);
 
-            Git git = new Git(repository);
+        if (baseId == null) {
+            throw new IllegalArgumentException("找不到基线分支: " + baseBranch);
+        }
 
-            // 获取当前HEAD和基线分支的commit
-            ObjectId headId = repository.resolve("HEAD");
-            ObjectId baseId = repository.resolve(baseBranch);
+        metrics.time("Git 差异", () -> {
+            try (RevWalk walk = new RevWalk(blobLoader.getReader());
+                 DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                RevCommit headCommit = walk.parseCommit(headId);
+                RevCommit baseCommit = useMergeBase ? mergeBase(walk, walk.parseCommit(baseId), headCommit)
+                        : walk.parseCommit(baseId);
+                reviewedHead = headCommit.copy();
+                reviewedBase = baseCommit.copy();
 
-            if (baseId == null) {
-                throw new IllegalArgumentException("找不到基线分支: " + baseBranch);
+                // 树遍历、diff 与 blob 读取共用同一个 ObjectReader
+                formatter.setReader(blobLoader.getReader(), repository.getConfig());
+                formatter.setPathFilter(createPathFilter(relativePath(projectDir)));
+                formatter.setDetectRenames(detectRenames);
+                if (detectRenames) {
+                    formatter.getRenameDetector().setRenameLimit(renameLimit);
+                }
+                collectChanges(formatter, formatter.scan(baseCommit.getTree(), headCommit.getTree()), changes);
             }
+        });
 
-            try (RevWalk walk = new RevWalk(repository)) {
-                RevCommit headCommit = walk.parseCommit(headId);
-                RevCommit baseCommit = walk.parseCommit(baseId);
-
-                // 创建TreeParser
-                CanonicalTreeParser oldTreeIter = new CanonicalTreeParser();
-                oldTreeIter.reset(repository.newObjectReader(), baseCommit.getTree());
-
-                CanonicalTreeParser newTreeIter = new CanonicalTreeParser();
-                newTreeIter.reset(repository.newObjectReader(), headCommit.getTree());
-
-                // 获取diff
-                List<DiffEntry> diffs = git.diff()
-                        .setOldTree(oldTreeIter)
-                        .setNewTree(newTreeIter)
-                        .call();
-
-                for (DiffEntry diff : diffs) {
-                    String filePath = diff.getNewPath();
-                    if (filePath.equals("/dev/null")) {
-                        filePath = diff.getOldPath();
-                    }
-
-                    // 只处理Java文件
-                    if (filePath.endsWith(".java")) {
-                        FileChange change = createFileChange(projectDir, diff);
-                        if (change != null) {
-                            changes.add(change);
-                        }
-                    }
+        // 只读取对象大小，内容由分析流水线按需读入，见 contentSource()
+        metrics.time("读取对象大小", () -> blobLoader.attach(changes));
+        return changes;
+    }
+
+    /**
+     * 暂存区（index）与 HEAD 之间的变更，用于 pre-commit 钩子。暂存的内容在 git add 时已写入对象库，
+     * 直接按 index 中的 blob id 读取，不读取工作区文件，也不遍历未暂存的修改。
+     * 仓库还没有任何提交时与空树比较。
+     */
+    public List<FileChange> getStagedChanges(File projectDir) throws Exception {
+        List<FileChange> changes = new ArrayList<>();
+        open(projectDir);
+
+        ObjectId headId = repository.resolve("HEAD");
+
+        metrics.time("Git 差异", () -> {
+            try (RevWalk walk = new RevWalk(blobLoader.getReader());
+                 DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                AbstractTreeIterator headTree;
+                if (headId != null) {
+                    RevCommit headCommit = walk.parseCommit(headId);
+                    reviewedHead = headCommit.copy();
+                    headTree = new CanonicalTreeParser(null, blobLoader.getReader(), headCommit.getTree());
+                } else {
+                    reviewedHead = null;
+                    headTree = new EmptyTreeIterator();
                 }
+
+                formatter.setReader(blobLoader.getReader(), repository.getConfig());
+                formatter.setPathFilter(createPathFilter(relativePath(projectDir)));
+                formatter.setDetectRenames(detectRenames);
+                if (detectRenames) {
+                    formatter.getRenameDetector().setRenameLimit(renameLimit);
+                }
+                DirCacheIterator index = new DirCacheIterator(repository.readDirCache());
+                collectChanges(formatter, formatter.scan(headTree, index), changes);
             }
-        }
+        });
 
+        // 只读取对象大小，内容由分析流水线按需读入，见 contentSource()
+        metrics.time("读取对象大小", () -> blobLoader.attach(changes));
         return changes;
     }
 
-    private FileChange createFileChange(File projectDir, DiffEntry diff) {
-        try {
+    /**
+     * HEAD 中匹配包含/排除模式的全部文件，按新增处理，用于生成基线。
+     * 不预取内容，调用方按批通过 {@link #loadContents} 读取，避免整个仓库的内容同时驻留内存。
+     */
+    public List<FileChange> getAllFiles(File projectDir) throws Exception {
+        List<FileChange> changes = new ArrayList<>();
+        open(projectDir);
+
+        ObjectId headId = repository.resolve("HEAD");
+        if (headId == null) {
+            return changes;
+        }
+        metrics.time("Git 差异", () -> {
+            try (RevWalk walk = new RevWalk(blobLoader.getReader());
+                 DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                RevCommit headCommit = walk.parseCommit(headId);
+                reviewedHead = headCommit.copy();
+                formatter.setReader(blobLoader.getReader(), repository.getConfig());
+                formatter.setPathFilter(createPathFilter(relativePath(projectDir)));
+                AbstractTreeIterator headTree = new CanonicalTreeParser(null, blobLoader.getReader(), headCommit.getTree());
+                collectChanges(formatter, formatter.scan(new EmptyTreeIterator(), headTree), changes);
+            }
+        });
+        return changes;
+    }
+
+    private void collectChanges(DiffFormatter formatter, List<DiffEntry> diffs, List<FileChange> changes)
+            throws IOException {
+        for (DiffEntry diff : diffs) {
             String filePath = diff.getNewPath();
             if (filePath.equals("/dev/null")) {
                 filePath = diff.getOldPath();
             }
 
-            File file = new File(projectDir, filePath);
-            String content = "";
+            // 只处理Java文件
+            if (filePath.endsWith(".java")) {
+                FileChange change = createFileChange(diff);
+                if (changedLinesOnly && diff.getChangeType() != DiffEntry.ChangeType.ADD
+                        && diff.getChangeType() != DiffEntry.ChangeType.DELETE) {
+                    change.setEditList(formatter.toFileHeader(diff).toEditList());
+                }
+                changes.add(change);
+            }
+        }
+    }
 
-            if (file.exists() && diff.getChangeType() != DiffEntry.ChangeType.DELETE) {
-                content = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+    // 按 blob id 重新读取文件内容，用于合并分片结果等只保存了 blob id 的场景
+    public void loadContents(File projectDir, List<FileChange> changes) throws Exception {
+        open(projectDir);
+        metrics.time("预取内容", () -> blobLoader.load(changes));
+    }
+
+    /**
+     * 只读取有问题且尚未加载内容的文件，供只保存了 blob id 的结果（增量评审沿用的文件、合并的分片结果）
+     * 计算基线指纹，没有问题的文件不需要内容。
+     */
+    public void loadIssueContents(File projectDir, ReviewResult result) throws Exception {
+        IssueStore issues = result.getIssueStore();
+        Set<String> withIssues = new HashSet<>();
+        for (int file = 0; file < issues.fileCount(); file++) {
+            withIssues.add(issues.fileName(file));
+        }
+        List<FileChange> missing = new ArrayList<>();
+        for (FileChange change : result.getFileChanges()) {
+            if (change.getBlobId() != null && change.getContentLength() == 0
+                    && withIssues.contains(change.getFilePath())) {
+                missing.add(change);
             }
+        }
+        if (!missing.isEmpty()) {
+            loadContents(projectDir, missing);
+        }
+    }
 
-            FileChange change = new FileChange();
-            change.setFilePath(filePath);
-            change.setChangeType(diff.getChangeType().name());
-            change.setContent(content);
+    // 供 CodeAnalyzer 在分析前读入、分析后释放变更文件的内容，需在 getChangedFiles / getStagedChanges 之后调用
+    public ContentSource contentSource() {
+        return blobLoader.contentSource();
+    }
+
+    // 两个提交的合并基点，没有共同祖先时退回基线提交本身
+    private static RevCommit mergeBase(RevWalk walk, RevCommit base, RevCommit head) throws IOException {
+        walk.setRevFilter(RevFilter.MERGE_BASE);
+        walk.markStart(base);
+        walk.markStart(head);
+        RevCommit mergeBase = walk.next();
+        walk.reset();
+        walk.setRevFilter(RevFilter.ALL);
+        return mergeBase != null ? walk.parseCommit(mergeBase) : base;
+    }
+
+    // 最近一次 getChangedFiles / getStagedChanges 比较的 HEAD 提交 id
+    public String getReviewedHead() {
+        return reviewedHead != null ? reviewedHead.name() : null;
+    }
+
+    // 最近一次 getChangedFiles 实际比较的基线提交（开启 useMergeBase 时为合并基点）
+    public String getReviewedBase() {
+        return reviewedBase != null ? reviewedBase.name() : null;
+    }
 
-            return change;
+    // 路径是否存在于最近一次评审的 HEAD 提交中
+    public boolean existsAtHead(String path) throws IOException {
+        if (reviewedHead == null) {
+            return false;
+        }
+        try (RevWalk walk = new RevWalk(blobLoader.getReader());
+             TreeWalk treeWalk = TreeWalk.forPath(blobLoader.getReader(), path, walk.parseCommit(reviewedHead).getTree())) {
+            return treeWalk != null;
+        }
+    }
 
-        } catch (Exception e) {
-            System.err.println("处理文件变更失败: " + e.getMessage());
+    /**
+     * 工作区内容相对于最近一次评审比较的基线（评审暂存区时为 HEAD）的编辑区间，与 getChangedFiles 使用相同的
+     * diff 算法，监听模式下重新分析的文件与首次评审按同样的范围检查。
+     * 未开启只检查变更行或基线中没有 basePath 时返回 null，与新增文件一样检查整个文件。
+     */
+    public EditList editListAgainstBase(String basePath, byte[] content) throws IOException {
+        ObjectId commit = reviewedBase != null ? reviewedBase : reviewedHead;
+        if (!changedLinesOnly || commit == null || basePath == null) {
             return null;
         }
+        ObjectReader reader = blobLoader.getReader();
+        try (RevWalk walk = new RevWalk(reader);
+             TreeWalk treeWalk = TreeWalk.forPath(reader, basePath, walk.parseCommit(commit).getTree())) {
+            if (treeWalk == null) {
+                return null;
+            }
+            byte[] base = reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+            DiffAlgorithm algorithm = DiffAlgorithm.getAlgorithm(repository.getConfig().getEnum(
+                    ConfigConstants.CONFIG_DIFF_SECTION, null, ConfigConstants.CONFIG_KEY_ALGORITHM,
+                    DiffAlgorithm.SupportedAlgorithm.HISTOGRAM));
+            return algorithm.diff(RawTextComparator.DEFAULT, new RawText(base), new RawText(content));
+        }
+    }
+
+    // commitId 是否存在且是当前 HEAD 的祖先；分支被改写（rebase、强制推送）后返回 false
+    public boolean isAncestorOfHead(File projectDir, String commitId) throws Exception {
+        open(projectDir);
+        ObjectId commit = repository.resolve(commitId);
+        ObjectId head = repository.resolve("HEAD");
+        if (commit == null || head == null) {
+            return false;
+        }
+        try (RevWalk walk = new RevWalk(repository)) {
+            return walk.isMergedInto(walk.parseCommit(commit), walk.parseCommit(head));
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            return false;
+        }
+    }
+
+    private TreeFilter createPathFilter(String prefix) {
+        TreeFilter patterns = PathPatternFilter.create(prefix, includePatterns, excludePatterns);
+        if (prefix.isEmpty()) {
+            return patterns;
+        }
+        // 只比较项目目录下的子树，模块位于仓库子目录时无需遍历整个仓库
+        TreeFilter subtree = PathFilter.create(prefix);
+        return patterns == TreeFilter.ALL ? subtree : AndTreeFilter.create(subtree, patterns);
+    }
+
+    private void open(File projectDir) throws Exception {
+        if (repository != null) {
+            return;
+        }
+        // 从项目目录向上查找仓库，项目可能是仓库中的嵌套模块
+        FileRepositoryBuilder builder = new FileRepositoryBuilder()
+                .readEnvironment()
+                .findGitDir(projectDir.getAbsoluteFile());
+        if (builder.getGitDir() == null) {
+            throw new IllegalArgumentException("找不到 Git 仓库: " + projectDir.getAbsolutePath());
+        }
+        repository = builder.build();
+        blobLoader = new GitBlobLoader(repository);
+    }
+
+    // 仓库工作区根目录，需在 getChangedFiles 之后调用
+    public File getWorkTree() {
+        return repository.getWorkTree();
+    }
+
+    // 目录相对于仓库根目录的路径（使用 / 分隔），目录就是根目录时返回空串
+    public String relativePath(File directory) {
+        Path root = canonical(repository.getWorkTree());
+        Path path = canonical(directory);
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("目录不在仓库内: " + directory.getAbsolutePath());
+        }
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static Path canonical(File file) {
+        try {
+            return file.toPath().toRealPath();
+        } catch (IOException e) {
+            return file.toPath().toAbsolutePath().normalize();
+        }
+    }
+
+    private FileChange createFileChange(DiffEntry diff) {
+        String filePath = diff.getNewPath();
+        if (filePath.equals("/dev/null")) {
+            filePath = diff.getOldPath();
+        }
+
+        FileChange change = new FileChange();
+        change.setFilePath(filePath);
+        change.setChangeType(diff.getChangeType().name());
+        if (!diff.getOldPath().equals(DiffEntry.DEV_NULL)) {
+            change.setOldPath(diff.getOldPath());
+        }
+        change.setContent("");
+
+        // 内容取自被评审提交中的 blob，而不是工作区文件
+        if (diff.getChangeType() != DiffEntry.ChangeType.DELETE) {
+            change.setBlobId(diff.getNewId().toObjectId().name());
+        }
+
+        return change;
+    }
+
+    @Override
+    public void close() {
+        if (blobLoader != null) {
+            blobLoader.close();
+            blobLoader = null;
+        }
+        if (repository != null) {
+            repository.close();
+            repository = null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.ReviewState;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 增量评审：读取和保存 {@link ReviewState}。变更列表始终是基线与 HEAD 的完整差异（与完整评审相同），
+ * 基线提交不变时，路径、变更类型和 blob 都与上次相同的文件内容和编辑区间都不变，沿用保存的问题，只重新分析其余文件。
+ * 这样只检查变更行时问题仍以基线为准，基线分支合并进来的文件也不会被当作本分支的变更。
+ */
+public class IncrementalReview {
+
+    public static final String STATE_FILE = "review-state.bin";
+
+    // 状态文件不存在、版本不符或已损坏时返回 null，按完整评审处理
+    public ReviewState load(File stateFile) {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            BinaryResultFormat.Contents contents = BinaryResultFormat.read(stateFile);
+            Map<String, String> attributes = contents.getAttributes();
+            if (!String.valueOf(ReviewState.CURRENT_VERSION).equals(attributes.get("version"))
+                    || attributes.get("commit") == null) {
+                return null;
+            }
+            ReviewResult result = contents.getResult();
+            ReviewState state = new ReviewState();
+            state.setCommit(attributes.get("commit"));
+            state.setBase(attributes.get("base"));
+            state.setOptions(attributes.get("options"));
+            state.setReviewedAt(attributes.get("reviewedAt"));
+            state.setTotalIssues(result.getTotalIssues());
+            state.setCriticalIssues(result.getCriticalIssues());
+            state.setWarningIssues(result.getWarningIssues());
+            state.setInfoIssues(result.getInfoIssues());
+            List<ReviewState.FileEntry> files = new ArrayList<>(result.getFileChanges().size());
+            for (FileChange change : result.getFileChanges()) {
+                files.add(new ReviewState.FileEntry(change.getFilePath(), change.getChangeType(), change.getBlobId()));
+            }
+            state.setFiles(files);
+            state.setIssues(result.getIssues());
+            return state;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // 状态以二进制结果格式保存，提交、选项等写在附加属性中
+    public void save(File stateFile, String commit, String base, String options, ReviewResult result)
+            throws IOException {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("version", String.valueOf(ReviewState.CURRENT_VERSION));
+        attributes.put("commit", commit);
+        attributes.put("base", base);
+        attributes.put("options", options);
+        attributes.put("reviewedAt", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        BinaryResultFormat.write(stateFile, result, attributes);
+    }
+
+    // 基线分支前进或合并进来后编辑区间相对的基线不同，保存的问题不能沿用，应按完整评审处理
+    public boolean baseChanged(ReviewState previous, String base) {
+        return !Objects.equals(previous.getBase(), base);
+    }
+
+    /**
+     * 需要重新分析的文件：上次没有、路径对应的变更类型与 blob 已变化，或上次超出时间预算只有部分结果的文件。
+     * 调用方需先用 {@link #baseChanged} 确认基线提交与上次相同，否则编辑区间可能变化。
+     */
+    public List<FileChange> changedSince(ReviewState previous, List<FileChange> changes) {
+        Map<String, ReviewState.FileEntry> entries = new HashMap<>();
+        for (ReviewState.FileEntry entry : previous.getFiles()) {
+            entries.put(entry.getPath(), entry);
+        }
+        Set<String> truncated = new HashSet<>();
+        for (CodeIssue issue : previous.getIssues()) {
+            if (CodeAnalyzer.isBudgetExceeded(issue)) {
+                truncated.add(issue.getFileName());
+            }
+        }
+        List<FileChange> changed = new ArrayList<>();
+        for (FileChange change : changes) {
+            ReviewState.FileEntry entry = entries.get(change.getFilePath());
+            if (entry == null || !Objects.equals(entry.getChangeType(), change.getChangeType())
+                    || !Objects.equals(entry.getBlobId(), change.getBlobId())
+                    || truncated.contains(change.getFilePath())) {
+                changed.add(change);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param previous 上次保存的状态
+     * @param changes  基线与 HEAD 之间的完整变更列表
+     * @param delta    对 {@link #changedSince} 返回的文件的分析结果
+     * @return 与完整评审相同顺序的结果：重新分析的文件采用新问题，其余文件沿用保存的问题
+     */
+    public ReviewResult merge(ReviewState previous, List<FileChange> changes, List<FileChange> analyzed,
+                              ReviewResult delta) {
+        Set<String> analyzedPaths = new HashSet<>();
+        for (FileChange change : analyzed) {
+            analyzedPaths.add(change.getFilePath());
+        }
+
+        Map<String, List<CodeIssue>> issuesByFile = new HashMap<>();
+        for (CodeIssue issue : previous.getIssues()) {
+            if (!analyzedPaths.contains(issue.getFileName())) {
+                issuesByFile.computeIfAbsent(issue.getFileName(), key -> new ArrayList<>()).add(issue);
+            }
+        }
+        IssueStore deltaIssues = delta.getIssueStore();
+        for (int i = 0; i < deltaIssues.size(); i++) {
+            CodeIssue issue = deltaIssues.get(i);
+            issuesByFile.computeIfAbsent(issue.getFileName(), key -> new ArrayList<>()).add(issue);
+        }
+
+        // 已不在差异中的文件（改回与基线相同）连同问题一起去掉
+        IssueStore merged = new IssueStore();
+        for (FileChange change : changes) {
+            List<CodeIssue> fileIssues = issuesByFile.get(change.getFilePath());
+            if (fileIssues != null) {
+                merged.addAll(fileIssues);
+            }
+        }
+
+        ReviewResult result = new ReviewResult();
+        result.setFileChanges(changes);
+        result.setIssueStore(merged);
+        result.setCancelled(delta.isCancelled());
+        result.setSkippedFiles(delta.getSkippedFiles());
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.LineStream;
+import com.codereviewer.model.ReviewResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 问题的稳定指纹：规则 id、文件路径、问题所在行去掉空白后的内容，以及同一文件中相同规则与行内容的出现序号。
+ * 不包含行号和消息文本，代码上下移动、重新缩进或方法行数变化后指纹不变。
+ */
+public final class IssueFingerprints {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 行内容只取开头这么多字符计算哈希
+    private static final int LINE_CHARS = 4096;
+
+    private IssueFingerprints() {
+    }
+
+    /**
+     * @return 与 result 中问题顺序一致的指纹；行内容按文件流式读取，只读取有问题的文件
+     */
+    public static long[] compute(ReviewResult result) {
+        IssueStore issues = result.getIssueStore();
+        Map<String, FileChange> files = new HashMap<>();
+        if (result.getFileChanges() != null) {
+            for (FileChange change : result.getFileChanges()) {
+                files.put(change.getFilePath(), change);
+            }
+        }
+
+        // 按文件收集问题下标，同一文件内保持原始顺序
+        int fileCount = issues.fileCount();
+        int[][] byFile = new int[fileCount][];
+        int[] counts = new int[fileCount];
+        for (int i = 0; i < issues.size(); i++) {
+            counts[issues.fileIndex(i)]++;
+        }
+        for (int f = 0; f < fileCount; f++) {
+            byFile[f] = new int[counts[f]];
+            counts[f] = 0;
+        }
+        for (int i = 0; i < issues.size(); i++) {
+            int f = issues.fileIndex(i);
+            byFile[f][counts[f]++] = i;
+        }
+
+        long[] fingerprints = new long[issues.size()];
+        for (int f = 0; f < fileCount; f++) {
+            if (byFile[f].length == 0) {
+                continue;
+            }
+            String path = issues.fileName(f);
+            int[] lines = new int[byFile[f].length];
+            for (int k = 0; k < lines.length; k++) {
+                lines[k] = issues.lineNumber(byFile[f][k]) - 1;
+            }
+            Map<Integer, Long> lineHashes = hashLines(files.get(path), lines);
+
+            Map<Long, Integer> occurrences = new HashMap<>();
+            for (int index : byFile[f]) {
+                long hash = mix(FNV_OFFSET, issues.rule(index).getRuleId());
+                hash = mix(hash, path);
+                hash = mix(hash, lineHashes.getOrDefault(issues.lineNumber(index) - 1, 0L));
+                int occurrence = occurrences.merge(hash, 1, Integer::sum);
+                fingerprints[index] = mix(hash, occurrence);
+            }
+        }
+        return fingerprints;
+    }
+
+    // 读取到最后一个需要的行为止，返回行下标到内容哈希的映射
+    private static Map<Integer, Long> hashLines(FileChange change, int[] lines) {
+        Map<Integer, Long> hashes = new HashMap<>();
+        if (change == null) {
+            return hashes;
+        }
+        int[] wanted = lines.clone();
+        Arrays.sort(wanted);
+        int last = wanted[wanted.length - 1];
+        try (ReadableByteChannel channel = change.openChannel()) {
+            LineStream.read(channel, LINE_CHARS, line -> {
+                int index = line.getIndex();
+                if (Arrays.binarySearch(wanted, index) >= 0) {
+                    hashes.put(index, hashNormalized(line.head()));
+                }
+                return index < last;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取文件内容失败: " + change.getFilePath(), e);
+        }
+        return hashes;
+    }
+
+    // 忽略全部空白字符，缩进和行内空格的调整不影响指纹
+    private static long hashNormalized(CharSequence line) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                hash ^= c;
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // 分隔符，避免 "ab"+"c" 与 "a"+"bc" 相同
+        hash ^= 0xff;
+        return hash * FNV_PRIME;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,298 @@
+package com.codereviewer.service;
+
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 把 Ant 风格的包含/排除模式（逗号分隔，如 "**&#47;*.java"、"**&#47;target/**"、"src/main/**"）
+ * 编译成 JGit 的 {@link TreeFilter}，在遍历树时直接跳过不可能命中的子树：
+ * <ul>
+ *     <li>目录被某个以 "/**" 结尾的排除模式整体覆盖时不再进入；</li>
+ *     <li>包含模式以固定目录开头时，不在该目录路径上的子树不再进入。</li>
+ * </ul>
+ * 常见形态（后缀、前缀、目录名）走快速路径，其余按段匹配 "**"、"*" 和 "?"。
+ * 模式相对于 basePath 匹配，basePath 为空时相对于仓库根目录。
+ */
+public final class PathPatternFilter extends TreeFilter {
+
+    private final String basePath;
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+
+    private PathPatternFilter(String basePath, List<Pattern> includes, List<Pattern> excludes) {
+        this.basePath = basePath;
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    /**
+     * @return 没有任何有效模式时返回 {@link TreeFilter#ALL}
+     */
+    public static TreeFilter create(String basePath, String includePatterns, String excludePatterns) {
+        List<Pattern> includes = parse(includePatterns);
+        List<Pattern> excludes = parse(excludePatterns);
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return TreeFilter.ALL;
+        }
+        return new PathPatternFilter(basePath == null ? "" : basePath, includes, excludes);
+    }
+
+    // 在树遍历之外使用同一套模式判断单个文件路径，路径相对于模式的基准目录
+    public static Predicate<String> matcher(String includePatterns, String excludePatterns) {
+        List<Pattern> includes = parse(includePatterns);
+        List<Pattern> excludes = parse(excludePatterns);
+        return path -> {
+            for (Pattern exclude : excludes) {
+                if (exclude.matches(path)) {
+                    return false;
+                }
+            }
+            if (includes.isEmpty()) {
+                return true;
+            }
+            for (Pattern include : includes) {
+                if (include.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static List<Pattern> parse(String patterns) {
+        List<Pattern> parsed = new ArrayList<>();
+        if (patterns == null) {
+            return parsed;
+        }
+        for (String pattern : patterns.split(",")) {
+            String trimmed = pattern.trim().replace('\\', '/');
+            if (!trimmed.isEmpty()) {
+                parsed.add(new Pattern(trimmed));
+            }
+        }
+        return parsed;
+    }
+
+    @Override
+    public boolean include(TreeWalk walker) {
+        String path = walker.getPathString();
+        String relative;
+        if (basePath.isEmpty()) {
+            relative = path;
+        } else if (path.length() > basePath.length() && path.startsWith(basePath) && path.charAt(basePath.length()) == '/') {
+            relative = path.substring(basePath.length() + 1);
+        } else {
+            // basePath 的上级目录或 basePath 本身，交给外层的 PathFilter 判断
+            return true;
+        }
+
+        if (walker.isSubtree()) {
+            return includeDirectory(relative);
+        }
+        for (Pattern exclude : excludes) {
+            if (exclude.matches(relative)) {
+                return false;
+            }
+        }
+        if (includes.isEmpty()) {
+            return true;
+        }
+        for (Pattern include : includes) {
+            if (include.matches(relative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean includeDirectory(String directory) {
+        for (Pattern exclude : excludes) {
+            if (exclude.excludesDirectory(directory)) {
+                return false;
+            }
+        }
+        if (includes.isEmpty()) {
+            return true;
+        }
+        for (Pattern include : includes) {
+            if (include.mayMatchUnder(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean shouldBeRecursive() {
+        return true;
+    }
+
+    @Override
+    public TreeFilter clone() {
+        return this; // 无状态，可以共享
+    }
+
+    @Override
+    public String toString() {
+        return "PathPatternFilter[includes=" + includes + ", excludes=" + excludes + "]";
+    }
+
+    // 单个 Ant 模式
+    static final class Pattern {
+        private static final int SUFFIX = 1;      // **/*.ext
+        private static final int PREFIX = 2;      // dir/sub/**
+        private static final int DIRECTORY = 3;   // **/name/**
+        private static final int GLOB = 4;
+
+        private final String text;
+        private final String[] segments;
+        private final int kind;
+        private final String literal;             // 快速路径使用的后缀、前缀或目录名
+        private final int literalPrefixSegments;  // 开头不含通配符的段数
+
+        Pattern(String pattern) {
+            String normalized = pattern.endsWith("/") ? pattern + "**" : pattern;
+            this.text = normalized;
+            this.segments = normalized.split("/");
+
+            int fixed = 0;
+            while (fixed < segments.length && !hasWildcard(segments[fixed])) {
+                fixed++;
+            }
+            this.literalPrefixSegments = fixed;
+
+            if (segments.length == 2 && segments[0].equals("**") && segments[1].startsWith("*")
+                    && !hasWildcard(segments[1].substring(1))) {
+                kind = SUFFIX;
+                literal = segments[1].substring(1);
+            } else if (fixed == segments.length - 1 && segments[fixed].equals("**")) {
+                kind = PREFIX;
+                literal = normalized.substring(0, normalized.length() - 2);
+            } else if (segments.length == 3 && segments[0].equals("**") && segments[2].equals("**")
+                    && !hasWildcard(segments[1])) {
+                kind = DIRECTORY;
+                literal = segments[1];
+            } else {
+                kind = GLOB;
+                literal = null;
+            }
+        }
+
+        boolean matches(String path) {
+            switch (kind) {
+                case SUFFIX:
+                    return path.endsWith(literal);
+                case PREFIX:
+                    return path.startsWith(literal);
+                case DIRECTORY:
+                    return path.startsWith(literal + "/") || path.contains("/" + literal + "/");
+                default:
+                    return matchSegments(segments, 0, path.split("/"), 0);
+            }
+        }
+
+        // 模式是否覆盖目录下的所有路径，即形如 "...&#47;**" 且前面部分匹配该目录
+        boolean excludesDirectory(String directory) {
+            if (segments.length < 2 || !segments[segments.length - 1].equals("**")) {
+                return false;
+            }
+            switch (kind) {
+                case PREFIX:
+                    return (directory + "/").startsWith(literal);
+                case DIRECTORY:
+                    return directory.equals(literal) || directory.endsWith("/" + literal);
+                default:
+                    String[] head = new String[segments.length - 1];
+                    System.arraycopy(segments, 0, head, 0, head.length);
+                    return matchSegments(head, 0, directory.split("/"), 0);
+            }
+        }
+
+        // 目录下是否可能存在匹配的路径：只比较模式开头的固定段
+        boolean mayMatchUnder(String directory) {
+            String[] dirSegments = directory.split("/");
+            int common = Math.min(dirSegments.length, literalPrefixSegments);
+            for (int i = 0; i < common; i++) {
+                if (!segments[i].equals(dirSegments[i])) {
+                    return false;
+                }
+            }
+            // 固定段已用完而模式只剩单个文件名段时，更深的目录不可能匹配
+            return dirSegments.length < segments.length || containsDoubleStar();
+        }
+
+        private boolean containsDoubleStar() {
+            for (String segment : segments) {
+                if (segment.equals("**")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean hasWildcard(String segment) {
+            return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+        }
+
+        private static boolean matchSegments(String[] pattern, int p, String[] path, int s) {
+            while (p < pattern.length) {
+                if (pattern[p].equals("**")) {
+                    // 连续的 ** 等价于一个
+                    while (p + 1 < pattern.length && pattern[p + 1].equals("**")) {
+                        p++;
+                    }
+                    if (p == pattern.length - 1) {
+                        return true;
+                    }
+                    for (int i = s; i <= path.length; i++) {
+                        if (matchSegments(pattern, p + 1, path, i)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (s >= path.length || !matchSegment(pattern[p], path[s])) {
+                    return false;
+                }
+                p++;
+                s++;
+            }
+            return s == path.length;
+        }
+
+        // 段内的 * 与 ? 匹配，使用回溯到最近一个 * 的线性算法
+        private static boolean matchSegment(String pattern, String text) {
+            int p = 0;
+            int t = 0;
+            int star = -1;
+            int mark = 0;
+            while (t < text.length()) {
+                if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+                    p++;
+                    t++;
+                } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                    star = p++;
+                    mark = t;
+                } else if (star >= 0) {
+                    p = star + 1;
+                    t = ++mark;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pattern.length() && pattern.charAt(p) == '*') {
+                p++;
+            }
+            return p == pattern.length();
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
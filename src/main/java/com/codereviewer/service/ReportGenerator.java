@@ -2,114 +2,326 @@ package com.codereviewer.service;
 
 import com.codereviewer.model.CodeIssue;
 import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
 import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.Severity;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * 生成 HTML、JSON 和 Markdown 三种报告。各报告以流的方式直接写入 UTF-8 文件，
+ * 问题只按文件分组一次并在三种格式间共享，三种格式并行生成。
+ * 开启 {@link #setBinaryResult(boolean)} 时还会写出 {@link BinaryResultFormat} 格式的结果。
+ */
 public class ReportGenerator {
 
+    // HTML 报告的分块数据目录（相对于报告目录）
+    public static final String HTML_DATA_DIR = "code-review-report-files";
+
+    // 每个分块文件包含的问题数
+    private static final int HTML_CHUNK_SIZE = 2000;
+
+    // 问题编码（规则下标 * 3 + 级别）加上该偏移后写成一个字符，避开需要转义的 ASCII 字符
+    private static final int HTML_CODE_OFFSET = 0x100;
+
+    // 二进制结果文件名，见 BinaryResultFormat
+    public static final String BINARY_RESULT_FILE = "code-review-result.bin";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private boolean prettyJson;
+    private boolean binaryResult;
+
+    // JSON 报告是否缩进排版，默认紧凑输出
+    public void setPrettyJson(boolean prettyJson) {
+        this.prettyJson = prettyJson;
+    }
+
+    // 是否同时写出二进制结果
+    public void setBinaryResult(boolean binaryResult) {
+        this.binaryResult = binaryResult;
+    }
 
     public void generateReport(ReviewResult result, File outputDir) throws IOException {
         if (!outputDir.exists()) {
             outputDir.mkdirs();
         }
 
-        // 生成HTML报告
-        generateHtmlReport(result, outputDir);
+        ReportModel model = new ReportModel(result);
+        File binaryFile = new File(outputDir, BINARY_RESULT_FILE);
+        ExecutorService executor = Executors.newFixedThreadPool(binaryResult ? 4 : 3);
+        try {
+            CompletableFuture.allOf(
+                    // 生成HTML报告
+                    CompletableFuture.runAsync(() -> write(() -> generateHtmlReport(model, outputDir)), executor),
+                    // 生成JSON报告
+                    CompletableFuture.runAsync(() -> write(() -> generateJsonReport(model, outputDir)), executor),
+                    // 生成Markdown报告
+                    CompletableFuture.runAsync(() -> write(() -> generateMarkdownReport(model, outputDir)), executor),
+                    // 二进制结果，未开启时删除旧文件
+                    CompletableFuture.runAsync(() -> write(() -> {
+                        if (binaryResult) {
+                            BinaryResultFormat.write(binaryFile, result);
+                        } else {
+                            Files.deleteIfExists(binaryFile.toPath());
+                        }
+                    }), executor)
+            ).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
 
-        // 生成JSON报告
-        generateJsonReport(result, outputDir);
+    /**
+     * 质量门限未通过时只写 JSON 报告：统计数字、失败原因和严重/一般问题，跳过 HTML 与 Markdown，
+     * 并删除上次运行留下的这两种报告，避免与本次结果不一致。
+     */
+    public void generateMinimalReport(ReviewResult result, File outputDir, String reason) throws IOException {
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+        Files.deleteIfExists(new File(outputDir, "code-review-report.html").toPath());
+        deleteHtmlData(outputDir);
+        Files.deleteIfExists(new File(outputDir, "code-review-report.md").toPath());
+        Files.deleteIfExists(new File(outputDir, BINARY_RESULT_FILE).toPath());
 
-        // 生成Markdown报告
-        generateMarkdownReport(result, outputDir);
+        File jsonFile = new File(outputDir, "code-review-report.json");
+        IssueStore store = result.getIssueStore();
+        try (JsonGenerator json = createJsonGenerator(jsonFile)) {
+            json.writeStartObject();
+            json.writeStringField("qualityGate", reason);
+            json.writeBooleanField("cancelled", result.isCancelled());
+            json.writeNumberField("analyzedFiles", result.getFileChanges().size());
+            json.writeNumberField("skippedFiles", result.getSkippedFiles());
+
+            json.writeArrayFieldStart("issues");
+            ObjectWriter issueWriter = objectMapper.writerFor(CodeIssue.class);
+            for (int i = 0; i < store.size(); i++) {
+                if (store.rule(i).getSeverity() != Severity.INFO) {
+                    issueWriter.writeValue(json, store.get(i));
+                }
+            }
+            json.writeEndArray();
+
+            json.writeNumberField("totalIssues", result.getTotalIssues());
+            json.writeNumberField("criticalIssues", result.getCriticalIssues());
+            json.writeNumberField("warningIssues", result.getWarningIssues());
+            json.writeNumberField("infoIssues", result.getInfoIssues());
+            json.writeEndObject();
+        }
+    }
+
+    private void write(ReportTask task) {
+        try {
+            task.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    private void generateHtmlReport(ReviewResult result, File outputDir) throws IOException {
+    /**
+     * HTML 报告分为三部分：首页只包含统计数字、过滤控件和脚本；文件表和每个问题的规则/级别编码写在
+     * code-review-report-files/index.js 中；问题详情按 {@link #HTML_CHUNK_SIZE} 个一组写成 issues-&lt;n&gt;.js，
+     * 滚动到时才加载。数据以脚本而不是 JSON 的形式提供，从本地文件直接打开时也不受跨域限制。
+     * 文件表和问题列表都只渲染可见的行，首页的加载时间与问题数无关。
+     */
+    private void generateHtmlReport(ReportModel model, File outputDir) throws IOException {
+        File dataDir = new File(outputDir, HTML_DATA_DIR);
+        deleteHtmlData(outputDir);
+        dataDir.mkdirs();
+        writeHtmlIndex(model, dataDir);
+        writeHtmlChunks(model, dataDir);
+
         File htmlFile = new File(outputDir, "code-review-report.html");
+        try (Writer html = Files.newBufferedWriter(htmlFile.toPath(), StandardCharsets.UTF_8)) {
+            html.write("<!DOCTYPE html>\n");
+            html.write("<html lang='zh-CN'>\n");
+            html.write("<head>\n");
+            html.write("    <meta charset='UTF-8'>\n");
+            html.write("    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n");
+            html.write("    <title>代码评审报告</title>\n");
+            html.write("    <style>\n");
+            html.write(getHtmlStyles());
+            html.write("    </style>\n");
+            html.write("</head>\n");
+            html.write("<body>\n");
 
-        StringBuilder html = new StringBuilder();
-        html.append("<!DOCTYPE html>\n")
-                .append("<html lang='zh-CN'>\n")
-                .append("<head>\n")
-                .append("    <meta charset='UTF-8'>\n")
-                .append("    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n")
-                .append("    <title>代码评审报告</title>\n")
-                .append("    <style>\n")
-                .append(getHtmlStyles())
-                .append("    </style>\n")
-                .append("</head>\n")
-                .append("<body>\n");
-
-        // 报告头部
-        html.append("    <div class='header'>\n")
-                .append("        <h1>代码评审报告</h1>\n")
-                .append("        <p>生成时间: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())).append("</p>\n")
-                .append("    </div>\n");
-
-        // 统计信息
-        html.append("    <div class='summary'>\n")
-                .append("        <h2>评审统计</h2>\n")
-                .append("        <div class='stats'>\n")
-                .append("            <div class='stat-item critical'>严重问题: ").append(result.getCriticalIssues()).append("</div>\n")
-                .append("            <div class='stat-item warning'>警告问题: ").append(result.getWarningIssues()).append("</div>\n")
-                .append("            <div class='stat-item info'>建议优化: ").append(result.getInfoIssues()).append("</div>\n")
-                .append("            <div class='stat-item total'>总计: ").append(result.getTotalIssues()).append("</div>\n")
-                .append("        </div>\n")
-                .append("    </div>\n");
-
-        // 文件变更列表
-        html.append("    <div class='file-changes'>\n")
-                .append("        <h2>文件变更 (").append(result.getFileChanges().size()).append(" 个文件)</h2>\n")
-                .append("        <ul>\n");
-        for (FileChange change : result.getFileChanges()) {
-            html.append("            <li><span class='change-type ").append(change.getChangeType().toLowerCase()).append("'>")
-                    .append(change.getChangeType()).append("</span> ").append(change.getFilePath()).append("</li>\n");
-        }
-        html.append("        </ul>\n")
-                .append("    </div>\n");
-
-        // 问题详情
-        if (!result.getIssues().isEmpty()) {
-            html.append("    <div class='issues'>\n")
-                    .append("        <h2>问题详情</h2>\n");
-
-            Map<String, java.util.List<CodeIssue>> issuesByFile = result.getIssues().stream()
-                    .collect(Collectors.groupingBy(CodeIssue::getFileName));
-
-            for (Map.Entry<String, java.util.List<CodeIssue>> entry : issuesByFile.entrySet()) {
-                html.append("        <div class='file-section'>\n")
-                        .append("            <h3>").append(entry.getKey()).append("</h3>\n");
-
-                for (CodeIssue issue : entry.getValue()) {
-                    html.append("            <div class='issue ").append(issue.getSeverity().toLowerCase()).append("'>\n")
-                            .append("                <div class='issue-header'>\n")
-                            .append("                    <span class='severity'>").append(issue.getSeverity()).append("</span>\n")
-                            .append("                    <span class='rule-id'>").append(issue.getRuleId()).append("</span>\n")
-                            .append("                    <span class='line-number'>第 ").append(issue.getLineNumber()).append(" 行</span>\n")
-                            .append("                </div>\n")
-                            .append("                <div class='issue-message'>").append(issue.getMessage()).append("</div>\n");
-                    if (issue.getSuggestion() != null && !issue.getSuggestion().isEmpty()) {
-                        html.append("                <div class='issue-suggestion'><strong>建议:</strong> ").append(issue.getSuggestion()).append("</div>\n");
-                    }
-                    html.append("            </div>\n");
+            // 报告头部
+            html.write("    <div class='header'>\n");
+            html.write("        <h1>代码评审报告</h1>\n");
+            html.write("        <p>生成时间: " + model.generatedAt + "</p>\n");
+            html.write("    </div>\n");
+
+            // 统计信息
+            html.write("    <div class='summary'>\n");
+            html.write("        <h2>评审统计</h2>\n");
+            html.write("        <div class='stats'>\n");
+            html.write("            <div class='stat-item critical'>严重问题: " + model.criticalIssues + "</div>\n");
+            html.write("            <div class='stat-item warning'>警告问题: " + model.warningIssues + "</div>\n");
+            html.write("            <div class='stat-item info'>建议优化: " + model.infoIssues + "</div>\n");
+            html.write("            <div class='stat-item total'>总计: " + model.totalIssues + "</div>\n");
+            html.write("        </div>\n");
+            html.write("    </div>\n");
+
+            // 文件变更列表，点击文件只显示该文件的问题
+            html.write("    <div class='file-changes'>\n");
+            html.write("        <h2>文件变更 (" + model.fileChanges.size() + " 个文件)</h2>\n");
+            html.write("        <div class='table-head file-row'><span>类型</span><span>文件</span>"
+                    + "<span>严重</span><span>警告</span><span>建议</span></div>\n");
+            html.write("        <div id='files' class='viewport files'></div>\n");
+            html.write("    </div>\n");
+
+            // 问题详情
+            html.write("    <div class='issues'>\n");
+            html.write("        <h2>问题详情</h2>\n");
+            html.write("        <div class='filters'>\n");
+            html.write("            <label><input type='checkbox' class='severity-filter' value='0' checked> 严重</label>\n");
+            html.write("            <label><input type='checkbox' class='severity-filter' value='1' checked> 警告</label>\n");
+            html.write("            <label><input type='checkbox' class='severity-filter' value='2' checked> 建议</label>\n");
+            html.write("            <select id='rule-filter'><option value=''>全部规则</option></select>\n");
+            html.write("            <button id='file-filter' hidden></button>\n");
+            html.write("            <span id='shown'>加载中...</span>\n");
+            html.write("        </div>\n");
+            html.write("        <div id='issues' class='viewport issue-list'></div>\n");
+            html.write("    </div>\n");
+
+            html.write("    <script>\n");
+            html.write(getHtmlScript());
+            html.write("    </script>\n");
+            html.write("    <script src='" + HTML_DATA_DIR + "/index.js' charset='UTF-8'></script>\n");
+            html.write("</body>\n</html>");
+        }
+    }
+
+    // 文件表、规则表、按文件分组后每个问题的规则与级别编码（每个问题一个字符）
+    private void writeHtmlIndex(ReportModel model, File dataDir) throws IOException {
+        IssueStore issues = model.issues;
+        int fileCount = model.fileCount();
+        int[][] severityCounts = new int[fileCount][3];
+        Map<String, Integer> ruleIndexes = new LinkedHashMap<>();
+        StringBuilder codes = new StringBuilder(model.totalIssues);
+        for (int file = 0; file < fileCount; file++) {
+            for (int i = model.fileStart(file); i < model.fileStart(file + 1); i++) {
+                int index = model.fileOrder[i];
+                int severity = issues.rule(index).getSeverity().ordinal();
+                Integer rule = ruleIndexes.computeIfAbsent(issues.rule(index).getRuleId(), key -> ruleIndexes.size());
+                severityCounts[file][severity]++;
+                codes.append((char) (HTML_CODE_OFFSET + rule * 3 + severity));
+            }
+        }
+
+        File indexFile = new File(dataDir, "index.js");
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(indexFile, JsonEncoding.UTF8)) {
+            json.writeRaw("CodeReview.index(");
+            json.writeStartObject();
+            json.writeNumberField("chunkSize", HTML_CHUNK_SIZE);
+            json.writeNumberField("codeOffset", HTML_CODE_OFFSET);
+            json.writeArrayFieldStart("rules");
+            for (String rule : ruleIndexes.keySet()) {
+                json.writeString(rule);
+            }
+            json.writeEndArray();
+            json.writeStringField("codes", codes.toString());
+
+            // 问题按文件分组的顺序与每组的起始位置，用于从问题位置找到文件
+            Map<String, Integer> issueFiles = new HashMap<>();
+            json.writeArrayFieldStart("issueFiles");
+            for (int file = 0; file < fileCount; file++) {
+                json.writeString(model.fileName(file));
+                issueFiles.put(model.fileName(file), file);
+            }
+            json.writeEndArray();
+            json.writeArrayFieldStart("issueFileStarts");
+            for (int file = 0; file <= fileCount; file++) {
+                json.writeNumber(model.fileStart(file));
+            }
+            json.writeEndArray();
+
+            // 每行: [路径, 变更类型, 问题分组下标(-1 表示没有问题), 严重, 警告, 建议]
+            json.writeArrayFieldStart("files");
+            for (FileChange change : model.fileChanges) {
+                Integer file = issueFiles.remove(change.getFilePath());
+                writeHtmlFileRow(json, change.getFilePath(), change.getChangeType(), file, severityCounts);
+            }
+            // 不在变更列表中的文件（如增量评审中保留的旧问题）也列出
+            for (int file = 0; file < fileCount; file++) {
+                if (issueFiles.containsKey(model.fileName(file))) {
+                    writeHtmlFileRow(json, model.fileName(file), "", file, severityCounts);
                 }
-                html.append("        </div>\n");
             }
-            html.append("    </div>\n");
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw(");\n");
         }
+    }
 
-        html.append("</body>\n</html>");
+    private static void writeHtmlFileRow(JsonGenerator json, String path, String changeType, Integer file,
+                                         int[][] severityCounts) throws IOException {
+        json.writeStartArray();
+        json.writeString(path);
+        json.writeString(changeType);
+        json.writeNumber(file != null ? file : -1);
+        for (int severity = 0; severity < 3; severity++) {
+            json.writeNumber(file != null ? severityCounts[file][severity] : 0);
+        }
+        json.writeEndArray();
+    }
 
-        try (FileWriter writer = new FileWriter(htmlFile, Boolean.parseBoolean("UTF-8"))) {
-            writer.write(html.toString());
+    // 问题详情按分组后的顺序分块，每个问题: [行号, 消息, 建议]
+    private void writeHtmlChunks(ReportModel model, File dataDir) throws IOException {
+        int chunks = (model.totalIssues + HTML_CHUNK_SIZE - 1) / HTML_CHUNK_SIZE;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            File chunkFile = new File(dataDir, "issues-" + chunk + ".js");
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(chunkFile, JsonEncoding.UTF8)) {
+                json.writeRaw("CodeReview.chunk(" + chunk + ", ");
+                json.writeStartArray();
+                int end = Math.min(model.totalIssues, (chunk + 1) * HTML_CHUNK_SIZE);
+                for (int i = chunk * HTML_CHUNK_SIZE; i < end; i++) {
+                    CodeIssue issue = model.issueInFileOrder(i);
+                    json.writeStartArray();
+                    json.writeNumber(issue.getLineNumber());
+                    json.writeString(issue.getMessage());
+                    json.writeString(issue.getSuggestion() != null ? issue.getSuggestion() : "");
+                    json.writeEndArray();
+                }
+                json.writeEndArray();
+                json.writeRaw(");\n");
+            }
+        }
+    }
+
+    // 删除上次生成的分块数据，问题减少时不留下多余的文件
+    private static void deleteHtmlData(File outputDir) throws IOException {
+        File[] files = new File(outputDir, HTML_DATA_DIR).listFiles((dir, name) -> name.endsWith(".js"));
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
         }
     }
 
@@ -127,19 +339,28 @@ public class ReportGenerator {
             .stat-item.info { background: linear-gradient(135deg, #48dbfb, #0abde3); }
             .stat-item.total { background: linear-gradient(135deg, #1dd1a1, #10ac84); }
             .file-changes, .issues { background: white; padding: 20px; border-radius: 10px; margin-bottom: 20px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }
-            .file-changes ul { list-style: none; padding: 0; }
-            .file-changes li { padding: 8px 0; border-bottom: 1px solid #eee; }
+            .viewport { position: relative; overflow-y: auto; border: 1px solid #eee; border-radius: 6px; }
+            .viewport.files { max-height: 40vh; }
+            .viewport.issue-list { height: 70vh; }
+            .spacer { position: relative; }
+            .row { position: absolute; left: 0; right: 0; box-sizing: border-box; overflow: hidden; white-space: nowrap; text-overflow: ellipsis; }
+            .file-row { display: grid; grid-template-columns: 90px 1fr 60px 60px 60px; align-items: center; height: 32px; padding: 0 10px; border-bottom: 1px solid #eee; }
+            .file-row span { overflow: hidden; text-overflow: ellipsis; }
+            .files .file-row.has-issues { cursor: pointer; }
+            .files .file-row.has-issues:hover { background: #f4f6ff; }
+            .table-head { font-weight: bold; color: #555; }
+            .filters { display: flex; gap: 15px; align-items: center; flex-wrap: wrap; margin-bottom: 10px; }
+            #shown { color: #666; }
             .change-type { padding: 4px 8px; border-radius: 4px; font-size: 0.8em; font-weight: bold; margin-right: 10px; }
             .change-type.add { background: #d4edda; color: #155724; }
             .change-type.modify { background: #fff3cd; color: #856404; }
             .change-type.delete { background: #f8d7da; color: #721c24; }
-            .file-section { margin-bottom: 25px; }
-            .file-section h3 { color: #333; border-bottom: 2px solid #667eea; padding-bottom: 5px; }
-            .issue { border-left: 4px solid #ddd; padding: 15px; margin: 10px 0; border-radius: 0 8px 8px 0; }
+            .issue { height: 72px; border-left: 4px solid #ddd; border-bottom: 1px solid #fff; padding: 6px 12px; }
+            .issue div { overflow: hidden; text-overflow: ellipsis; }
             .issue.critical { border-left-color: #ff6b6b; background: #fff5f5; }
             .issue.warning { border-left-color: #feca57; background: #fffbf0; }
             .issue.info { border-left-color: #48dbfb; background: #f0fcff; }
-            .issue-header { display: flex; gap: 15px; margin-bottom: 8px; align-items: center; }
+            .issue-header { display: flex; gap: 15px; margin-bottom: 4px; align-items: center; }
             .severity { padding: 2px 8px; border-radius: 12px; font-size: 0.8em; font-weight: bold; }
             .issue.critical .severity { background: #ff6b6b; color: white; }
             .issue.warning .severity { background: #feca57; color: #333; }
@@ -151,60 +372,272 @@ public class ReportGenerator {
             """;
     }
 
-    private void generateJsonReport(ReviewResult result, File outputDir) throws IOException {
+    private String getHtmlScript() {
+        return """
+            var CodeReview = (function () {
+                var SEVERITIES = ['CRITICAL', 'WARNING', 'INFO'];
+                var FILE_ROW = 32, ISSUE_ROW = 72, OVERSCAN = 10;
+                var data, codes, filtered = new Int32Array(0), chunks = {}, requested = {}, fileFilter = -1;
+                var fileList, issueList;
+
+                // 只渲染可见范围内的行，行高固定
+                function virtualList(element, rowHeight, render) {
+                    var spacer = document.createElement('div');
+                    spacer.className = 'spacer';
+                    element.appendChild(spacer);
+                    var list = { count: 0 }, scheduled = false;
+                    list.refresh = function () {
+                        scheduled = false;
+                        spacer.style.height = (list.count * rowHeight) + 'px';
+                        var first = Math.max(0, Math.floor(element.scrollTop / rowHeight) - OVERSCAN);
+                        var last = Math.min(list.count,
+                            Math.ceil((element.scrollTop + element.clientHeight) / rowHeight) + OVERSCAN);
+                        spacer.textContent = '';
+                        for (var i = first; i < last; i++) {
+                            var row = render(i);
+                            row.style.top = (i * rowHeight) + 'px';
+                            spacer.appendChild(row);
+                        }
+                    };
+                    list.schedule = function () {
+                        if (!scheduled) {
+                            scheduled = true;
+                            requestAnimationFrame(list.refresh);
+                        }
+                    };
+                    element.addEventListener('scroll', list.schedule);
+                    return list;
+                }
+
+                function cell(tag, className, text) {
+                    var element = document.createElement(tag);
+                    if (className) {
+                        element.className = className;
+                    }
+                    element.textContent = text;
+                    return element;
+                }
+
+                function renderFile(i) {
+                    var file = data.files[i];
+                    var row = cell('div', 'row file-row' + (file[2] >= 0 ? ' has-issues' : ''), '');
+                    row.appendChild(cell('span', 'change-type ' + file[1].toLowerCase(), file[1]));
+                    row.appendChild(cell('span', '', file[0])).title = file[0];
+                    for (var s = 0; s < 3; s++) {
+                        row.appendChild(cell('span', '', file[3 + s] || ''));
+                    }
+                    if (file[2] >= 0) {
+                        row.onclick = function () { selectFile(file[2]); };
+                    }
+                    return row;
+                }
+
+                // 问题位置所属的文件分组
+                function fileOf(position) {
+                    var starts = data.issueFileStarts, low = 0, high = starts.length - 2;
+                    while (low < high) {
+                        var mid = (low + high + 1) >> 1;
+                        if (starts[mid] <= position) {
+                            low = mid;
+                        } else {
+                            high = mid - 1;
+                        }
+                    }
+                    return low;
+                }
+
+                function renderIssue(i) {
+                    var position = filtered[i], code = codes[position];
+                    var severity = SEVERITIES[code % 3], rule = data.rules[Math.floor(code / 3)];
+                    var row = cell('div', 'row issue ' + severity.toLowerCase(), '');
+                    var chunk = chunks[Math.floor(position / data.chunkSize)];
+                    var header = cell('div', 'issue-header', '');
+                    header.appendChild(cell('span', 'severity', severity));
+                    header.appendChild(cell('span', 'rule-id', rule));
+                    var location = data.issueFiles[fileOf(position)];
+                    if (!chunk) {
+                        load(Math.floor(position / data.chunkSize));
+                        header.appendChild(cell('span', 'line-number', location));
+                        row.appendChild(header);
+                        row.appendChild(cell('div', 'issue-message', '加载中...'));
+                        return row;
+                    }
+                    var issue = chunk[position % data.chunkSize];
+                    header.appendChild(cell('span', 'line-number', location + ' 第 ' + issue[0] + ' 行'));
+                    row.appendChild(header);
+                    row.appendChild(cell('div', 'issue-message', issue[1])).title = issue[1];
+                    if (issue[2]) {
+                        row.appendChild(cell('div', 'issue-suggestion', '建议: ' + issue[2])).title = issue[2];
+                    }
+                    return row;
+                }
+
+                function load(chunk) {
+                    if (requested[chunk]) {
+                        return;
+                    }
+                    requested[chunk] = true;
+                    var script = document.createElement('script');
+                    script.src = '{dataDir}/issues-' + chunk + '.js';
+                    script.charset = 'UTF-8';
+                    document.head.appendChild(script);
+                }
+
+                function selectFile(file) {
+                    fileFilter = file;
+                    var button = document.getElementById('file-filter');
+                    button.hidden = file < 0;
+                    button.textContent = file < 0 ? '' : data.issueFiles[file] + ' ✕';
+                    applyFilter();
+                    document.getElementById('issues').scrollIntoView();
+                }
+
+                function applyFilter() {
+                    var severities = [false, false, false];
+                    document.querySelectorAll('.severity-filter').forEach(function (box) {
+                        severities[box.value] = box.checked;
+                    });
+                    var rule = document.getElementById('rule-filter').value;
+                    var ruleIndex = rule === '' ? -1 : Number(rule);
+                    var from = 0, to = codes.length;
+                    if (fileFilter >= 0) {
+                        from = data.issueFileStarts[fileFilter];
+                        to = data.issueFileStarts[fileFilter + 1];
+                    }
+                    var result = new Int32Array(to - from), count = 0;
+                    for (var i = from; i < to; i++) {
+                        var code = codes[i];
+                        if (severities[code % 3] && (ruleIndex < 0 || Math.floor(code / 3) === ruleIndex)) {
+                            result[count++] = i;
+                        }
+                    }
+                    filtered = result.subarray(0, count);
+                    document.getElementById('shown').textContent = '显示 ' + count + ' / ' + codes.length + ' 个问题';
+                    issueList.count = count;
+                    document.getElementById('issues').scrollTop = 0;
+                    issueList.refresh();
+                }
+
+                return {
+                    index: function (index) {
+                        data = index;
+                        codes = new Uint16Array(index.codes.length);
+                        for (var i = 0; i < codes.length; i++) {
+                            codes[i] = index.codes.charCodeAt(i) - index.codeOffset;
+                        }
+                        var select = document.getElementById('rule-filter');
+                        index.rules.forEach(function (rule, i) {
+                            var option = cell('option', '', rule);
+                            option.value = i;
+                            select.appendChild(option);
+                        });
+                        fileList = virtualList(document.getElementById('files'), FILE_ROW, renderFile);
+                        issueList = virtualList(document.getElementById('issues'), ISSUE_ROW, renderIssue);
+                        fileList.count = index.files.length;
+                        fileList.refresh();
+                        document.querySelectorAll('.severity-filter').forEach(function (box) {
+                            box.onchange = applyFilter;
+                        });
+                        select.onchange = applyFilter;
+                        document.getElementById('file-filter').onclick = function () { selectFile(-1); };
+                        applyFilter();
+                    },
+                    chunk: function (chunk, issues) {
+                        chunks[chunk] = issues;
+                        issueList.schedule();
+                    }
+                };
+            })();
+            """.replace("{dataDir}", HTML_DATA_DIR);
+    }
+
+    /**
+     * 文件只记录路径、变更类型和 blob id，不包含内容；需要内容时按 blob id 从仓库读取。
+     */
+    private void generateJsonReport(ReportModel model, File outputDir) throws IOException {
         File jsonFile = new File(outputDir, "code-review-report.json");
-        objectMapper.writerWithDefaultPrettyPrinter().writeValue(jsonFile, result);
+
+        // 逐个写出文件与问题，不在内存中构建整份文档
+        try (JsonGenerator json = createJsonGenerator(jsonFile)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("fileChanges");
+            for (FileChange change : model.fileChanges) {
+                json.writeStartObject();
+                json.writeStringField("filePath", change.getFilePath());
+                json.writeStringField("changeType", change.getChangeType());
+                json.writeStringField("blobId", change.getBlobId());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("issues");
+            // 按声明类型序列化，存储视图与普通问题输出相同的字段
+            ObjectWriter issueWriter = objectMapper.writerFor(CodeIssue.class);
+            for (int i = 0; i < model.issues.size(); i++) {
+                issueWriter.writeValue(json, model.issues.get(i));
+            }
+            json.writeEndArray();
+
+            json.writeNumberField("totalIssues", model.totalIssues);
+            json.writeNumberField("criticalIssues", model.criticalIssues);
+            json.writeNumberField("warningIssues", model.warningIssues);
+            json.writeNumberField("infoIssues", model.infoIssues);
+            json.writeEndObject();
+        }
     }
 
-    private void generateMarkdownReport(ReviewResult result, File outputDir) throws IOException {
+    private JsonGenerator createJsonGenerator(File file) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(file, JsonEncoding.UTF8);
+        if (prettyJson) {
+            json.useDefaultPrettyPrinter();
+        }
+        return json;
+    }
+
+    private void generateMarkdownReport(ReportModel model, File outputDir) throws IOException {
         File mdFile = new File(outputDir, "code-review-report.md");
 
-        StringBuilder md = new StringBuilder();
-        md.append("# 代码评审报告\n\n");
-        md.append("**生成时间:** ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())).append("\n\n");
-
-        // 统计信息
-        md.append("## 评审统计\n\n");
-        md.append("| 类型 | 数量 |\n");
-        md.append("|------|------|\n");
-        md.append("| 严重问题 | ").append(result.getCriticalIssues()).append(" |\n");
-        md.append("| 警告问题 | ").append(result.getWarningIssues()).append(" |\n");
-        md.append("| 建议优化 | ").append(result.getInfoIssues()).append(" |\n");
-        md.append("| **总计** | **").append(result.getTotalIssues()).append("** |\n\n");
-
-        // 文件变更
-        md.append("## 文件变更 (").append(result.getFileChanges().size()).append(" 个文件)\n\n");
-        for (FileChange change : result.getFileChanges()) {
-            md.append("- **").append(change.getChangeType()).append("** `").append(change.getFilePath()).append("`\n");
-        }
-        md.append("\n");
-
-        // 问题详情
-        if (!result.getIssues().isEmpty()) {
-            md.append("## 问题详情\n\n");
-
-            Map<String, java.util.List<CodeIssue>> issuesByFile = result.getIssues().stream()
-                    .collect(Collectors.groupingBy(CodeIssue::getFileName));
-
-            for (Map.Entry<String, java.util.List<CodeIssue>> entry : issuesByFile.entrySet()) {
-                md.append("### ").append(entry.getKey()).append("\n\n");
-
-                for (CodeIssue issue : entry.getValue()) {
-                    String severityIcon = getSeverityIcon(issue.getSeverity());
-                    md.append("#### ").append(severityIcon).append(" ").append(issue.getSeverity())
-                            .append(" - ").append(issue.getRuleId()).append(" (第 ").append(issue.getLineNumber()).append(" 行)\n\n");
-                    md.append("**问题:** ").append(issue.getMessage()).append("\n\n");
-                    if (issue.getSuggestion() != null && !issue.getSuggestion().isEmpty()) {
-                        md.append("**建议:** ").append(issue.getSuggestion()).append("\n\n");
+        try (Writer md = Files.newBufferedWriter(mdFile.toPath(), StandardCharsets.UTF_8)) {
+            md.write("# 代码评审报告\n\n");
+            md.write("**生成时间:** " + model.generatedAt + "\n\n");
+
+            // 统计信息
+            md.write("## 评审统计\n\n");
+            md.write("| 类型 | 数量 |\n");
+            md.write("|------|------|\n");
+            md.write("| 严重问题 | " + model.criticalIssues + " |\n");
+            md.write("| 警告问题 | " + model.warningIssues + " |\n");
+            md.write("| 建议优化 | " + model.infoIssues + " |\n");
+            md.write("| **总计** | **" + model.totalIssues + "** |\n\n");
+
+            // 文件变更
+            md.write("## 文件变更 (" + model.fileChanges.size() + " 个文件)\n\n");
+            for (FileChange change : model.fileChanges) {
+                md.write("- **" + change.getChangeType() + "** `" + change.getFilePath() + "`\n");
+            }
+            md.write("\n");
+
+            // 问题详情
+            if (model.totalIssues > 0) {
+                md.write("## 问题详情\n\n");
+
+                for (int file = 0; file < model.fileCount(); file++) {
+                    md.write("### " + model.fileName(file) + "\n\n");
+
+                    for (int i = model.fileStart(file); i < model.fileStart(file + 1); i++) {
+                        CodeIssue issue = model.issueInFileOrder(i);
+                        String severityIcon = getSeverityIcon(issue.getSeverity());
+                        md.write("#### " + severityIcon + " " + issue.getSeverity()
+                                + " - " + issue.getRuleId() + " (第 " + issue.getLineNumber() + " 行)\n\n");
+                        md.write("**问题:** " + issue.getMessage() + "\n\n");
+                        if (issue.getSuggestion() != null && !issue.getSuggestion().isEmpty()) {
+                            md.write("**建议:** " + issue.getSuggestion() + "\n\n");
+                        }
+                        md.write("---\n\n");
                     }
-                    md.append("---\n\n");
                 }
             }
         }
-
-        try (FileWriter writer = new FileWriter(mdFile, Boolean.parseBoolean("UTF-8"))) {
-            writer.write(md.toString());
-        }
     }
 
     private String getSeverityIcon(String severity) {
@@ -215,4 +648,61 @@ public class ReportGenerator {
             default: return "📝";
         }
     }
-}
\ No newline at end of file
+
+    private interface ReportTask {
+        void run() throws IOException;
+    }
+
+    // 三种报告共享的数据：分组与统计只计算一次，分组只保存问题下标，问题视图在写出时才创建
+    private static final class ReportModel {
+        private final List<FileChange> fileChanges;
+        private final IssueStore issues;
+        private final int[] fileOrder;  // 按文件分组后的问题下标，组内保持原始顺序
+        private final int[] fileStarts; // 每个文件在 fileOrder 中的起始位置
+        private final int totalIssues;
+        private final long criticalIssues;
+        private final long warningIssues;
+        private final long infoIssues;
+        private final String generatedAt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+
+        private ReportModel(ReviewResult result) {
+            this.fileChanges = result.getFileChanges() != null ? result.getFileChanges() : new ArrayList<>();
+            this.issues = result.getIssueStore();
+            this.totalIssues = result.getTotalIssues();
+            this.criticalIssues = result.getCriticalIssues();
+            this.warningIssues = result.getWarningIssues();
+            this.infoIssues = result.getInfoIssues();
+
+            // 文件编号按首次出现顺序分配，计数排序即可得到稳定的分组
+            int size = issues.size();
+            this.fileStarts = new int[issues.fileCount() + 1];
+            for (int i = 0; i < size; i++) {
+                fileStarts[issues.fileIndex(i) + 1]++;
+            }
+            for (int file = 0; file < issues.fileCount(); file++) {
+                fileStarts[file + 1] += fileStarts[file];
+            }
+            this.fileOrder = new int[size];
+            int[] next = Arrays.copyOf(fileStarts, issues.fileCount());
+            for (int i = 0; i < size; i++) {
+                fileOrder[next[issues.fileIndex(i)]++] = i;
+            }
+        }
+
+        private int fileCount() {
+            return fileStarts.length - 1;
+        }
+
+        private String fileName(int file) {
+            return issues.fileName(file);
+        }
+
+        private int fileStart(int file) {
+            return fileStarts[file];
+        }
+
+        private CodeIssue issueInFileOrder(int position) {
+            return issues.get(fileOrder[position]);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.ReviewResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 常驻的评审会话：保持 {@link CodeAnalyzer} 和已打开的仓库，监听源码目录，
+ * 文件保存后只重新分析变化的文件（读取工作区内容），就地更新报告并输出问题的增减。
+ * <p>
+ * 短时间内的多次事件会合并：收到第一个事件后等待 debounce 时间内不再有新事件，再统一处理一次。
+ * 某一批处理失败（文件正在写入、规则异常等）只记录日志，继续监听，下次保存时重新分析。
+ * 只检查变更行时，重新分析的文件按工作区内容与首次评审的基线重新计算编辑区间。
+ */
+public class ReviewWatcher implements AutoCloseable {
+
+    private final GitService gitService;
+    private final CodeAnalyzer codeAnalyzer;
+    private final ReportGenerator reportGenerator;
+    private final File outputDir;
+    private final Predicate<String> pathMatcher;
+    private final String patternBase;
+    private final Consumer<String> log;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private Baseline baseline;
+
+    // 当前结果：文件按首次出现的顺序保存，问题按文件保存
+    private final Map<String, FileChange> files = new LinkedHashMap<>();
+    private final Map<String, List<CodeIssue>> issuesByFile = new HashMap<>();
+
+    /**
+     * @param initial     初始评审结果，之后的更新在此基础上替换单个文件的问题
+     * @param pathMatcher 包含/排除模式，匹配相对于 patternBase 的路径
+     * @param patternBase 模式的基准目录相对于仓库根目录的路径
+     */
+    public ReviewWatcher(GitService gitService, CodeAnalyzer codeAnalyzer, ReportGenerator reportGenerator,
+                         File outputDir, ReviewResult initial, Predicate<String> pathMatcher, String patternBase,
+                         Consumer<String> log) throws IOException {
+        this.gitService = gitService;
+        this.codeAnalyzer = codeAnalyzer;
+        this.reportGenerator = reportGenerator;
+        this.outputDir = outputDir;
+        this.pathMatcher = pathMatcher;
+        this.patternBase = patternBase;
+        this.log = log;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        for (FileChange change : initial.getFileChanges()) {
+            files.put(change.getFilePath(), change);
+        }
+        IssueStore store = initial.getIssueStore();
+        for (int i = 0; i < store.size(); i++) {
+            CodeIssue issue = store.get(i);
+            issuesByFile.computeIfAbsent(issue.getFileName(), key -> new ArrayList<>()).add(issue);
+        }
+    }
+
+    // 设置后重新分析的文件同样去掉基线中已有的问题
+    public void setBaseline(Baseline baseline) {
+        this.baseline = baseline;
+    }
+
+    public void register(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 处理文件事件直到线程被中断或超时。
+     *
+     * @param debounceMillis 合并事件的静默时间
+     * @param timeoutMillis  最长运行时间，0 表示一直运行
+     */
+    public void watch(long debounceMillis, long timeoutMillis) throws IOException {
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                long wait = Math.min(deadline - System.currentTimeMillis(), 1000);
+                WatchKey key = watchService.poll(Math.max(1, wait), TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    continue;
+                }
+
+                // 同一文件的多次事件只保留一次，直到 debounce 时间内没有新事件
+                Set<Path> changed = new LinkedHashSet<>();
+                while (key != null) {
+                    collect(key, changed);
+                    key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+                if (!changed.isEmpty()) {
+                    try {
+                        update(changed);
+                    } catch (Exception e) {
+                        log.accept("处理文件变化失败，继续监听: " + e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) throws IOException {
+        Path dir = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // 新建的目录也需要监听，其中已有的文件按变化处理
+                register(path);
+                try (var stream = Files.walk(path)) {
+                    stream.filter(Files::isRegularFile).forEach(changed::add);
+                }
+            } else {
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void update(Set<Path> changed) throws Exception {
+        long start = System.nanoTime();
+
+        List<FileChange> changes = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (Path path : changed) {
+            // 已删除的文件无法解析真实路径，按所在目录计算
+            String directory = gitService.relativePath(path.getParent().toFile());
+            String filePath = (directory.isEmpty() ? "" : directory + "/") + path.getFileName();
+            if (!filePath.endsWith(".java") || !pathMatcher.test(patternRelative(filePath))) {
+                continue;
+            }
+            if (!Files.isRegularFile(path)) {
+                deleted.add(filePath);
+                continue;
+            }
+            FileChange change = new FileChange();
+            change.setFilePath(filePath);
+            FileChange previous = files.get(filePath);
+            change.setChangeType(previous != null && !"DELETE".equals(previous.getChangeType())
+                    ? previous.getChangeType()
+                    : gitService.existsAtHead(filePath) ? "MODIFY" : "ADD");
+            byte[] content = Files.readAllBytes(path);
+            change.setContent(new String(content, StandardCharsets.UTF_8));
+            if (!"ADD".equals(change.getChangeType())) {
+                change.setOldPath(previous != null && previous.getOldPath() != null ? previous.getOldPath() : filePath);
+            }
+            // 重命名的文件与基线中的原路径比较；基线中没有的文件返回 null，检查整个文件
+            String basePath = change.getOldPath() != null ? change.getOldPath() : filePath;
+            change.setEditList(gitService.editListAgainstBase(basePath, content));
+            changes.add(change);
+        }
+        if (changes.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+
+        // 只分析变化的文件，再替换它们在当前结果中的问题
+        ReviewResult delta = codeAnalyzer.analyze(changes);
+        if (baseline != null) {
+            delta = baseline.filter(delta);
+        }
+        Map<String, List<CodeIssue>> newIssues = new HashMap<>();
+        IssueStore store = delta.getIssueStore();
+        for (int i = 0; i < store.size(); i++) {
+            CodeIssue issue = store.get(i);
+            newIssues.computeIfAbsent(issue.getFileName(), key -> new ArrayList<>()).add(issue);
+        }
+
+        int added = 0;
+        int resolved = 0;
+        for (FileChange change : changes) {
+            List<CodeIssue> before = issuesByFile.getOrDefault(change.getFilePath(), List.of());
+            List<CodeIssue> after = newIssues.getOrDefault(change.getFilePath(), List.of());
+            added += report(after, before, "+ ");
+            resolved += report(before, after, "- ");
+            files.put(change.getFilePath(), change);
+            issuesByFile.put(change.getFilePath(), after);
+        }
+        for (String filePath : deleted) {
+            List<CodeIssue> before = issuesByFile.remove(filePath);
+            if (before != null) {
+                resolved += report(before, List.of(), "- ");
+            }
+            FileChange previous = files.get(filePath);
+            if (previous != null && "ADD".equals(previous.getChangeType())) {
+                files.remove(filePath);
+            } else if (gitService.existsAtHead(filePath)) {
+                FileChange change = new FileChange();
+                change.setFilePath(filePath);
+                change.setChangeType("DELETE");
+                change.setContent("");
+                files.put(filePath, change);
+            }
+        }
+
+        ReviewResult result = currentResult();
+        reportGenerator.generateReport(result, outputDir);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.accept("已更新 " + (changes.size() + deleted.size()) + " 个文件: 新增 " + added + " 个问题, 解决 "
+                + resolved + " 个问题, 当前共 " + result.getTotalIssues() + " 个问题 (" + millis + " ms)");
+    }
+
+    // 输出 issues 中不在 others 里的问题，按规则和消息比较，忽略行号变化
+    private int report(List<CodeIssue> issues, List<CodeIssue> others, String sign) {
+        Map<String, Integer> remaining = new HashMap<>();
+        for (CodeIssue other : others) {
+            remaining.merge(other.getRuleId() + '\0' + other.getMessage(), 1, Integer::sum);
+        }
+        int count = 0;
+        for (CodeIssue issue : issues) {
+            String key = issue.getRuleId() + '\0' + issue.getMessage();
+            Integer left = remaining.get(key);
+            if (left != null && left > 0) {
+                remaining.put(key, left - 1);
+                continue;
+            }
+            log.accept(sign + "[" + issue.getSeverity() + "] " + issue.getRuleId() + " " + issue.getFileName()
+                    + ":" + issue.getLineNumber() + " " + issue.getMessage());
+            count++;
+        }
+        return count;
+    }
+
+    private String patternRelative(String filePath) {
+        return patternBase.isEmpty() ? filePath : filePath.substring(Math.min(filePath.length(), patternBase.length() + 1));
+    }
+
+    public ReviewResult currentResult() {
+        IssueStore store = new IssueStore();
+        for (String filePath : files.keySet()) {
+            List<CodeIssue> fileIssues = issuesByFile.get(filePath);
+            if (fileIssues != null) {
+                store.addAll(fileIssues);
+            }
+        }
+        ReviewResult result = new ReviewResult();
+        result.setFileChanges(new ArrayList<>(files.values()));
+        result.setIssueStore(store);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
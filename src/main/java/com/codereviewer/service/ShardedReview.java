@@ -0,0 +1,277 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.PartialResult;
+import com.codereviewer.model.ReviewResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片评审：把变更文件分配到多个分片（可以是不同的 CI 节点或进程），每个分片只分析分到的文件并保存
+ * {@link PartialResult}，最后由 merge 目标合并。
+ * <p>
+ * 分配只依赖路径和文件大小，各分片独立计算得到相同的结果。文件按大小从大到小依次放入分片：
+ * 按路径与分片号的哈希从高到低尝试（rendezvous hashing），取第一个放入后不超出容量的分片，
+ * 使同一文件在变更集合变化时大多仍落在同一分片上，同时各分片的总大小保持接近。
+ */
+public class ShardedReview {
+
+    public static final String FILE_PREFIX = "review-partial-";
+
+    // 每个分片的容量为平均大小的 110%
+    private static final double CAPACITY_SLACK = 1.1;
+
+    /**
+     * @return 每个文件所属的分片号，与 changes 顺序一致
+     */
+    public static int[] assign(List<FileChange> changes, int shardCount) {
+        int size = changes.size();
+        int[] shards = new int[size];
+        if (shardCount <= 1) {
+            return shards;
+        }
+
+        // 删除的文件不需要分析，按最小权重计算
+        long[] weights = new long[size];
+        long total = 0;
+        long largest = 0;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            weights[i] = Math.max(1, changes.get(i).getContentLength());
+            total += weights[i];
+            largest = Math.max(largest, weights[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> weights[i]).reversed()
+                .thenComparing(i -> changes.get(i).getFilePath()));
+
+        long capacity = Math.max(largest, (long) Math.ceil((double) total / shardCount * CAPACITY_SLACK));
+        long[] loads = new long[shardCount];
+        for (int index : order) {
+            long pathHash = hash(changes.get(index).getFilePath());
+            int chosen = -1;
+            long chosenScore = 0;
+            int leastLoaded = 0;
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (loads[shard] < loads[leastLoaded]) {
+                    leastLoaded = shard;
+                }
+                long score = mix(pathHash + shard);
+                if (loads[shard] + weights[index] <= capacity
+                        && (chosen < 0 || Long.compareUnsigned(score, chosenScore) > 0)) {
+                    chosen = shard;
+                    chosenScore = score;
+                }
+            }
+            if (chosen < 0) {
+                chosen = leastLoaded;
+            }
+            shards[index] = chosen;
+            loads[chosen] += weights[index];
+        }
+        return shards;
+    }
+
+    /**
+     * @return 分到 shardIndex 的文件在完整变更列表中的位置，按原顺序排列
+     */
+    public static int[] positionsOf(List<FileChange> changes, int shardIndex, int shardCount) {
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("分片号应在 0 到 " + (shardCount - 1) + " 之间: " + shardIndex);
+        }
+        int[] shards = assign(changes, shardCount);
+        int[] positions = new int[changes.size()];
+        int count = 0;
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i] == shardIndex) {
+                positions[count++] = i;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    // 与 JVM 无关的 64 位路径哈希（FNV-1a）
+    private static long hash(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            hash ^= path.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // splitmix64 的最终混合步骤
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    public static File partialFile(File directory, int shardIndex, int shardCount) {
+        return new File(directory, FILE_PREFIX + shardIndex + "-of-" + shardCount + ".bin");
+    }
+
+    /**
+     * 以 {@link BinaryResultFormat} 保存，分片信息写在附加属性中，问题保留规则描述和参数。
+     *
+     * @param indexes 分片中每个文件在完整变更列表中的位置，与 result 的文件顺序一致
+     */
+    public void save(File file, int shardIndex, int shardCount, String commit, String options, int totalFiles,
+                     int[] indexes, ReviewResult result) throws IOException {
+        // 取消后结果只包含已分析的文件，按路径找回位置
+        Map<String, Integer> positions = new HashMap<>();
+        List<FileChange> all = result.getFileChanges();
+        for (int i = 0; i < indexes.length && i < all.size(); i++) {
+            positions.put(all.get(i).getFilePath(), indexes[i]);
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (FileChange change : all) {
+            Integer position = positions.get(change.getFilePath());
+            if (position == null) {
+                throw new IllegalStateException("分片结果中的文件不在本分片的文件列表中: " + change.getFilePath());
+            }
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(position);
+        }
+
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("version", String.valueOf(PartialResult.CURRENT_VERSION));
+        attributes.put("shardIndex", String.valueOf(shardIndex));
+        attributes.put("shardCount", String.valueOf(shardCount));
+        attributes.put("commit", commit);
+        attributes.put("options", options);
+        attributes.put("totalFiles", String.valueOf(totalFiles));
+        attributes.put("positions", encoded.toString());
+        BinaryResultFormat.write(file, result, attributes);
+    }
+
+    // 读取目录下的全部分片结果，按分片号排列
+    public List<PartialResult> loadAll(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(".bin"));
+        if (files == null || files.length == 0) {
+            throw new IllegalStateException("没有找到分片结果: " + directory.getAbsolutePath());
+        }
+        List<PartialResult> partials = new ArrayList<>(files.length);
+        for (File file : files) {
+            partials.add(load(file));
+        }
+        partials.sort(Comparator.comparingInt(PartialResult::getShardIndex));
+        return partials;
+    }
+
+    private static PartialResult load(File file) throws IOException {
+        BinaryResultFormat.Contents contents = BinaryResultFormat.read(file);
+        Map<String, String> attributes = contents.getAttributes();
+        if (!String.valueOf(PartialResult.CURRENT_VERSION).equals(attributes.get("version"))) {
+            throw new IllegalStateException("分片结果版本不符: " + file.getName());
+        }
+        PartialResult partial = new PartialResult();
+        try {
+            partial.setShardIndex(Integer.parseInt(attributes.get("shardIndex")));
+            partial.setShardCount(Integer.parseInt(attributes.get("shardCount")));
+            partial.setTotalFiles(Integer.parseInt(attributes.get("totalFiles")));
+            String encoded = attributes.get("positions");
+            int[] positions = encoded == null || encoded.isEmpty() ? new int[0]
+                    : Arrays.stream(encoded.split(",")).mapToInt(Integer::parseInt).toArray();
+            partial.setPositions(positions);
+        } catch (NumberFormatException e) {
+            throw new IOException("分片结果已损坏: " + file, e);
+        }
+        partial.setCommit(attributes.get("commit"));
+        partial.setOptions(attributes.get("options"));
+        partial.setResult(contents.getResult());
+        if (partial.getPositions().length != partial.getResult().getFileChanges().size()) {
+            throw new IOException("分片结果已损坏（文件数与位置数不符）: " + file);
+        }
+        return partial;
+    }
+
+    /**
+     * 校验分片齐全且来自同一次评审，按文件在完整变更列表中的位置合并，结果与单个节点评审时的顺序一致。
+     * 返回的文件只有路径、类型和 blob id，需要内容时由调用方从仓库按需读取。
+     */
+    public ReviewResult merge(List<PartialResult> partials) {
+        PartialResult first = partials.get(0);
+        int shardCount = first.getShardCount();
+        boolean[] seen = new boolean[shardCount];
+        for (PartialResult partial : partials) {
+            int shard = partial.getShardIndex();
+            if (partial.getShardCount() != shardCount || shard < 0 || shard >= shardCount) {
+                throw new IllegalStateException("分片数不一致: " + partial.getShardIndex() + "/" + partial.getShardCount()
+                        + "，期望共 " + shardCount + " 个分片");
+            }
+            if (seen[shard]) {
+                throw new IllegalStateException("分片 " + shard + " 的结果重复");
+            }
+            if (!String.valueOf(first.getCommit()).equals(String.valueOf(partial.getCommit()))
+                    || !String.valueOf(first.getOptions()).equals(String.valueOf(partial.getOptions()))
+                    || first.getTotalFiles() != partial.getTotalFiles()) {
+                throw new IllegalStateException("分片 " + shard + " 与分片 " + first.getShardIndex()
+                        + " 评审的提交或选项不同");
+            }
+            seen[shard] = true;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!seen[shard]) {
+                throw new IllegalStateException("缺少分片 " + shard + " 的结果（共 " + shardCount + " 个分片）");
+            }
+        }
+
+        FileChange[] files = new FileChange[first.getTotalFiles()];
+        Map<String, List<CodeIssue>> issuesByFile = new HashMap<>();
+        boolean cancelled = false;
+        int skippedFiles = 0;
+        for (PartialResult partial : partials) {
+            ReviewResult result = partial.getResult();
+            int[] positions = partial.getPositions();
+            for (int i = 0; i < positions.length; i++) {
+                int position = positions[i];
+                if (position < 0 || position >= files.length || files[position] != null) {
+                    throw new IllegalStateException("分片 " + partial.getShardIndex() + " 中文件的位置无效: " + position);
+                }
+                files[position] = result.getFileChanges().get(i);
+            }
+            // 问题保持共享的规则描述和参数
+            IssueStore issues = result.getIssueStore();
+            for (int i = 0; i < issues.size(); i++) {
+                CodeIssue issue = issues.get(i);
+                issuesByFile.computeIfAbsent(issue.getFileName(), key -> new ArrayList<>()).add(issue);
+            }
+            cancelled |= result.isCancelled();
+            skippedFiles += result.getSkippedFiles();
+        }
+
+        // 取消的分片中未分析的文件不在结果中
+        List<FileChange> fileChanges = new ArrayList<>(files.length);
+        IssueStore store = new IssueStore();
+        for (FileChange change : files) {
+            if (change == null) {
+                continue;
+            }
+            fileChanges.add(change);
+            List<CodeIssue> fileIssues = issuesByFile.get(change.getFilePath());
+            if (fileIssues != null) {
+                store.addAll(fileIssues);
+            }
+        }
+
+        ReviewResult result = new ReviewResult();
+        result.setFileChanges(fileChanges);
+        result.setIssueStore(store);
+        result.setCancelled(cancelled);
+        result.setSkippedFiles(skippedFiles);
+        return result;
+    }
+}
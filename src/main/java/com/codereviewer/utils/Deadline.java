@@ -0,0 +1,90 @@
+package com.codereviewer.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 单个文件分析的截止时间。词法分析和规则遍历在循环中调用 {@link #check()}，每隔一定次数读取一次时钟，
+ * 超时后抛出 {@link ExceededException}，长时间的单次扫描也能在预算附近停下。
+ * <p>
+ * 内部计数不是线程安全的，每个文件的分析使用自己的实例。
+ */
+public final class Deadline {
+
+    // 每隔多少次调用读取一次时钟
+    private static final int CHECK_INTERVAL = 1024;
+
+    // 不限制时间
+    public static final Deadline NONE = new Deadline(0, 0);
+
+    private final long start;
+    private final long budgetNanos;
+    private int countdown = CHECK_INTERVAL;
+
+    private Deadline(long start, long budgetNanos) {
+        this.start = start;
+        this.budgetNanos = budgetNanos;
+    }
+
+    // budgetNanos 不大于 0 时不限制
+    public static Deadline after(long budgetNanos) {
+        return budgetNanos > 0 ? new Deadline(System.nanoTime(), budgetNanos) : NONE;
+    }
+
+    public void check() {
+        if (budgetNanos == 0 || --countdown > 0) {
+            return;
+        }
+        countdown = CHECK_INTERVAL;
+        if (System.nanoTime() - start > budgetNanos) {
+            throw new ExceededException();
+        }
+    }
+
+    // 立即读取时钟，用于遍历之间的检查
+    public boolean isExceeded() {
+        return budgetNanos > 0 && System.nanoTime() - start > budgetNanos;
+    }
+
+    // 每次读取前立即检查截止时间的通道，用于按块扫描字节的规则
+    public ReadableByteChannel guard(ReadableByteChannel channel) {
+        if (budgetNanos == 0) {
+            return channel;
+        }
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer target) throws IOException {
+                if (isExceeded()) {
+                    throw new ExceededException();
+                }
+                return channel.read(target);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 超出时间预算，由 CodeAnalyzer 捕获后报告 REVIEW_001，不记录堆栈。
+     */
+    public static final class ExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private ExceededException() {
+            super("文件分析超出时间预算", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.codereviewer.utils;
+
+// Java 关键字表，下标即关键字编号，由词法分析器在生成词法单元时一次性识别
+public final class JavaKeywords {
+
+    public static final int NONE = -1;
+
+    public static final int IF = 0;
+    public static final int ELSE = 1;
+    public static final int FOR = 2;
+    public static final int WHILE = 3;
+    public static final int SWITCH = 4;
+    public static final int CASE = 5;
+    public static final int CATCH = 6;
+    public static final int PUBLIC = 7;
+    public static final int PRIVATE = 8;
+    public static final int PROTECTED = 9;
+    public static final int CLASS = 10;
+    public static final int INTERFACE = 11;
+    public static final int ENUM = 12;
+    public static final int STATIC = 13;
+    public static final int FINAL = 14;
+    public static final int ABSTRACT = 15;
+    public static final int THROWS = 16;
+
+    private static final String[] KEYWORDS = {
+            "if", "else", "for", "while", "switch", "case", "catch",
+            "public", "private", "protected", "class", "interface", "enum",
+            "static", "final", "abstract", "throws",
+            "assert", "boolean", "break", "byte", "char", "const", "continue", "default", "do",
+            "double", "extends", "finally", "float", "goto", "implements", "import", "instanceof",
+            "int", "long", "native", "new", "package", "return", "short", "strictfp", "super",
+            "synchronized", "this", "throw", "transient", "try", "void", "volatile",
+            "true", "false", "null"
+    };
+
+    public static final KeywordMatcher MATCHER = new KeywordMatcher(KEYWORDS);
+
+    // 参与圈复杂度计算的关键字
+    private static final boolean[] BRANCHES = new boolean[KEYWORDS.length];
+
+    static {
+        BRANCHES[IF] = true;
+        BRANCHES[ELSE] = true;
+        BRANCHES[FOR] = true;
+        BRANCHES[WHILE] = true;
+        BRANCHES[SWITCH] = true;
+        BRANCHES[CASE] = true;
+        BRANCHES[CATCH] = true;
+    }
+
+    private JavaKeywords() {
+    }
+
+    public static boolean isBranch(int keyword) {
+        return keyword >= 0 && BRANCHES[keyword];
+    }
+
+    public static boolean isAccessModifier(int keyword) {
+        return keyword == PUBLIC || keyword == PRIVATE || keyword == PROTECTED;
+    }
+}
@@ -0,0 +1,226 @@
+package com.codereviewer.utils;
+
+/**
+ * 手写的单遍 Java 词法分析器。注释、字符串、字符和文本块会被整体识别为一个词法单元，
+ * 规则因此不会再把字面量或注释中的内容当作代码。
+ */
+public final class JavaLexer {
+
+    private final CharSequence buffer;
+    private final int length;
+    private final Deadline deadline;
+    private int pos;
+    private int line;
+
+    private JavaLexer(CharSequence buffer, Deadline deadline) {
+        this.buffer = buffer;
+        this.length = buffer.length();
+        this.deadline = deadline;
+    }
+
+    public static TokenStream tokenize(CharSequence buffer) {
+        return tokenize(buffer, Deadline.NONE);
+    }
+
+    // 每个词法单元检查一次截止时间，超时抛出 Deadline.ExceededException
+    public static TokenStream tokenize(CharSequence buffer, Deadline deadline) {
+        return new JavaLexer(buffer, deadline).run();
+    }
+
+    private TokenStream run() {
+        // 经验值：普通 Java 源码平均约每 5 个字符一个词法单元
+        TokenStream tokens = new TokenStream(buffer, length / 5);
+
+        while (pos < length) {
+            deadline.check();
+            char c = buffer.charAt(pos);
+
+            if (c == '\n') {
+                line++;
+                pos++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pos++;
+                continue;
+            }
+
+            int start = pos;
+            int startLine = line;
+            byte kind;
+            int keyword = JavaKeywords.NONE;
+
+            if (c == '/' && peek(1) == '/') {
+                skipLineComment();
+                kind = TokenStream.COMMENT;
+            } else if (c == '/' && peek(1) == '*') {
+                skipBlockComment();
+                kind = TokenStream.COMMENT;
+            } else if (c == '"') {
+                if (peek(1) == '"' && peek(2) == '"') {
+                    skipTextBlock();
+                } else {
+                    skipQuoted('"');
+                }
+                kind = TokenStream.STRING;
+            } else if (c == '\'') {
+                skipQuoted('\'');
+                kind = TokenStream.CHAR;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                pos++;
+                while (pos < length && Character.isJavaIdentifierPart(buffer.charAt(pos))) {
+                    pos++;
+                }
+                kind = TokenStream.IDENTIFIER;
+                keyword = JavaKeywords.MATCHER.match(buffer, start, pos);
+            } else if (isDigit(c) || (c == '.' && isDigit(peek(1)))) {
+                skipNumber();
+                kind = TokenStream.NUMBER;
+            } else {
+                kind = scanOperator(c);
+            }
+
+            tokens.add(kind, keyword, start, pos, startLine);
+        }
+
+        return tokens;
+    }
+
+    private char peek(int offset) {
+        int index = pos + offset;
+        return index < length ? buffer.charAt(index) : '\0';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void skipLineComment() {
+        while (pos < length && buffer.charAt(pos) != '\n') {
+            pos++;
+        }
+    }
+
+    private void skipBlockComment() {
+        pos += 2;
+        while (pos < length) {
+            char c = buffer.charAt(pos);
+            if (c == '*' && peek(1) == '/') {
+                pos += 2;
+                return;
+            }
+            if (c == '\n') {
+                line++;
+            }
+            pos++;
+        }
+    }
+
+    private void skipQuoted(char quote) {
+        pos++;
+        while (pos < length) {
+            char c = buffer.charAt(pos);
+            if (c == '\\' && peek(1) != '\n') {
+                pos += 2;
+            } else if (c == quote) {
+                pos++;
+                return;
+            } else if (c == '\n') {
+                // 未闭合的字面量在行尾结束
+                return;
+            } else {
+                pos++;
+            }
+        }
+        pos = Math.min(pos, length);
+    }
+
+    private void skipTextBlock() {
+        pos += 3;
+        while (pos < length) {
+            char c = buffer.charAt(pos);
+            if (c == '\\') {
+                if (peek(1) == '\n') {
+                    line++;
+                }
+                pos += 2;
+            } else if (c == '"' && peek(1) == '"' && peek(2) == '"') {
+                pos += 3;
+                return;
+            } else {
+                if (c == '\n') {
+                    line++;
+                }
+                pos++;
+            }
+        }
+        pos = Math.min(pos, length);
+    }
+
+    private void skipNumber() {
+        while (pos < length) {
+            char c = buffer.charAt(pos);
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '.') {
+                pos++;
+            } else if ((c == '+' || c == '-') && isExponent(buffer.charAt(pos - 1))) {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isExponent(char c) {
+        return c == 'e' || c == 'E' || c == 'p' || c == 'P';
+    }
+
+    private byte scanOperator(char c) {
+        char next = peek(1);
+        pos++;
+        switch (c) {
+            case '{': return TokenStream.LBRACE;
+            case '}': return TokenStream.RBRACE;
+            case '(': return TokenStream.LPAREN;
+            case ')': return TokenStream.RPAREN;
+            case '[': return TokenStream.LBRACKET;
+            case ']': return TokenStream.RBRACKET;
+            case ';': return TokenStream.SEMICOLON;
+            case ',': return TokenStream.COMMA;
+            case '.': return TokenStream.DOT;
+            case '@': return TokenStream.AT;
+            case '?': return TokenStream.QUESTION;
+            // 尖括号不合并，保证泛型中的 ">>" 能被正确配对
+            case '<':
+            case '>':
+                if (next == '=') {
+                    pos++;
+                    return TokenStream.OPERATOR;
+                }
+                return c == '<' ? TokenStream.LT : TokenStream.GT;
+            case '&':
+                if (next == '&') {
+                    pos++;
+                    return TokenStream.AND_AND;
+                }
+                break;
+            case '|':
+                if (next == '|') {
+                    pos++;
+                    return TokenStream.OR_OR;
+                }
+                break;
+            case '=':
+                if (next == '=') {
+                    pos++;
+                    return TokenStream.OPERATOR;
+                }
+                return TokenStream.ASSIGN;
+            default:
+                break;
+        }
+        if (next == '=' || (next == c && (c == '+' || c == '-' || c == ':')) || (c == '-' && next == '>')) {
+            pos++;
+        }
+        return TokenStream.OPERATOR;
+    }
+}
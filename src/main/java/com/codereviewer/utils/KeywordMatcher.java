@@ -0,0 +1,171 @@
+package com.codereviewer.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * 基于 Aho–Corasick 自动机的多关键字匹配器，构建后不可变、线程安全，匹配过程不分配对象。
+ * <ul>
+ *     <li>{@link #match} 判断一段字符是否恰好是某个关键字（只走 trie，不走失败链）；</li>
+ *     <li>{@link #count} 单遍统计所有关键字出现次数，以标识符字符开头/结尾的关键字要求处在单词边界上，
+ *     因此 "modifier" 中的 "if" 不会被计入，而 "&amp;&amp;" 这类运算符不受边界限制。</li>
+ * </ul>
+ * 关键字仅支持 ASCII 字符，输入中的其它字符一律视为不匹配。
+ */
+public final class KeywordMatcher {
+
+    private static final int ASCII = 128;
+
+    private final String[] keywords;
+    private final byte[] charClass;     // ASCII 字符 -> 字符类，0 表示不出现在任何关键字中
+    private final int classCount;
+    private final int[] trie;           // 纯 goto 表，-1 表示无转移
+    private final int[] dfa;            // 补全了失败转移的状态机
+    private final int[] keywordAt;      // 状态 -> 在该状态结束的关键字下标，-1 表示无
+    private final int[] outputLink;     // 失败链上下一个有输出的状态，0 表示无
+    private final boolean[] boundedStart;
+    private final boolean[] boundedEnd;
+
+    public KeywordMatcher(String... keywords) {
+        this.keywords = keywords.clone();
+
+        byte[] classes = new byte[ASCII];
+        int nextClass = 1;
+        int maxStates = 1;
+        for (String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("关键字不能为空");
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c >= ASCII) {
+                    throw new IllegalArgumentException("关键字只支持 ASCII 字符: " + keyword);
+                }
+                if (classes[c] == 0) {
+                    classes[c] = (byte) nextClass++;
+                }
+            }
+            maxStates += keyword.length();
+        }
+        this.charClass = classes;
+        this.classCount = nextClass;
+
+        // 构建 trie
+        int[] gotoTable = new int[maxStates * classCount];
+        Arrays.fill(gotoTable, -1);
+        int[] terminal = new int[maxStates];
+        Arrays.fill(terminal, -1);
+        int states = 1;
+        for (int k = 0; k < keywords.length; k++) {
+            int state = 0;
+            for (int i = 0; i < keywords[k].length(); i++) {
+                int slot = state * classCount + classes[keywords[k].charAt(i)];
+                if (gotoTable[slot] < 0) {
+                    gotoTable[slot] = states++;
+                }
+                state = gotoTable[slot];
+            }
+            if (terminal[state] < 0) {
+                terminal[state] = k;
+            }
+        }
+        this.trie = Arrays.copyOf(gotoTable, states * classCount);
+        this.keywordAt = Arrays.copyOf(terminal, states);
+
+        // 广度优先计算失败链，并把失败转移折叠进 DFA
+        int[] automaton = Arrays.copyOf(this.trie, states * classCount);
+        int[] fail = new int[states];
+        int[] output = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classCount; c++) {
+            int next = automaton[c];
+            if (next < 0) {
+                automaton[c] = 0;
+            } else {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int failState = fail[state];
+            output[state] = keywordAt[failState] >= 0 ? failState : output[failState];
+            for (int c = 0; c < classCount; c++) {
+                int slot = state * classCount + c;
+                int next = automaton[slot];
+                if (next < 0) {
+                    automaton[slot] = automaton[failState * classCount + c];
+                } else {
+                    fail[next] = automaton[failState * classCount + c];
+                    queue.add(next);
+                }
+            }
+        }
+        this.dfa = automaton;
+        this.outputLink = output;
+
+        this.boundedStart = new boolean[keywords.length];
+        this.boundedEnd = new boolean[keywords.length];
+        for (int k = 0; k < keywords.length; k++) {
+            boundedStart[k] = isWordChar(keywords[k].charAt(0));
+            boundedEnd[k] = isWordChar(keywords[k].charAt(keywords[k].length() - 1));
+        }
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    public String keyword(int index) {
+        return keywords[index];
+    }
+
+    // 若 [start, end) 恰好是某个关键字则返回其下标，否则返回 -1
+    public int match(CharSequence text, int start, int end) {
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= ASCII || charClass[c] == 0) {
+                return -1;
+            }
+            state = trie[state * classCount + charClass[c]];
+            if (state < 0) {
+                return -1;
+            }
+        }
+        return keywordAt[state];
+    }
+
+    // 统计 [start, end) 中满足单词边界的关键字出现次数
+    public int count(CharSequence text, int start, int end) {
+        int count = 0;
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            state = dfa[state * classCount + (c < ASCII ? charClass[c] : 0)];
+            int hit = keywordAt[state] >= 0 ? state : outputLink[state];
+            while (hit > 0) {
+                if (isBounded(text, start, end, keywordAt[hit], i + 1)) {
+                    count++;
+                }
+                hit = outputLink[hit];
+            }
+        }
+        return count;
+    }
+
+    private boolean isBounded(CharSequence text, int start, int end, int keyword, int matchEnd) {
+        int matchStart = matchEnd - keywords[keyword].length();
+        if (boundedStart[keyword] && matchStart > start && isWordChar(text.charAt(matchStart - 1))) {
+            return false;
+        }
+        return !boundedEnd[keyword] || matchEnd >= end || !isWordChar(text.charAt(matchEnd));
+    }
+
+    private static boolean isWordChar(char c) {
+        if (c < ASCII) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$';
+        }
+        return Character.isJavaIdentifierPart(c);
+    }
+}
@@ -0,0 +1,153 @@
+package com.codereviewer.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 在未解码的 UTF-8 字节上一次遍历完成逐行的格式检查：换行、Tab 缩进和行末空白，
+ * 行长按码点计算（字节数减去 10xxxxxx 形式的后续字节数），中文注释的行长与字符数一致。
+ * 只有左大括号的行需要词法单元排除注释和文本块，不在字节上判断。
+ * <p>
+ * 每次读取 8 个字节（SWAR）：用位运算同时找出字长内的全部换行符并统计后续字节，不足 8 字节的尾部逐字节处理。
+ * 每行只读取首尾两个字节，内容可以分块传入，跨块的行由扫描器保存状态。
+ * 行的划分与 {@link com.codereviewer.model.SourceView} 一致：按 '\n' 分行，末尾的空行被忽略，空白字符为 &lt;= ' ' 的字节。
+ */
+public final class StyleScanner {
+
+    // 行标志
+    public static final int TAB_INDENT = 1;
+    public static final int TRAILING_WHITESPACE = 2;
+
+    private static final int CHUNK = 64 * 1024;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+    private static final long NEWLINES = 0x0a0a0a0a0a0a0a0aL;
+
+    @FunctionalInterface
+    public interface Handler {
+        // 每个非空行调用一次，index 从 0 开始
+        void line(int index, int codePoints, int flags);
+    }
+
+    private final Handler handler;
+    private int index;
+    private long bytes;
+    private long continuations;
+    private int first;
+    private int last;
+    private int lastNonEmpty = -1;
+
+    public StyleScanner(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * 读取通道直到结束。
+     *
+     * @return 行数
+     */
+    public int scan(ReadableByteChannel channel) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK);
+        while (channel.read(chunk) >= 0) {
+            chunk.flip();
+            feed(chunk);
+            chunk.clear();
+        }
+        return finish();
+    }
+
+    // 整段内容（如内存映射的文件）一次扫描
+    public int scan(ByteBuffer content) {
+        feed(content);
+        return finish();
+    }
+
+    // 处理 position 到 limit 之间的字节，返回后 position 移到 limit
+    public void feed(ByteBuffer chunk) {
+        ByteBuffer buffer = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int limit = buffer.limit();
+        int lineStart = buffer.position();
+        int i = lineStart;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            long newlines = zeroBytes(word ^ NEWLINES);
+            // 最高两位为 10 的字节是多字节字符的后续字节
+            long tails = word & ~(word << 1) & HIGH_BITS;
+            while (newlines != 0) {
+                int offset = Long.numberOfTrailingZeros(newlines) >>> 3;
+                long before = (1L << (offset << 3)) - 1;
+                continuations += Long.bitCount(tails & before);
+                tails &= ~before;
+                endLine(buffer, lineStart, i + offset);
+                lineStart = i + offset + 1;
+                newlines &= newlines - 1;
+            }
+            continuations += Long.bitCount(tails);
+        }
+        for (; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                endLine(buffer, lineStart, i);
+                lineStart = i + 1;
+            } else if ((b & 0xc0) == 0x80) {
+                continuations++;
+            }
+        }
+        segment(buffer, lineStart, limit);
+        chunk.position(limit);
+    }
+
+    /**
+     * 结束扫描，处理没有换行符结尾的最后一行。
+     *
+     * @return 行数，空内容也有一行
+     */
+    public int finish() {
+        if (bytes > 0) {
+            emit();
+        }
+        return Math.max(1, lastNonEmpty + 1);
+    }
+
+    // 值为 0 的字节对应位置的最高位置 1，其余为 0（不会因借位误报）
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+    }
+
+    private void endLine(ByteBuffer buffer, int start, int end) {
+        segment(buffer, start, end);
+        if (bytes > 0) {
+            emit();
+        }
+        index++;
+        bytes = 0;
+        continuations = 0;
+    }
+
+    // 当前行在本块中的一段，跨块的行会分多次传入
+    private void segment(ByteBuffer buffer, int start, int end) {
+        if (end <= start) {
+            return;
+        }
+        if (bytes == 0) {
+            first = buffer.get(start);
+        }
+        last = buffer.get(end - 1);
+        bytes += end - start;
+    }
+
+    private void emit() {
+        int flags = 0;
+        if (first == '\t') {
+            flags |= TAB_INDENT;
+        }
+        if (last == ' ' || last == '\t') {
+            flags |= TRAILING_WHITESPACE;
+        }
+        handler.line(index, (int) Math.min(Integer.MAX_VALUE, bytes - continuations), flags);
+        lastNonEmpty = index;
+    }
+}
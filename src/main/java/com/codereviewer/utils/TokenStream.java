@@ -0,0 +1,179 @@
+package com.codereviewer.utils;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑的词法单元序列：类型、起止偏移和所在行分别保存在基本类型数组中，
+ * 由 {@link JavaLexer} 对每个文件生成一次，所有规则共享。
+ */
+public final class TokenStream {
+
+    public static final byte IDENTIFIER = 1;   // 标识符与关键字
+    public static final byte NUMBER = 2;
+    public static final byte STRING = 3;       // 字符串与文本块
+    public static final byte CHAR = 4;
+    public static final byte COMMENT = 5;      // 行注释、块注释与文档注释
+    public static final byte LBRACE = 6;
+    public static final byte RBRACE = 7;
+    public static final byte LPAREN = 8;
+    public static final byte RPAREN = 9;
+    public static final byte LBRACKET = 10;
+    public static final byte RBRACKET = 11;
+    public static final byte SEMICOLON = 12;
+    public static final byte COMMA = 13;
+    public static final byte DOT = 14;
+    public static final byte LT = 15;
+    public static final byte GT = 16;
+    public static final byte ASSIGN = 17;
+    public static final byte AND_AND = 18;
+    public static final byte OR_OR = 19;
+    public static final byte AT = 20;
+    public static final byte QUESTION = 21;
+    public static final byte OPERATOR = 22;    // 其余运算符
+
+    private final CharSequence buffer;
+    private byte[] kinds;
+    private byte[] keywords;    // 关键字编号加一，0 表示不是关键字
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int size;
+
+    TokenStream(CharSequence buffer, int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        this.buffer = buffer;
+        this.kinds = new byte[capacity];
+        this.keywords = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    void add(byte kind, int keyword, int start, int end, int line) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            keywords = Arrays.copyOf(keywords, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[size] = kind;
+        keywords[size] = (byte) (keyword + 1);
+        starts[size] = start;
+        ends[size] = end;
+        lines[size] = line;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte kind(int index) {
+        return kinds[index];
+    }
+
+    // 关键字编号（见 JavaKeywords），不是关键字时返回 JavaKeywords.NONE
+    public int keyword(int index) {
+        return keywords[index] - 1;
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    // 词法单元起始位置所在的行下标（从 0 开始）
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public boolean isCode(int index) {
+        return kinds[index] != COMMENT;
+    }
+
+    public boolean textEquals(int index, String text) {
+        int start = starts[index];
+        int length = ends[index] - start;
+        if (length != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.charAt(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isIdentifier(int index, String text) {
+        return kinds[index] == IDENTIFIER && textEquals(index, text);
+    }
+
+    public char firstChar(int index) {
+        return buffer.charAt(starts[index]);
+    }
+
+    public String text(int index) {
+        return buffer.subSequence(starts[index], ends[index]).toString();
+    }
+
+    // 返回起始于 offset 的词法单元下标，不存在时返回 -1
+    public int indexAt(int offset) {
+        int pos = Arrays.binarySearch(starts, 0, size, offset);
+        return pos >= 0 ? pos : -1;
+    }
+
+    // 返回第一个位于 line 行及之后的词法单元下标
+    public int firstIndexAtLine(int line) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lines[mid] < line) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 下一个非注释词法单元，不存在时返回 size()
+    public int nextCode(int index) {
+        int i = index + 1;
+        while (i < size && kinds[i] == COMMENT) {
+            i++;
+        }
+        return i;
+    }
+
+    // 上一个非注释词法单元，不存在时返回 -1
+    public int previousCode(int index) {
+        int i = index - 1;
+        while (i >= 0 && kinds[i] == COMMENT) {
+            i--;
+        }
+        return i;
+    }
+
+    // 从左括号/大括号出发查找匹配的右括号，不存在时返回 size()
+    public int findClosing(int openIndex) {
+        byte open = kinds[openIndex];
+        byte close = open == LBRACE ? RBRACE : open == LPAREN ? RPAREN : RBRACKET;
+        int depth = 0;
+        for (int i = openIndex; i < size; i++) {
+            byte kind = kinds[i];
+            if (kind == open) {
+                depth++;
+            } else if (kind == close && --depth == 0) {
+                return i;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,152 @@
+package com.codereviewer.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class IssueStoreTest {
+
+    private static final RuleDescriptor LONG_METHOD = RuleDescriptor.of("COMPLEXITY_002", Severity.WARNING,
+            "方法 {0} 过长 ({1} 行)", "拆分方法 {0}");
+    private static final RuleDescriptor TAB = RuleDescriptor.of("STYLE_002", Severity.INFO,
+            "使用了Tab字符进行缩进", "建议使用4个空格代替Tab字符");
+
+    @Test
+    public void keepsInsertionOrderAcrossFiles() {
+        IssueStore store = new IssueStore();
+        store.add("B.java", 7, TAB);
+        store.add("A.java", 3, LONG_METHOD, "run", 80);
+        store.add("B.java", 1, TAB);
+        store.add(new CodeIssue("C.java", 2, "CRITICAL", "SECURITY_001", "硬编码密码", "使用配置"));
+
+        assertEquals(List.of("B.java:7:STYLE_002", "A.java:3:COMPLEXITY_002", "B.java:1:STYLE_002",
+                "C.java:2:SECURITY_001"), describe(store.asList()));
+        // 文件编号按首次出现的顺序分配，与问题的排序无关
+        assertEquals(3, store.fileCount());
+        assertEquals("B.java", store.fileName(store.fileIndex(0)));
+        assertEquals(0, store.fileIndex(2));
+        assertEquals("A.java", store.fileName(1));
+        assertEquals("C.java", store.fileName(2));
+    }
+
+    @Test
+    public void addAllCopiesArgumentsSnippetsAndCounts() {
+        IssueStore source = new IssueStore();
+        source.add("A.java", 3, LONG_METHOD, "run", 80);
+        source.add("A.java", 4, TAB);
+        CodeIssue withSnippet = new CodeIssue("B.java", 9, LONG_METHOD, "call", 61);
+        withSnippet.setCodeSnippet("void call() {");
+        source.add(withSnippet);
+
+        List<CodeIssue> plain = new ArrayList<>();
+        plain.add(new CodeIssue("C.java", 1, "CRITICAL", "SECURITY_001", "硬编码密码", "使用配置"));
+
+        IssueStore target = new IssueStore();
+        target.add("Z.java", 1, TAB);
+        target.addAll(source.asList());
+        target.addAll(plain);
+
+        assertEquals(List.of("Z.java:1:STYLE_002", "A.java:3:COMPLEXITY_002", "A.java:4:STYLE_002",
+                "B.java:9:COMPLEXITY_002", "C.java:1:SECURITY_001"), describe(target.asList()));
+        assertEquals("方法 run 过长 (80 行)", target.get(1).getMessage());
+        assertEquals("拆分方法 run", target.get(1).getSuggestion());
+        assertArrayEquals(new Object[]{"call", 61}, target.get(3).getArgs());
+        assertEquals("void call() {", target.get(3).getCodeSnippet());
+        assertNull(target.get(2).getCodeSnippet());
+        assertNull(target.get(2).getArgs());
+        assertEquals("硬编码密码", target.get(4).getMessage());
+
+        assertEquals(1, target.count(Severity.CRITICAL));
+        assertEquals(2, target.count(Severity.WARNING));
+        assertEquals(2, target.count(Severity.INFO));
+        // 相同的规则描述只保存一份
+        assertSame(target.rule(0), target.rule(2));
+        assertSame(LONG_METHOD, target.rule(1));
+    }
+
+    @Test
+    public void addAllOfItselfCopiesOnlyExistingIssues() {
+        IssueStore store = new IssueStore();
+        store.add("A.java", 1, TAB);
+        store.add("B.java", 2, LONG_METHOD, "run", 80);
+
+        store.addAll(store.asList());
+
+        assertEquals(List.of("A.java:1:STYLE_002", "B.java:2:COMPLEXITY_002",
+                "A.java:1:STYLE_002", "B.java:2:COMPLEXITY_002"), describe(store.asList()));
+        assertEquals("方法 run 过长 (80 行)", store.get(3).getMessage());
+    }
+
+    @Test
+    public void growsPastInitialCapacityInOrder() {
+        IssueStore store = new IssueStore();
+        List<CodeIssue> issues = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            issues.add(new CodeIssue("F" + (i % 37) + ".java", i, LONG_METHOD, "m" + i, i));
+        }
+        store.addAll(issues);
+
+        assertEquals(1000, store.size());
+        assertEquals(37, store.fileCount());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("F" + (i % 37) + ".java", store.get(i).getFileName());
+            assertEquals(i, store.lineNumber(i));
+            assertEquals("方法 m" + i + " 过长 (" + i + " 行)", store.get(i).getMessage());
+        }
+        assertEquals(1000, store.count(Severity.WARNING));
+    }
+
+    @Test
+    public void editsThroughViewsUpdateStoreAndCounts() {
+        IssueStore store = new IssueStore();
+        store.add("A.java", 3, LONG_METHOD, "run", 80);
+        store.add("A.java", 4, TAB);
+
+        CodeIssue issue = store.get(0);
+        issue.setSeverity("CRITICAL");
+        issue.setLineNumber(30);
+        issue.setFileName("B.java");
+
+        assertEquals(1, store.count(Severity.CRITICAL));
+        assertEquals(0, store.count(Severity.WARNING));
+        assertEquals("B.java:30:COMPLEXITY_002", describe(store.asList()).get(0));
+        assertEquals("方法 run 过长 (80 行)", store.get(0).getMessage());
+
+        store.get(1).setMessage("自定义消息");
+        assertEquals("自定义消息", store.get(1).getMessage());
+        assertEquals("建议使用4个空格代替Tab字符", store.get(1).getSuggestion());
+        assertEquals(1, store.count(Severity.INFO));
+    }
+
+    @Test
+    public void listViewAppendsToTheStore() {
+        IssueStore store = new IssueStore();
+        List<CodeIssue> view = store.asList();
+        view.add(new CodeIssue("A.java", 1, TAB));
+        view.add(new CodeIssue("B.java", 2, LONG_METHOD, "run", 80));
+
+        assertEquals(2, store.size());
+        assertEquals(List.of("A.java:1:STYLE_002", "B.java:2:COMPLEXITY_002"), describe(view));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfRange() {
+        IssueStore store = new IssueStore();
+        store.add("A.java", 1, TAB);
+        store.get(1);
+    }
+
+    private static List<String> describe(List<CodeIssue> issues) {
+        List<String> described = new ArrayList<>();
+        for (CodeIssue issue : issues) {
+            described.add(issue.getFileName() + ":" + issue.getLineNumber() + ":" + issue.getRuleId());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,180 @@
+package com.codereviewer.rules;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.LineRanges;
+import com.codereviewer.model.LineStream;
+import com.codereviewer.model.SourceView;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 流式分析的字节扫描（{@link StyleRule#checkBytes}）与解码后逐行检查（{@link StyleRule#checkLine}）的结果一致，
+ * 包括多字节字符被分块切开、CRLF 换行和没有结尾换行的情况。
+ */
+public class StyleRuleTest {
+
+    private static final String LONG_CHINESE = "        // " + repeat("中文注释", 30) + "\n";
+
+    private final StyleRule rule = new StyleRule();
+
+    @Test
+    public void chineseLineLengthCountsCharactersNotBytes() throws IOException {
+        // 110 个汉字约 330 字节，码点数未超过上限
+        String content = "// " + repeat("汉", 110) + "\n" + LONG_CHINESE;
+        List<String> issues = scanBytes(content, 1 << 16, null);
+        assertEquals(List.of("STYLE_001:2:[131]"), issues);
+        assertParity(content);
+    }
+
+    @Test
+    public void multibyteCharactersSplitAcrossChunks() throws IOException {
+        String content = "class A {\n" + LONG_CHINESE + "\t\tint x = 1; \n" + repeat("字", 121) + "\n}\n";
+        List<String> expected = decodeLines(content, null);
+        // 每次只读 1 到 7 个字节，汉字的三个字节和换行会落在不同的块中
+        for (int step = 1; step <= 7; step++) {
+            assertEquals("每次读取 " + step + " 字节", expected, scanBytes(content, step, null));
+        }
+        assertTrue(expected.contains("STYLE_001:2:[131]"));
+        assertTrue(expected.contains("STYLE_002:3:null"));
+        assertTrue(expected.contains("STYLE_003:3:null"));
+        assertTrue(expected.contains("STYLE_001:4:[121]"));
+    }
+
+    @Test
+    public void crlfLineEndings() throws IOException {
+        // '\r' 计入行长，不算行末空白；两种实现一致
+        String content = "int a = 1;\r\n\tint b = 2; \r\n" + repeat("x", 120) + "\r\n";
+        assertParity(content);
+        assertTrue(scanBytes(content, 3, null).contains("STYLE_002:2:null"));
+    }
+
+    @Test
+    public void lastLineWithoutNewline() throws IOException {
+        assertParity("int a = 1;\n\tint b = 2; ");
+        assertParity("class A {}\n" + repeat("中", 125));
+        assertEquals(List.of("STYLE_002:2:null", "STYLE_003:2:null"), scanBytes("int a = 1;\n\tint b = 2; ", 2, null));
+    }
+
+    @Test
+    public void trailingEmptyLinesAreIgnoredForLineCount() throws IOException {
+        for (String content : List.of("", "a\n", "a\n\n\n", "\n\n\ta\n\n", "a")) {
+            int expected = SourceView.of(content).getLineCount();
+            int scanned = rule.checkBytes("A.java", channel(content, 2), null, new ArrayList<>());
+            assertEquals("内容 " + Arrays.toString(content.getBytes(StandardCharsets.UTF_8)), expected, scanned);
+        }
+    }
+
+    @Test
+    public void braceOnlyLinesAreNotReportedFromBytes() throws IOException {
+        // 注释和文本块中的 "{" 无法在字节上区分，流式分析不报告 STYLE_004
+        String content = "class A\n{\n    /*\n    {\n    */\n}\n";
+        assertEquals(List.of(), scanBytes(content, 4, null));
+        assertEquals(List.of(), decodeLines(content, null));
+    }
+
+    @Test
+    public void scopeLimitsReportedLines() throws IOException {
+        String content = "\ta\n\tb\n\tc\n\td\n";
+        // 编辑区间为第 2、3 行（从 0 开始为 1、2）
+        EditList edits = new EditList();
+        edits.add(new Edit(1, 1, 1, 3));
+        LineRanges scope = LineRanges.of(edits, 0, 4);
+        assertEquals(List.of("STYLE_002:2:null", "STYLE_002:3:null"), scanBytes(content, 3, scope));
+        assertEquals(decodeLines(content, scope), scanBytes(content, 3, scope));
+    }
+
+    private void assertParity(String content) throws IOException {
+        List<String> expected = decodeLines(content, null);
+        assertEquals(expected, fullLines(content));
+        for (int step : new int[]{1, 2, 3, 5, 8, 13, 1 << 16}) {
+            assertEquals("每次读取 " + step + " 字节", expected, scanBytes(content, step, null));
+        }
+    }
+
+    private List<String> scanBytes(String content, int step, LineRanges scope) throws IOException {
+        List<CodeIssue> issues = new ArrayList<>();
+        rule.checkBytes("A.java", channel(content, step), scope, issues);
+        return describe(issues);
+    }
+
+    // 流式分析原先的实现：按块解码后逐行检查
+    private List<String> decodeLines(String content, LineRanges scope) throws IOException {
+        List<CodeIssue> issues = new ArrayList<>();
+        LineStream.read(channel(content, 1 << 16), 4096, line -> {
+            if (scope == null || scope.contains(line.getIndex())) {
+                rule.checkLine("A.java", line, null, issues);
+            }
+            return true;
+        });
+        return describe(issues);
+    }
+
+    // 完整分析的行视图，不传入词法单元时同样跳过大括号的检查
+    private List<String> fullLines(String content) {
+        SourceView source = SourceView.of(content);
+        List<CodeIssue> issues = new ArrayList<>();
+        for (int i = 0; i < source.getLineCount(); i++) {
+            rule.checkLine("A.java", source.line(i), null, issues);
+        }
+        return describe(issues);
+    }
+
+    private static List<String> describe(List<CodeIssue> issues) {
+        List<String> described = new ArrayList<>();
+        for (CodeIssue issue : issues) {
+            described.add(issue.getRuleId() + ":" + issue.getLineNumber() + ":" + Arrays.toString(issue.getArgs()));
+        }
+        return described;
+    }
+
+    // 每次最多返回 step 个字节的通道
+    private static ReadableByteChannel channel(String content, int step) {
+        ByteBuffer source = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        return new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer target) {
+                if (!source.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(step, Math.min(target.remaining(), source.remaining()));
+                ByteBuffer slice = source.duplicate();
+                slice.limit(slice.position() + n);
+                target.put(slice);
+                source.position(source.position() + n);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,317 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisCacheTest {
+
+    private static final RuleDescriptor RULE = RuleDescriptor.of("NAMING_001", Severity.INFO,
+            "类名 {0} 应使用大驼峰命名", "将 {0} 改为 {1}");
+
+    // 数据文件头 16 字节，记录开头是 blob id 与指纹
+    private static final int RECORD_START = 16 + 20 + 8;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    // 在另一个进程中打开缓存并持有锁，标准输入关闭后关闭缓存
+    public static final class LockHolder {
+        public static void main(String[] args) throws IOException {
+            try (AnalysisCache cache = AnalysisCache.open(Paths.get(args[0]), 1 << 20)) {
+                if (cache == null) {
+                    System.out.println("BUSY");
+                    return;
+                }
+                cache.put(key(9), issues(1, "other"));
+                System.out.println("LOCKED");
+                System.out.flush();
+                while (System.in.read() >= 0) {
+                    // 等待父进程关闭标准输入
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roundTripSurvivesReopen() throws IOException {
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(3, "x"));
+            cache.put(key(2), Collections.emptyList());
+            assertNull(cache.get(key(3), "A.java"));
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertEquals(2, cache.size());
+            List<CodeIssue> read = cache.get(key(1), "A.java");
+            assertEquals(3, read.size());
+            assertEquals("A.java", read.get(2).getFileName());
+            assertEquals(3, read.get(2).getLineNumber());
+            assertEquals("类名 x2 应使用大驼峰命名", read.get(2).getMessage());
+            assertEquals("将 x2 改为 X2", read.get(2).getSuggestion());
+            // 同一记录中的问题共用一个规则描述
+            assertSame(read.get(0).getRule(), read.get(2).getRule());
+            assertTrue(cache.get(key(2), "B.java").isEmpty());
+            assertEquals(2, cache.getHits());
+        }
+    }
+
+    @Test
+    public void argumentsLongerThan64KbAndManyArgumentsRoundTrip() throws IOException {
+        char[] chars = new char[40_000];
+        Arrays.fill(chars, '中');
+        String longArg = new String(chars);
+        Object[] args = new Object[300];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = i == 0 ? longArg : "a" + i;
+        }
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), List.of(new CodeIssue("A.java", 1, RULE, args)));
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            CodeIssue issue = cache.get(key(1), "A.java").get(0);
+            assertEquals(longArg, issue.getArgs()[0]);
+            assertEquals(300, issue.getArgs().length);
+            assertEquals("a299", issue.getArgs()[299]);
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverLimit() throws Exception {
+        Path dir = tmp.getRoot().toPath();
+        long recordBytes;
+        try (AnalysisCache cache = AnalysisCache.open(dir, Long.MAX_VALUE)) {
+            cache.put(key(1), issues(20, "a"));
+        }
+        recordBytes = Files.size(dir.resolve("analysis-cache.dat")) - 16;
+
+        try (AnalysisCache cache = AnalysisCache.open(dir, recordBytes * 2)) {
+            Thread.sleep(5);
+            cache.put(key(2), issues(20, "b"));
+            Thread.sleep(5);
+            cache.put(key(3), issues(20, "c"));
+            Thread.sleep(5);
+            // 访问最早写入的记录后，最久未访问的是 key(2)
+            assertNotNull(cache.get(key(1), "A.java"));
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, recordBytes * 2)) {
+            assertEquals(2, cache.size());
+            assertTrue(cache.contains(key(1)));
+            assertFalse(cache.contains(key(2)));
+            assertTrue(cache.contains(key(3)));
+        }
+    }
+
+    @Test
+    public void compactsDeadRecords() throws IOException {
+        Path single = tmp.newFolder("single").toPath();
+        try (AnalysisCache cache = AnalysisCache.open(single, 1 << 20)) {
+            cache.put(key(1), issues(10, "v4"));
+        }
+
+        Path dir = tmp.newFolder("rewritten").toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            for (int i = 0; i < 5; i++) {
+                cache.put(key(1), issues(10, "v" + i));
+            }
+        }
+        // 覆盖写入留下的旧记录在关闭时被压缩掉
+        assertEquals(Files.size(single.resolve("analysis-cache.dat")), Files.size(dir.resolve("analysis-cache.dat")));
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertEquals(1, cache.size());
+            assertEquals("类名 v40 应使用大驼峰命名", cache.get(key(1), "A.java").get(0).getMessage());
+            cache.put(key(2), issues(10, "w"));
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertEquals(2, cache.size());
+            assertEquals("类名 v40 应使用大驼峰命名", cache.get(key(1), "A.java").get(0).getMessage());
+            assertEquals("类名 w0 应使用大驼峰命名", cache.get(key(2), "A.java").get(0).getMessage());
+        }
+    }
+
+    @Test
+    public void indexFromBeforeCompactionIsDiscarded() throws IOException {
+        Path dir = tmp.getRoot().toPath();
+        Path index = dir.resolve("analysis-cache.idx");
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(10, "old"));
+            cache.put(key(2), issues(10, "old"));
+        }
+        Path staleIndex = tmp.newFile("stale.idx").toPath();
+        Files.copy(index, staleIndex, StandardCopyOption.REPLACE_EXISTING);
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            for (int i = 0; i < 4; i++) {
+                cache.put(key(2), issues(10, "new" + i));
+            }
+        }
+        // 模拟压缩后的数据文件已替换、索引还没写入时中断
+        Files.copy(staleIndex, index, StandardCopyOption.REPLACE_EXISTING);
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertEquals(0, cache.size());
+            assertNull(cache.get(key(1), "A.java"));
+        }
+    }
+
+    @Test
+    public void corruptRecordIsAMissAndIsDropped() throws IOException {
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(2, "x"));
+        }
+        // 把记录开头的问题数改成一个巨大的值
+        try (RandomAccessFile data = new RandomAccessFile(dir.resolve("analysis-cache.dat").toFile(), "rw")) {
+            data.seek(RECORD_START);
+            data.writeInt(Integer.MAX_VALUE);
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertNull(cache.get(key(1), "A.java"));
+            assertEquals(1, cache.getMisses());
+            assertFalse(cache.contains(key(1)));
+        }
+    }
+
+    @Test
+    public void corruptSeverityIsAMiss() throws IOException {
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(1, "x"));
+        }
+        // 问题数、行号、级别名长度之后是级别名 "INFO"
+        try (RandomAccessFile data = new RandomAccessFile(dir.resolve("analysis-cache.dat").toFile(), "rw")) {
+            data.seek(RECORD_START + 12);
+            data.write(new byte[]{'X', 'X', 'X', 'X'});
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertNull(cache.get(key(1), "A.java"));
+        }
+    }
+
+    @Test
+    public void unrecognizedDataFileStartsEmpty() throws IOException {
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(1, "x"));
+        }
+        Files.write(dir.resolve("analysis-cache.dat"), new byte[]{1, 2, 3});
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertEquals(0, cache.size());
+            cache.put(key(2), issues(1, "y"));
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertArrayEquals(new Object[]{"y0", "Y0"}, cache.get(key(2), "A.java").get(0).getArgs());
+        }
+    }
+
+    @Test
+    public void secondInstanceInTheSameProcessGetsNoCache() throws IOException {
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(1, "x"));
+            assertNull(AnalysisCache.open(dir, 1 << 20));
+        }
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertNotNull(cache);
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void directoryLockedByAnotherProcess() throws Exception {
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(1, "x"));
+        }
+        List<String> command = List.of(new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp",
+                System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")),
+                LockHolder.class.getName(), dir.toString());
+        Process holder = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try {
+            BufferedReader out = new BufferedReader(new InputStreamReader(holder.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("LOCKED", out.readLine());
+            assertNull(AnalysisCache.open(dir, 1 << 20));
+        } finally {
+            holder.getOutputStream().close();
+            assertTrue(holder.waitFor(30, TimeUnit.SECONDS));
+        }
+        assertEquals(0, holder.exitValue());
+        // 另一个进程关闭后两边写入的记录都在
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertEquals(2, cache.size());
+            assertEquals("类名 x0 应使用大驼峰命名", cache.get(key(1), "A.java").get(0).getMessage());
+            assertEquals("类名 other0 应使用大驼峰命名", cache.get(key(9), "A.java").get(0).getMessage());
+        }
+    }
+
+    @Test
+    public void recordOfAnotherKeyIsAMiss() throws IOException {
+        Path dir = tmp.getRoot().toPath();
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            cache.put(key(1), issues(1, "a"));
+            cache.put(key(2), issues(1, "b"));
+        }
+        // 交换两个索引项的偏移与长度，让每个键都指向另一个文件的记录
+        Path index = dir.resolve("analysis-cache.idx");
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(index));
+        int header = 4 + 4 + 8 + 4;
+        int entry = 20 + 8 + 8 + 4 + 8;
+        long firstOffset = buffer.getLong(header + 28);
+        int firstLength = buffer.getInt(header + 36);
+        buffer.putLong(header + 28, buffer.getLong(header + entry + 28));
+        buffer.putInt(header + 36, buffer.getInt(header + entry + 36));
+        buffer.putLong(header + entry + 28, firstOffset);
+        buffer.putInt(header + entry + 36, firstLength);
+        Files.write(index, buffer.array());
+
+        try (AnalysisCache cache = AnalysisCache.open(dir, 1 << 20)) {
+            assertEquals(2, cache.size());
+            assertNull(cache.get(key(1), "A.java"));
+            assertNull(cache.get(key(2), "A.java"));
+            assertEquals(0, cache.getHits());
+            assertEquals(0, cache.size());
+        }
+    }
+
+    private static AnalysisCache.Key key(int n) {
+        byte[] raw = new byte[20];
+        raw[19] = (byte) n;
+        return new AnalysisCache.Key(ObjectId.fromRaw(raw), 42L);
+    }
+
+    private static List<CodeIssue> issues(int count, String name) {
+        List<CodeIssue> issues = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            issues.add(new CodeIssue("Cached.java", i + 1, RULE, name + i, (name + i).toUpperCase()));
+        }
+        return issues;
+    }
+}
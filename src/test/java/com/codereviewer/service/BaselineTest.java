@@ -0,0 +1,174 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 基线指纹不随行号、缩进和消息参数变化，同一文件中相同的问题按出现序号区分。
+ */
+public class BaselineTest {
+
+    private static final RuleDescriptor LONG_METHOD = RuleDescriptor.of("COMPLEXITY_002", Severity.WARNING,
+            "方法过长 ({0} 行)", "拆分方法");
+    private static final RuleDescriptor EMPTY_CATCH = RuleDescriptor.of("BEST_PRACTICE_001", Severity.WARNING,
+            "空的 catch 块", "至少记录异常");
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void fingerprintSurvivesLineShiftAndReindent() {
+        String before = "class A {\n    void run() {\n        try { x(); } catch (Exception e) {}\n    }\n}\n";
+        String after = "// 新增的注释\n\nclass A {\n\tvoid run() {\n\t\ttry {x();} catch(Exception e){}\n\t}\n}\n";
+
+        long[] old = IssueFingerprints.compute(result("A.java", before, issue("A.java", 3, EMPTY_CATCH)));
+        long[] moved = IssueFingerprints.compute(result("A.java", after, issue("A.java", 5, EMPTY_CATCH)));
+        assertEquals(old[0], moved[0]);
+
+        // 行内容真正改变、规则或路径不同时指纹不同
+        String changed = before.replace("x();", "y();");
+        assertNotEquals(old[0], IssueFingerprints.compute(result("A.java", changed, issue("A.java", 3, EMPTY_CATCH)))[0]);
+        assertNotEquals(old[0], IssueFingerprints.compute(result("A.java", before, issue("A.java", 3, LONG_METHOD, 80)))[0]);
+        assertNotEquals(old[0], IssueFingerprints.compute(result("B.java", before, issue("B.java", 3, EMPTY_CATCH)))[0]);
+    }
+
+    @Test
+    public void messageArgumentsDoNotAffectFingerprint() {
+        String content = "class A {\n    void run() {\n    }\n}\n";
+        long first = IssueFingerprints.compute(result("A.java", content, issue("A.java", 2, LONG_METHOD, 60)))[0];
+        long second = IssueFingerprints.compute(result("A.java", content, issue("A.java", 2, LONG_METHOD, 95)))[0];
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void duplicateOccurrencesGetDistinctFingerprints() throws IOException {
+        String line = "        try { x(); } catch (Exception e) {}\n";
+        String two = "class A {\n" + line + line + "}\n";
+        long[] known = IssueFingerprints.compute(result("A.java", two,
+                issue("A.java", 2, EMPTY_CATCH), issue("A.java", 3, EMPTY_CATCH)));
+        assertNotEquals(known[0], known[1]);
+
+        Path file = tmp.getRoot().toPath().resolve("baseline.bin");
+        assertEquals(2, Baseline.write(file, known));
+        Baseline baseline = Baseline.open(file);
+
+        // 第三次出现的相同问题是新问题，前两次仍被基线覆盖
+        String three = "class A {\n\n" + line + line + line + "}\n";
+        ReviewResult current = result("A.java", three,
+                issue("A.java", 3, EMPTY_CATCH), issue("A.java", 4, EMPTY_CATCH), issue("A.java", 5, EMPTY_CATCH));
+        ReviewResult filtered = baseline.filter(current);
+        assertEquals(1, filtered.getTotalIssues());
+        assertEquals(5, filtered.getIssues().get(0).getLineNumber());
+        assertEquals(2, filtered.getSuppressedIssues());
+        assertEquals(current.getFileChanges(), filtered.getFileChanges());
+    }
+
+    @Test
+    public void duplicateFingerprintsAreStoredOnce() throws IOException {
+        Path file = tmp.getRoot().toPath().resolve("baseline.bin");
+        assertEquals(2, Baseline.write(file, new long[]{7, 7, 9, 7}));
+        Baseline baseline = Baseline.open(file);
+        assertEquals(2, baseline.size());
+        assertTrue(baseline.contains(7));
+        assertTrue(baseline.contains(9));
+        assertFalse(baseline.contains(8));
+    }
+
+    @Test
+    public void zeroFingerprintIsNotAnEmptySlot() throws IOException {
+        Path empty = tmp.getRoot().toPath().resolve("empty.bin");
+        Baseline.write(empty, new long[0]);
+        assertFalse(Baseline.open(empty).contains(0));
+
+        Path file = tmp.getRoot().toPath().resolve("zero.bin");
+        assertEquals(1, Baseline.write(file, new long[]{0}));
+        Baseline baseline = Baseline.open(file);
+        assertTrue(baseline.contains(0));
+        assertFalse(baseline.contains(2));
+    }
+
+    @Test
+    public void manyFingerprintsWithCollidingSlots() throws IOException {
+        Random random = new Random(7);
+        long[] fingerprints = new long[5000];
+        for (int i = 0; i < fingerprints.length; i++) {
+            // 低位相同、高位不同的指纹也要分散到不同槽位或正确探测
+            fingerprints[i] = i % 2 == 0 ? random.nextLong() : ((long) i << 40);
+        }
+        Path file = tmp.getRoot().toPath().resolve("many.bin");
+        assertEquals(fingerprints.length, Baseline.write(file, fingerprints));
+        Baseline baseline = Baseline.open(file);
+        for (long fingerprint : fingerprints) {
+            assertTrue(baseline.contains(fingerprint));
+        }
+        assertFalse(baseline.contains(1L << 40 | 1));
+        assertFalse(baseline.contains(3));
+    }
+
+    @Test
+    public void rejectsInvalidFiles() throws IOException {
+        Path file = tmp.getRoot().toPath().resolve("baseline.bin");
+        Files.write(file, new byte[]{1, 2, 3});
+        assertInvalid(file);
+
+        Baseline.write(file, new long[]{1, 2, 3});
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+        assertInvalid(file);
+    }
+
+    @Test
+    public void missingFileContentStillFingerprintsStably() {
+        ReviewResult first = new ReviewResult();
+        first.setFileChanges(new ArrayList<>());
+        first.setIssues(List.of(issue("Gone.java", 4, EMPTY_CATCH)));
+        ReviewResult second = new ReviewResult();
+        second.setFileChanges(new ArrayList<>());
+        second.setIssues(List.of(issue("Gone.java", 9, EMPTY_CATCH)));
+        assertEquals(IssueFingerprints.compute(first)[0], IssueFingerprints.compute(second)[0]);
+    }
+
+    private static void assertInvalid(Path file) {
+        try {
+            Baseline.open(file);
+            fail("应拒绝无效的基线文件");
+        } catch (IOException expected) {
+            // 预期
+        }
+    }
+
+    private static CodeIssue issue(String file, int line, RuleDescriptor rule, Object... args) {
+        return new CodeIssue(file, line, rule, args);
+    }
+
+    private static ReviewResult result(String path, String content, CodeIssue... issues) {
+        FileChange change = new FileChange();
+        change.setFilePath(path);
+        change.setChangeType("MODIFY");
+        change.setContent(content);
+        ReviewResult result = new ReviewResult();
+        result.setFileChanges(List.of(change));
+        result.setIssues(List.of(issues));
+        return result;
+    }
+}
@@ -0,0 +1,160 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.IssueStore;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.RuleDescriptor;
+import com.codereviewer.model.Severity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryResultFormatTest {
+
+    private static final RuleDescriptor LONG_METHOD = RuleDescriptor.of("COMPLEXITY_001", Severity.WARNING,
+            "方法 {0} 过长（{1} 行）", "拆分方法 {0}");
+    private static final RuleDescriptor SECRET = RuleDescriptor.of("SECURITY_001", Severity.CRITICAL,
+            "疑似硬编码的密钥", null);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void roundTripKeepsFilesIssuesAndAttributes() throws IOException {
+        ReviewResult result = sample();
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("shardIndex", "1");
+        attributes.put("positions", "0,3");
+        File file = tmp.newFile("result.bin");
+        BinaryResultFormat.write(file, result, attributes);
+
+        BinaryResultFormat.Contents contents = BinaryResultFormat.read(file);
+        ReviewResult read = contents.getResult();
+        assertEquals(attributes, contents.getAttributes());
+        assertTrue(read.isCancelled());
+        assertEquals(2, read.getSkippedFiles());
+        assertEquals(5, read.getSuppressedIssues());
+
+        assertEquals(2, read.getFileChanges().size());
+        FileChange change = read.getFileChanges().get(1);
+        assertEquals("src/中文/B.java", change.getFilePath());
+        assertEquals("ADD", change.getChangeType());
+        assertEquals("b2", change.getBlobId());
+
+        List<CodeIssue> issues = read.getIssues();
+        assertEquals(3, issues.size());
+        assertEquals("src/A.java", issues.get(0).getFileName());
+        assertEquals(120, issues.get(0).getLineNumber());
+        assertEquals("方法 run 过长（88 行）", issues.get(0).getMessage());
+        assertEquals("拆分方法 run", issues.get(0).getSuggestion());
+        assertEquals(7, issues.get(1).getLineNumber());
+        assertEquals("    String key = \"abc\";", issues.get(1).getCodeSnippet());
+        assertNull(issues.get(1).getSuggestion());
+        // 行号差可以为负
+        assertEquals(3, issues.get(2).getLineNumber());
+        assertEquals("src/中文/B.java", issues.get(2).getFileName());
+        // 同一规则只写一次，读回后共享同一个描述
+        assertSame(read.getIssueStore().rule(0), read.getIssueStore().rule(2));
+    }
+
+    @Test
+    public void rewritingReadResultGivesSameBytes() throws IOException {
+        File first = tmp.newFile("first.bin");
+        File second = tmp.newFile("second.bin");
+        BinaryResultFormat.write(first, sample());
+        BinaryResultFormat.write(second, BinaryResultFormat.read(first).getResult());
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    }
+
+    @Test
+    public void everyTruncationIsReportedAsIOException() throws IOException {
+        File file = tmp.newFile("result.bin");
+        BinaryResultFormat.write(file, sample());
+        byte[] data = Files.readAllBytes(file.toPath());
+        for (int length = 0; length < data.length; length++) {
+            File truncated = tmp.newFile("truncated-" + length + ".bin");
+            Files.write(truncated.toPath(), Arrays.copyOf(data, length));
+            assertUnreadable(truncated);
+        }
+    }
+
+    @Test
+    public void corruptBytesNeverEscapeAsRuntimeException() throws IOException {
+        File file = tmp.newFile("result.bin");
+        BinaryResultFormat.write(file, sample());
+        byte[] data = Files.readAllBytes(file.toPath());
+        File corrupt = tmp.newFile("corrupt.bin");
+        // 魔数之后的每个字节依次改成几个典型的坏值：巨大的 varint、越界下标
+        for (int position = 4; position < data.length; position++) {
+            for (byte value : new byte[]{(byte) 0xff, 0x7f, 0x40}) {
+                byte[] changed = data.clone();
+                changed[position] = value;
+                Files.write(corrupt.toPath(), changed);
+                try {
+                    BinaryResultFormat.read(corrupt);
+                } catch (IOException expected) {
+                    // 可以识别为损坏
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hugeCountIsRejectedBeforeAllocating() throws IOException {
+        // 魔数、版本 1，字符串表数量为 0x7fffffff
+        File file = tmp.newFile("huge.bin");
+        Files.write(file.toPath(), new byte[]{'C', 'R', 'R', '1', 1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07});
+        assertUnreadable(file);
+    }
+
+    private static void assertUnreadable(File file) {
+        try {
+            BinaryResultFormat.read(file);
+            fail("应报告文件损坏: " + file.getName());
+        } catch (IOException expected) {
+            // 增量评审据此视为没有保存的状态
+        }
+    }
+
+    private static ReviewResult sample() {
+        FileChange a = new FileChange();
+        a.setFilePath("src/A.java");
+        a.setChangeType("MODIFY");
+        a.setBlobId("a1");
+        FileChange b = new FileChange();
+        b.setFilePath("src/中文/B.java");
+        b.setChangeType("ADD");
+        b.setBlobId("b2");
+
+        IssueStore issues = new IssueStore();
+        issues.add("src/A.java", 120, LONG_METHOD, "run", 88);
+        CodeIssue secret = new CodeIssue("src/A.java", 7, SECRET);
+        secret.setCodeSnippet("    String key = \"abc\";");
+        issues.add(secret);
+        issues.add("src/中文/B.java", 3, LONG_METHOD, "main", 61);
+
+        ReviewResult result = new ReviewResult();
+        result.setFileChanges(Arrays.asList(a, b));
+        result.setIssueStore(issues);
+        result.setCancelled(true);
+        result.setSkippedFiles(2);
+        result.setSuppressedIssues(5);
+        return result;
+    }
+}
@@ -0,0 +1,154 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.LineRanges;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 只检查变更行模式：编辑区间加上下文行后合并，逐行规则只检查区间内的行，方法规则只检查与区间重叠的方法。
+ */
+public class CodeAnalyzerChangedLinesTest {
+
+    // 第 0 行为类声明，三个 60 行的方法依次占据 1-60、61-120、121-180 行，第 181 行为类的右括号
+    private static final int[] TAB_LINES = {5, 12, 30, 70, 150, 178};
+    private static final int LINE_COUNT = 182;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void rangesMergeWithContext() {
+        LineRanges ranges = LineRanges.of(edits(), 2, LINE_COUNT);
+        // [12,13) 与 [16,17) 加上下文后重叠，合并为一个区间；纯删除的位置也保留上下文；末尾截断到行数
+        assertEquals(List.of("10-19", "148-152", "178-182"), describe(ranges));
+        assertEquals(9 + 4 + 4, ranges.lineCount());
+        assertTrue(ranges.contains(18));
+        assertFalse(ranges.contains(19));
+        assertFalse(ranges.contains(147));
+        assertTrue(ranges.overlaps(61, 150));
+        assertFalse(ranges.overlaps(61, 120));
+
+        // 没有上下文时相邻但不重叠的区间各自保留
+        assertEquals(List.of("12-13", "16-17", "180-181"), describe(LineRanges.of(edits(), 0, LINE_COUNT)));
+    }
+
+    @Test
+    public void onlyIssuesInsideTheHunksAreKept() {
+        CodeAnalyzer full = new CodeAnalyzer(1);
+        List<String> all = relevant(full.analyze(List.of(change(edits()))).getIssues());
+        assertEquals(List.of("COMPLEXITY_001:2", "COMPLEXITY_001:62", "COMPLEXITY_001:122", "STYLE_002:6",
+                "STYLE_002:13", "STYLE_002:31", "STYLE_002:71", "STYLE_002:151", "STYLE_002:179"), all);
+
+        CodeAnalyzer changedOnly = new CodeAnalyzer(1);
+        changedOnly.setChangedLinesOnly(true, 2);
+        List<String> kept = relevant(changedOnly.analyze(List.of(change(edits()))).getIssues());
+        // 第二个方法与任何区间都不重叠；第 5、30、70 行的 Tab 在区间之外
+        assertEquals(List.of("COMPLEXITY_001:2", "COMPLEXITY_001:122", "STYLE_002:13", "STYLE_002:151",
+                "STYLE_002:179"), kept);
+    }
+
+    @Test
+    public void addedFileWithoutEditListIsCheckedCompletely() {
+        CodeAnalyzer changedOnly = new CodeAnalyzer(1);
+        changedOnly.setChangedLinesOnly(true, 2);
+        FileChange added = change(null);
+        added.setChangeType("ADD");
+        assertEquals(9, relevant(changedOnly.analyze(List.of(added)).getIssues()).size());
+    }
+
+    @Test
+    public void cacheKeyDependsOnTheEditList() throws Exception {
+        try (AnalysisCache cache = AnalysisCache.open(tmp.newFolder("cache").toPath(), 1 << 20)) {
+            CodeAnalyzer analyzer = new CodeAnalyzer(1);
+            analyzer.setChangedLinesOnly(true, 2);
+            analyzer.setCache(cache);
+
+            List<String> first = relevant(analyzer.analyze(List.of(change(edits()))).getIssues());
+            assertEquals(first, relevant(analyzer.analyze(List.of(change(edits()))).getIssues()));
+            assertEquals(1, cache.getHits());
+
+            // 同一 blob 的编辑区间不同，不能沿用缓存的结果
+            EditList other = new EditList();
+            other.add(new Edit(60, 62, 60, 72));
+            List<String> second = relevant(analyzer.analyze(List.of(change(other))).getIssues());
+            assertEquals(1, cache.getHits());
+            assertEquals(2, cache.getMisses());
+            assertEquals(List.of("COMPLEXITY_001:2", "COMPLEXITY_001:62", "STYLE_002:71"), second);
+        }
+    }
+
+    private static EditList edits() {
+        EditList edits = new EditList();
+        edits.add(new Edit(12, 13, 12, 13));
+        edits.add(new Edit(16, 16, 16, 17));
+        edits.add(new Edit(150, 153, 150, 150));
+        edits.add(new Edit(183, 184, 180, 181));
+        return edits;
+    }
+
+    private static FileChange change(EditList edits) {
+        FileChange change = new FileChange();
+        change.setFilePath("src/T.java");
+        change.setChangeType("MODIFY");
+        change.setBlobId("0123456789abcdef0123456789abcdef01234567");
+        change.setEditList(edits);
+        change.setContent(source());
+        return change;
+    }
+
+    private static String source() {
+        List<String> lines = new ArrayList<>();
+        lines.add("class T {");
+        for (int m = 0; m < 3; m++) {
+            lines.add("    public void m" + m + "() {");
+            for (int i = 0; i < 58; i++) {
+                lines.add("        x();");
+            }
+            lines.add("    }");
+        }
+        lines.add("}");
+        for (int line : TAB_LINES) {
+            lines.set(line, "\tx();");
+        }
+        return String.join("\n", lines) + "\n";
+    }
+
+    // 只看 Tab 缩进和方法过长两类问题，按规则和行号排列
+    private static List<String> relevant(List<CodeIssue> issues) {
+        List<String> described = new ArrayList<>();
+        for (CodeIssue issue : issues) {
+            if (issue.getRuleId().equals("STYLE_002") || issue.getRuleId().equals("COMPLEXITY_001")) {
+                described.add(issue.getRuleId() + ":" + issue.getLineNumber());
+            }
+        }
+        described.sort((a, b) -> {
+            int byRule = a.substring(0, a.indexOf(':')).compareTo(b.substring(0, b.indexOf(':')));
+            return byRule != 0 ? byRule : Integer.compare(lineOf(a), lineOf(b));
+        });
+        return described;
+    }
+
+    private static int lineOf(String described) {
+        return Integer.parseInt(described.substring(described.indexOf(':') + 1));
+    }
+
+    private static List<String> describe(LineRanges ranges) {
+        List<String> described = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            described.add(ranges.start(i) + "-" + ranges.end(i));
+        }
+        return described;
+    }
+}
@@ -0,0 +1,88 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.rules.CodeRule;
+import com.codereviewer.rules.ReviewRule;
+import com.codereviewer.rules.RuleScope;
+import com.codereviewer.rules.RuleSet;
+import com.codereviewer.rules.TokenRule;
+import com.codereviewer.utils.TokenStream;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 时间预算在词法分析和单次遍历内部生效，不必等整个遍历结束。
+ */
+public class CodeAnalyzerDeadlineTest {
+
+    @ReviewRule(id = "slow", scope = RuleScope.TOKEN)
+    public static class SlowTokenRule extends CodeRule implements TokenRule {
+        @Override
+        public void checkToken(String fileName, TokenStream tokens, int index, List<CodeIssue> issues) {
+            long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(50);
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Test
+    public void slowTokenPassStopsNearTheBudget() {
+        // 约 10 万个词法单元，完整执行需要 5 秒左右
+        CodeAnalyzer analyzer = new CodeAnalyzer(1, RuleSet.of(List.of(new SlowTokenRule())));
+        analyzer.setFileTimeBudget(100);
+
+        long start = System.nanoTime();
+        List<CodeIssue> issues = analyze(analyzer, source(20_000));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("应在预算附近停止，实际 " + millis + " ms", millis < 2000);
+        CodeIssue last = issues.get(issues.size() - 1);
+        assertEquals("REVIEW_001", last.getRuleId());
+        assertTrue(last.getMessage(), last.getMessage().contains("SlowTokenRule"));
+    }
+
+    @Test
+    public void lexingStopsNearTheBudget() {
+        CodeAnalyzer analyzer = new CodeAnalyzer(1, RuleSet.of(List.of(new SlowTokenRule())));
+        analyzer.setFileTimeBudget(1);
+        // 不按大文件流式分析
+        analyzer.setStreaming(Long.MAX_VALUE, GeneratedFileDetector.Policy.FULL);
+
+        List<CodeIssue> issues = analyze(analyzer, source(400_000));
+        CodeIssue last = issues.get(issues.size() - 1);
+        assertEquals("REVIEW_001", last.getRuleId());
+        assertTrue(last.getMessage(), last.getMessage().contains("词法分析"));
+    }
+
+    @Test
+    public void noBudgetRunsEveryPass() {
+        CodeAnalyzer analyzer = new CodeAnalyzer(1, RuleSet.of(List.of(new SlowTokenRule())));
+        analyzer.setFileTimeBudget(0);
+        assertTrue(analyze(analyzer, source(10)).isEmpty());
+    }
+
+    private static List<CodeIssue> analyze(CodeAnalyzer analyzer, String content) {
+        FileChange change = new FileChange();
+        change.setFilePath("src/Generated.java");
+        change.setChangeType("ADD");
+        change.setContent(content);
+        ReviewResult result = analyzer.analyze(List.of(change));
+        return result.getIssues();
+    }
+
+    private static String source(int lines) {
+        StringBuilder text = new StringBuilder("class Generated {\n");
+        for (int i = 0; i < lines; i++) {
+            text.append("    int f").append(i).append(" = ").append(i).append(";\n");
+        }
+        return text.append("}\n").toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.SourceView;
+import com.codereviewer.rules.CodeRule;
+import com.codereviewer.rules.FileRule;
+import com.codereviewer.rules.RuleSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多线程流水线中各文件完成的先后不定，汇总后的问题顺序仍与单线程顺序执行相同，
+ * 且同时驻留内存的文件内容不超过队列深度与线程数之和。
+ */
+public class CodeAnalyzerPipelineTest {
+
+    private static final int FILES = 150;
+    private static final int THREADS = 4;
+    private static final int QUEUE_DEPTH = 3;
+
+    // 按文件路径随机等待，打乱各文件完成的顺序
+    public static class JitterRule extends FileRule {
+        @Override
+        public List<CodeIssue> check(FileChange fileChange, SourceView source) {
+            long micros = Math.floorMod(fileChange.getFilePath().hashCode() * 31L, 2000);
+            long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+            return List.of();
+        }
+    }
+
+    @Test
+    public void issueOrderMatchesSequentialRun() {
+        Map<String, String> contents = sources();
+        List<String> expected = describe(analyze(1, contents, new RecordingSource(contents)));
+        assertTrue("测试文件应产生问题", expected.size() > FILES);
+
+        for (int round = 0; round < 5; round++) {
+            RecordingSource source = new RecordingSource(contents);
+            ReviewResult result = analyze(THREADS, contents, source);
+            assertEquals("第 " + round + " 轮", expected, describe(result));
+            assertEquals(FILES, result.getFileChanges().size());
+            assertEquals(FILES, source.loads.get());
+            assertTrue(source.loaded.isEmpty());
+            // 生产线程手中最多还有一个已读入、等待入队的文件
+            assertTrue("同时驻留 " + source.maxLoaded.get(), source.maxLoaded.get() <= QUEUE_DEPTH + THREADS + 1);
+        }
+    }
+
+    @Test
+    public void contentIsReleasedAfterAnalysis() {
+        Map<String, String> contents = sources();
+        ReviewResult result = analyze(THREADS, contents, new RecordingSource(contents));
+        for (FileChange change : result.getFileChanges()) {
+            assertEquals(change.getFilePath(), 0, change.getContentLength());
+        }
+    }
+
+    private static ReviewResult analyze(int threads, Map<String, String> contents, ContentSource source) {
+        List<CodeRule> rules = new ArrayList<>(new CodeAnalyzer(1).getRules());
+        rules.add(new JitterRule());
+        CodeAnalyzer analyzer = new CodeAnalyzer(threads, RuleSet.of(rules));
+        analyzer.setQueueDepth(QUEUE_DEPTH);
+
+        List<FileChange> changes = new ArrayList<>();
+        for (String path : contents.keySet()) {
+            FileChange change = new FileChange();
+            change.setFilePath(path);
+            change.setChangeType("ADD");
+            changes.add(change);
+        }
+        return analyzer.analyze(changes, source);
+    }
+
+    private static List<String> describe(ReviewResult result) {
+        List<String> described = new ArrayList<>();
+        for (CodeIssue issue : result.getIssues()) {
+            described.add(issue.getFileName() + ":" + issue.getLineNumber() + ":" + issue.getRuleId()
+                    + ":" + issue.getMessage());
+        }
+        return described;
+    }
+
+    // 文件大小各不相同，默认读取顺序（从大到小）与文件原始顺序不同
+    private static Map<String, String> sources() {
+        Random random = new Random(11);
+        Map<String, String> contents = new LinkedHashMap<>();
+        for (int f = 0; f < FILES; f++) {
+            StringBuilder text = new StringBuilder("public class C").append(f).append(" {\n");
+            int methods = 1 + random.nextInt(6);
+            for (int m = 0; m < methods; m++) {
+                text.append("    public void m").append(m).append("(int a) {\n");
+                int lines = random.nextInt(60);
+                for (int l = 0; l < lines; l++) {
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            text.append("\t\tif (a > ").append(l).append(" && a < 100) { a++; }\n");
+                            break;
+                        case 1:
+                            text.append("        a += ").append(l).append("; \n");
+                            break;
+                        case 2:
+                            text.append("        String s").append(l).append(" = \"")
+                                    .append("x".repeat(100 + random.nextInt(40))).append("\";\n");
+                            break;
+                        default:
+                            text.append("        a = a * ").append(l).append(";\n");
+                            break;
+                    }
+                }
+                text.append("    }\n");
+            }
+            contents.put("src/C" + f + ".java", text.append("}\n").toString());
+        }
+        return contents;
+    }
+
+    // 记录同时处于已读入、未释放状态的文件数
+    private static final class RecordingSource implements ContentSource {
+        private final Map<String, String> contents;
+        private final Map<String, Boolean> loaded = new ConcurrentHashMap<>();
+        private final AtomicInteger loads = new AtomicInteger();
+        private final AtomicInteger maxLoaded = new AtomicInteger();
+
+        private RecordingSource(Map<String, String> contents) {
+            this.contents = new HashMap<>(contents);
+        }
+
+        @Override
+        public void load(FileChange change) {
+            change.setContent(contents.get(change.getFilePath()));
+            loaded.put(change.getFilePath(), Boolean.TRUE);
+            loads.incrementAndGet();
+            maxLoaded.accumulateAndGet(loaded.size(), Math::max);
+        }
+
+        @Override
+        public void release(FileChange change) {
+            change.setContent(null);
+            loaded.remove(change.getFilePath());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.codereviewer.service;
+
+import com.codereviewer.metrics.LatencyHistogram;
+import com.codereviewer.metrics.ReviewMetrics;
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.LineText;
+import com.codereviewer.model.SourceView;
+import com.codereviewer.rules.CodeRule;
+import com.codereviewer.rules.LineRule;
+import com.codereviewer.rules.ReviewRule;
+import com.codereviewer.rules.RuleScope;
+import com.codereviewer.rules.RuleSet;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 共用一次遍历的规则按各自的类名记录耗时，不再以遍历整体（"A+B"）的名字记录。
+ */
+public class CodeAnalyzerRuleTimingTest {
+
+    @ReviewRule(id = "slowLine", scope = RuleScope.LINE)
+    public static class SlowLineRule extends CodeRule implements LineRule {
+        @Override
+        public void checkLine(String fileName, LineText line, SourceView source, List<CodeIssue> issues) {
+            long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(100);
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @ReviewRule(id = "fastLine", scope = RuleScope.LINE)
+    public static class FastLineRule extends CodeRule implements LineRule {
+        @Override
+        public void checkLine(String fileName, LineText line, SourceView source, List<CodeIssue> issues) {
+            // 不做任何检查
+        }
+    }
+
+    @Test
+    public void fusedDefaultRulesAreReportedByClassName() {
+        ReviewMetrics metrics = new ReviewMetrics();
+        CodeAnalyzer analyzer = new CodeAnalyzer(1);
+        analyzer.setMetrics(metrics);
+        analyze(analyzer, "src/A.java", source(50), 2);
+
+        Map<String, LatencyHistogram> rules = metrics.getRules();
+        for (String name : new TreeSet<>(rules.keySet())) {
+            assertFalse(name, name.contains("+"));
+            assertEquals(name, 2, rules.get(name).getCount());
+        }
+        // 两个逐行规则共用一次遍历
+        RuleSet.Pass linePass = RuleSet.load(RuleSet.defaultConfig()).getPasses().get(0);
+        assertEquals("CyclomaticComplexityRule+StyleRule", linePass.getName());
+        assertTrue(rules.containsKey("CyclomaticComplexityRule"));
+        assertTrue(rules.containsKey("StyleRule"));
+    }
+
+    @Test
+    public void slowRuleIsChargedToItself() {
+        ReviewMetrics metrics = new ReviewMetrics();
+        CodeAnalyzer analyzer = new CodeAnalyzer(1, RuleSet.of(List.of(new FastLineRule(), new SlowLineRule())));
+        analyzer.setMetrics(metrics);
+        // 1000 行，慢规则约 100 ms
+        analyze(analyzer, "src/A.java", source(1000), 1);
+
+        long slow = metrics.getRules().get("SlowLineRule").getTotalNanos();
+        long fast = metrics.getRules().get("FastLineRule").getTotalNanos();
+        assertTrue("慢规则 " + slow + " ns", slow > TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue("快规则 " + fast + " ns，慢规则 " + slow + " ns", fast * 10 < slow);
+        assertEquals(2, metrics.getRules().size());
+    }
+
+    @Test
+    public void streamedRulesAreReportedByClassName() {
+        ReviewMetrics metrics = new ReviewMetrics();
+        CodeAnalyzer analyzer = new CodeAnalyzer(1);
+        analyzer.setMetrics(metrics);
+        analyzer.setStreaming(1024, GeneratedFileDetector.Policy.FULL);
+        analyze(analyzer, "src/Big.java", source(2000), 1);
+
+        // 需要词法单元的规则不执行，也不记录
+        assertEquals(new TreeSet<>(List.of("StyleRule")), new TreeSet<>(metrics.getRules().keySet()));
+        assertEquals(1, metrics.getRules().get("StyleRule").getCount());
+    }
+
+    private static void analyze(CodeAnalyzer analyzer, String path, String content, int files) {
+        for (int i = 0; i < files; i++) {
+            FileChange change = new FileChange();
+            change.setFilePath(path);
+            change.setChangeType("ADD");
+            change.setContent(content);
+            analyzer.analyze(List.of(change));
+        }
+    }
+
+    private static String source(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("\tif (a && b) { x(").append(i).append("); }\n");
+        }
+        return text.toString();
+    }
+}
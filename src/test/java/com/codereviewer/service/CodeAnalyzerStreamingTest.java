@@ -0,0 +1,134 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.ContentLoader;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.rules.CyclomaticComplexityRule;
+import com.codereviewer.rules.RuleSet;
+import com.codereviewer.rules.StyleRule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 超过流式阈值的文件：默认规则集只做一遍字节扫描，不再解码；字节扫描同样受单个文件的时间预算限制。
+ */
+public class CodeAnalyzerStreamingTest {
+
+    @Test
+    public void tokenLineRulesAreNotStreamed() {
+        RuleSet rules = RuleSet.load(RuleSet.defaultConfig());
+        assertTrue(rules.getLineRuleNames().contains("CyclomaticComplexityRule"));
+        assertTrue(RuleSet.needsTokens(CyclomaticComplexityRule.class));
+        assertFalse(RuleSet.needsTokens(StyleRule.class));
+        assertEquals(List.of(), rules.getStreamedLineRuleNames());
+        assertEquals(List.of("StyleRule"), rules.getByteLineRuleNames());
+    }
+
+    @Test
+    public void defaultRulesReadStreamedFileOnce() {
+        CountingLoader loader = new CountingLoader(source(2000).getBytes(StandardCharsets.UTF_8), 0);
+        CodeAnalyzer analyzer = new CodeAnalyzer(1);
+        analyzer.setStreaming(1024, GeneratedFileDetector.Policy.FULL);
+
+        List<CodeIssue> issues = analyze(analyzer, loader);
+
+        // 只有字节扫描打开过内容，没有第二次解码
+        assertEquals(1, loader.opens.get());
+        assertEquals(2000, count(issues, "STYLE_002"));
+        assertEquals(0, count(issues, "REVIEW_001"));
+    }
+
+    @Test
+    public void byteScanStopsAtTheBudget() {
+        // 每块读取前等待 20 ms，完整扫描约 64 块需要 1 秒以上
+        byte[] content = source(200_000).getBytes(StandardCharsets.UTF_8);
+        CountingLoader loader = new CountingLoader(content, 20);
+        CodeAnalyzer analyzer = new CodeAnalyzer(1);
+        analyzer.setStreaming(1024, GeneratedFileDetector.Policy.FULL);
+        analyzer.setFileTimeBudget(50);
+
+        long start = System.nanoTime();
+        List<CodeIssue> issues = analyze(analyzer, loader);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("应在预算附近停止，实际 " + millis + " ms", millis < 600);
+        CodeIssue last = issues.get(issues.size() - 1);
+        assertEquals("REVIEW_001", last.getRuleId());
+        assertTrue(last.getMessage(), last.getMessage().contains("StyleRule"));
+        assertTrue(count(issues, "STYLE_002") > 0);
+        assertTrue(count(issues, "STYLE_002") < 200_000);
+    }
+
+    private static List<CodeIssue> analyze(CodeAnalyzer analyzer, ContentLoader loader) {
+        FileChange change = new FileChange();
+        change.setFilePath("src/Big.java");
+        change.setChangeType("ADD");
+        change.setContentLoader(loader);
+        ReviewResult result = analyzer.analyze(List.of(change));
+        return result.getIssues();
+    }
+
+    private static int count(List<CodeIssue> issues, String ruleId) {
+        int count = 0;
+        for (CodeIssue issue : issues) {
+            if (issue.getRuleId().equals(ruleId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 每行都以 Tab 缩进，且包含足以触发圈复杂度检查的条件
+    private static String source(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("\tif (a && b || c && d || e && f || g && h || i && j || k) { x(").append(i).append("); }\n");
+        }
+        return text.toString();
+    }
+
+    // 记录打开次数，读取时可以按块等待
+    private static final class CountingLoader implements ContentLoader {
+        private final byte[] bytes;
+        private final long delayMillis;
+        private final AtomicInteger opens = new AtomicInteger();
+
+        private CountingLoader(byte[] bytes, long delayMillis) {
+            this.bytes = bytes;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public long size() {
+            return bytes.length;
+        }
+
+        @Override
+        public InputStream openStream() {
+            opens.incrementAndGet();
+            return new ByteArrayInputStream(bytes) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    if (delayMillis > 0) {
+                        try {
+                            Thread.sleep(delayMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return super.read(b, off, len);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.codereviewer.service;
+
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import com.codereviewer.model.ReviewState;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 增量评审沿用保存的问题后，结果与对同一提交执行完整评审相同；基线提交变化时不能沿用。
+ */
+public class IncrementalReviewTest {
+
+    private static final String TABBED = "class {0} '{'\n\tint a;\n'}'\n";
+    private static final String CLEAN = "class {0} '{'\n    int a;\n'}'\n";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final IncrementalReview incrementalReview = new IncrementalReview();
+    private File dir;
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = tmp.newFolder("repo");
+        git = Git.init().setDirectory(dir).setInitialBranch("master").call();
+        write("A.java", CLEAN, "A");
+        write("B.java", CLEAN, "B");
+        write("C.java", CLEAN, "C");
+        commit("base");
+        git.checkout().setCreateBranch(true).setName("feature").call();
+        write("A.java", TABBED, "A");
+        write("B.java", TABBED, "B");
+        write("C.java", TABBED, "C");
+        write("D.java", TABBED, "D");
+        commit("feature");
+    }
+
+    @After
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void blobChangeIsReanalyzed() throws Exception {
+        ReviewState previous = saveFullReview();
+        write("A.java", TABBED + "\t// 新增\n", "A");
+        commit("change A");
+
+        Review review = review(previous);
+        assertEquals(List.of("A.java"), paths(review.reanalyzed));
+        assertEquals(describe(fullReview()), describe(review.result));
+    }
+
+    @Test
+    public void fileRevertedToBaseIsDropped() throws Exception {
+        ReviewState previous = saveFullReview();
+        write("B.java", CLEAN, "B");
+        commit("revert B");
+
+        Review review = review(previous);
+        assertEquals(List.of(), paths(review.reanalyzed));
+        assertEquals(List.of("A.java", "C.java", "D.java"), paths(review.result.getFileChanges()));
+        for (CodeIssue issue : review.result.getIssues()) {
+            assertFalse(issue.getFileName().equals("B.java"));
+        }
+        assertEquals(describe(fullReview()), describe(review.result));
+    }
+
+    @Test
+    public void deletedFileIsReanalyzed() throws Exception {
+        ReviewState previous = saveFullReview();
+        git.rm().addFilepattern("C.java").call();
+        commit("delete C");
+
+        Review review = review(previous);
+        assertEquals(List.of("C.java"), paths(review.reanalyzed));
+        assertEquals("DELETE", review.reanalyzed.get(0).getChangeType());
+        for (CodeIssue issue : review.result.getIssues()) {
+            assertFalse(issue.getFileName().equals("C.java"));
+        }
+        assertEquals(describe(fullReview()), describe(review.result));
+    }
+
+    @Test
+    public void truncatedFileIsReanalyzed() throws Exception {
+        // 上次 D.java 超出时间预算，只有部分结果
+        ReviewState complete = saveFullReview();
+        List<CodeIssue> issues = new ArrayList<>(complete.getIssues());
+        issues.add(new CodeIssue("D.java", 1, "INFO", "REVIEW_001", "文件分析超出时间预算 (1 ms)", "排除该文件"));
+        complete.setIssues(issues);
+        assertTrue(CodeAnalyzer.isBudgetExceeded(issues.get(issues.size() - 1)));
+
+        Review review = review(complete);
+        assertEquals(List.of("D.java"), paths(review.reanalyzed));
+        assertEquals(describe(fullReview()), describe(review.result));
+    }
+
+    @Test
+    public void baseCommitChangeForcesFullReview() throws Exception {
+        ReviewState previous = saveFullReview();
+        try (GitService gitService = new GitService()) {
+            gitService.getChangedFiles(dir, "master");
+            assertFalse(incrementalReview.baseChanged(previous, gitService.getReviewedBase()));
+        }
+
+        // 基线分支前进后，即使 HEAD 没有变化，编辑区间相对的基线也已不同
+        git.checkout().setName("master").call();
+        write("E.java", CLEAN, "E");
+        commit("advance master");
+        git.checkout().setName("feature").call();
+        try (GitService gitService = new GitService()) {
+            gitService.getChangedFiles(dir, "master");
+            assertTrue(incrementalReview.baseChanged(previous, gitService.getReviewedBase()));
+        }
+    }
+
+    // 完整评审并保存状态，再读回
+    private ReviewState saveFullReview() throws Exception {
+        File stateFile = new File(tmp.getRoot(), IncrementalReview.STATE_FILE);
+        try (GitService gitService = new GitService()) {
+            List<FileChange> changes = gitService.getChangedFiles(dir, "master");
+            ReviewResult result = new CodeAnalyzer(1).analyze(changes, gitService.contentSource());
+            incrementalReview.save(stateFile, gitService.getReviewedHead(), gitService.getReviewedBase(), "options",
+                    result);
+        }
+        ReviewState state = incrementalReview.load(stateFile);
+        assertNotNull(state);
+        assertFalse(state.getIssues().isEmpty());
+        return state;
+    }
+
+    private ReviewResult fullReview() throws Exception {
+        try (GitService gitService = new GitService()) {
+            List<FileChange> changes = gitService.getChangedFiles(dir, "master");
+            return new CodeAnalyzer(1).analyze(changes, gitService.contentSource());
+        }
+    }
+
+    private Review review(ReviewState previous) throws Exception {
+        try (GitService gitService = new GitService()) {
+            List<FileChange> changes = gitService.getChangedFiles(dir, "master");
+            assertFalse(incrementalReview.baseChanged(previous, gitService.getReviewedBase()));
+            List<FileChange> changed = incrementalReview.changedSince(previous, changes);
+            ReviewResult delta = new CodeAnalyzer(1).analyze(changed, gitService.contentSource());
+            return new Review(changed, incrementalReview.merge(previous, changes, changed, delta));
+        }
+    }
+
+    private void write(String path, String template, String className) throws Exception {
+        String content = MessageFormat.format(template, className);
+        Files.write(new File(dir, path).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void commit(String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        git.commit().setAll(true).setMessage(message).setAuthor("t", "t@example.com").call();
+    }
+
+    private static List<String> paths(List<FileChange> changes) {
+        List<String> paths = new ArrayList<>();
+        for (FileChange change : changes) {
+            paths.add(change.getFilePath());
+        }
+        return paths;
+    }
+
+    private static List<String> describe(ReviewResult result) {
+        List<String> described = new ArrayList<>();
+        for (CodeIssue issue : result.getIssues()) {
+            described.add(issue.getFileName() + ":" + issue.getLineNumber() + ":" + issue.getRuleId()
+                    + ":" + issue.getMessage());
+        }
+        return described;
+    }
+
+    private static final class Review {
+        private final List<FileChange> reanalyzed;
+        private final ReviewResult result;
+
+        private Review(List<FileChange> reanalyzed, ReviewResult result) {
+            this.reanalyzed = reanalyzed;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.codereviewer.service;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PathPatternFilterTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void suffixPattern() {
+        PathPatternFilter.Pattern pattern = new PathPatternFilter.Pattern("**/*.java");
+        assertTrue(pattern.matches("A.java"));
+        assertTrue(pattern.matches("src/main/java/A.java"));
+        assertFalse(pattern.matches("src/A.javax"));
+        assertFalse(pattern.matches("src/A.kt"));
+
+        PathPatternFilter.Pattern tests = new PathPatternFilter.Pattern("**/*Test.java");
+        assertTrue(tests.matches("src/test/FooTest.java"));
+        assertTrue(tests.matches("Test.java"));
+        assertFalse(tests.matches("src/test/TestFoo.java"));
+    }
+
+    @Test
+    public void doubleStarMatchesAnyNumberOfDirectories() {
+        PathPatternFilter.Pattern pattern = new PathPatternFilter.Pattern("src/**/service/*.java");
+        assertTrue(pattern.matches("src/service/A.java"));
+        assertTrue(pattern.matches("src/a/b/c/service/A.java"));
+        assertFalse(pattern.matches("src/a/service/sub/A.java"));
+        assertFalse(pattern.matches("lib/service/A.java"));
+
+        PathPatternFilter.Pattern consecutive = new PathPatternFilter.Pattern("**/**/gen/**/*.java");
+        assertTrue(consecutive.matches("gen/A.java"));
+        assertTrue(consecutive.matches("a/gen/b/c/A.java"));
+        assertFalse(consecutive.matches("a/generated/A.java"));
+
+        PathPatternFilter.Pattern wildcards = new PathPatternFilter.Pattern("src/**/Foo?*.java");
+        assertTrue(wildcards.matches("src/x/FooBar.java"));
+        assertTrue(wildcards.matches("src/Foo1.java"));
+        assertFalse(wildcards.matches("src/x/Foo.java"));
+
+        assertTrue(new PathPatternFilter.Pattern("**").matches("any/path/A.java"));
+    }
+
+    @Test
+    public void prefixAndDirectoryPatterns() {
+        PathPatternFilter.Pattern prefix = new PathPatternFilter.Pattern("src/main/**");
+        assertTrue(prefix.matches("src/main/A.java"));
+        assertTrue(prefix.matches("src/main/a/b/A.java"));
+        assertFalse(prefix.matches("src/mainx/A.java"));
+        assertFalse(prefix.matches("src/test/A.java"));
+
+        // 以 "/" 结尾的模式等价于 "/**"
+        PathPatternFilter.Pattern trailingSlash = new PathPatternFilter.Pattern("src/main/");
+        assertTrue(trailingSlash.matches("src/main/a/A.java"));
+        assertFalse(trailingSlash.matches("src/mainx/A.java"));
+
+        PathPatternFilter.Pattern directory = new PathPatternFilter.Pattern("**/target/**");
+        assertTrue(directory.matches("target/A.java"));
+        assertTrue(directory.matches("module/target/gen/A.java"));
+        assertFalse(directory.matches("module/targets/A.java"));
+        assertFalse(directory.matches("module/mytarget/A.java"));
+        assertFalse(directory.matches("module/target.java"));
+    }
+
+    @Test
+    public void excludedDirectories() {
+        PathPatternFilter.Pattern directory = new PathPatternFilter.Pattern("**/target/**");
+        assertTrue(directory.excludesDirectory("target"));
+        assertTrue(directory.excludesDirectory("a/b/target"));
+        assertFalse(directory.excludesDirectory("a/targets"));
+        assertFalse(directory.excludesDirectory("a/mytarget"));
+
+        PathPatternFilter.Pattern prefix = new PathPatternFilter.Pattern("src/gen/**");
+        assertTrue(prefix.excludesDirectory("src/gen"));
+        assertTrue(prefix.excludesDirectory("src/gen/sub"));
+        assertFalse(prefix.excludesDirectory("src"));
+        assertFalse(prefix.excludesDirectory("src/generated"));
+
+        PathPatternFilter.Pattern glob = new PathPatternFilter.Pattern("*/build/**");
+        assertTrue(glob.excludesDirectory("module/build"));
+        assertFalse(glob.excludesDirectory("module"));
+        assertFalse(glob.excludesDirectory("a/b/build"));
+
+        // 只排除文件的模式不能整体跳过目录
+        assertFalse(new PathPatternFilter.Pattern("**/*.java").excludesDirectory("src"));
+        assertFalse(new PathPatternFilter.Pattern("src/*.java").excludesDirectory("src"));
+    }
+
+    @Test
+    public void mayMatchUnderPrunesOnFixedLeadingSegments() {
+        PathPatternFilter.Pattern pattern = new PathPatternFilter.Pattern("src/main/**/*.java");
+        assertTrue(pattern.mayMatchUnder("src"));
+        assertTrue(pattern.mayMatchUnder("src/main"));
+        assertTrue(pattern.mayMatchUnder("src/main/a/b/c"));
+        assertFalse(pattern.mayMatchUnder("src/test"));
+        assertFalse(pattern.mayMatchUnder("lib"));
+
+        // 没有 "**" 时，比模式更深的目录不可能匹配
+        PathPatternFilter.Pattern shallow = new PathPatternFilter.Pattern("src/*.java");
+        assertTrue(shallow.mayMatchUnder("src"));
+        assertFalse(shallow.mayMatchUnder("src/sub"));
+        assertFalse(shallow.mayMatchUnder("lib"));
+        assertFalse(new PathPatternFilter.Pattern("*.java").mayMatchUnder("src"));
+
+        // 以通配符开头的模式不能按目录剪枝
+        PathPatternFilter.Pattern leadingWildcard = new PathPatternFilter.Pattern("*/src/**");
+        assertTrue(leadingWildcard.mayMatchUnder("anything"));
+        assertTrue(leadingWildcard.mayMatchUnder("a/src/b"));
+        assertTrue(new PathPatternFilter.Pattern("**/*.java").mayMatchUnder("a/b/c"));
+    }
+
+    @Test
+    public void matcherAppliesExcludesBeforeIncludes() {
+        Predicate<String> matcher = PathPatternFilter.matcher("src/main/**, **/*.xml", "**/generated/**,**/*Test.java");
+        assertTrue(matcher.test("src/main/A.java"));
+        assertTrue(matcher.test("pom.xml"));
+        assertFalse(matcher.test("src/main/generated/A.java"));
+        assertFalse(matcher.test("src/main/ATest.java"));
+        assertFalse(matcher.test("src/test/B.java"));
+
+        // 反斜杠按 "/" 处理，空模式被忽略
+        Predicate<String> windows = PathPatternFilter.matcher(" src\\main\\** ,, ", null);
+        assertTrue(windows.test("src/main/A.java"));
+        assertFalse(windows.test("lib/A.java"));
+
+        assertTrue(PathPatternFilter.matcher(null, "").test("any/A.java"));
+        assertSame(TreeFilter.ALL, PathPatternFilter.create("", " , ", null));
+    }
+
+    @Test
+    public void treeWalkSkipsPrunedSubtrees() throws Exception {
+        File dir = tmp.newFolder("repo");
+        try (Git git = Git.init().setDirectory(dir).setInitialBranch("master").call()) {
+            for (String path : List.of("pom.xml", "module/pom.xml", "module/src/main/java/A.java",
+                    "module/src/main/java/gen/B.java", "module/src/test/java/ATest.java",
+                    "module/target/classes/C.java", "other/src/main/java/D.java", "module/README.md")) {
+                write(dir, path);
+            }
+            git.add().addFilepattern(".").call();
+            RevCommit commit = git.commit().setMessage("init").setAuthor("t", "t@example.com").call();
+            Repository repository = git.getRepository();
+
+            TreeFilter filter = PathPatternFilter.create("module", "src/main/**/*.java,*.xml", "**/gen/**");
+            List<String> entered = new ArrayList<>();
+            List<String> files = new ArrayList<>();
+            try (TreeWalk walk = new TreeWalk(repository)) {
+                walk.addTree(commit.getTree());
+                walk.setFilter(filter);
+                while (walk.next()) {
+                    if (walk.isSubtree()) {
+                        entered.add(walk.getPathString());
+                        walk.enterSubtree();
+                    } else if (walk.getPathString().startsWith("module/")) {
+                        files.add(walk.getPathString());
+                    }
+                }
+            }
+
+            assertEquals(List.of("module/pom.xml", "module/src/main/java/A.java"), files);
+            // basePath 之外的目录交给外层过滤；basePath 之内不可能命中的子树不进入
+            assertTrue(entered.contains("module/src/main/java"));
+            assertFalse(entered.contains("module/src/main/java/gen"));
+            assertFalse(entered.contains("module/src/test"));
+            assertFalse(entered.contains("module/target"));
+        }
+    }
+
+    private static void write(File root, String path) throws Exception {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), (path + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
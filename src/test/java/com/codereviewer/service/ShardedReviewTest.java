@@ -0,0 +1,222 @@
+package com.codereviewer.service;
+
+import com.codereviewer.ReviewLauncher;
+import com.codereviewer.model.CodeIssue;
+import com.codereviewer.model.FileChange;
+import com.codereviewer.model.ReviewResult;
+import org.eclipse.jgit.api.Git;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 分片评审：每个分片在单独的 JVM 进程中运行（与多个 CI 节点相同），合并后的报告应与单个节点评审逐字节一致。
+ */
+public class ShardedReviewTest {
+
+    private static final int SHARDS = 3;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void mergedShardsMatchSingleNodeRun() throws Exception {
+        File repo = createRepository(tmp.newFolder("repo"));
+        File single = new File(tmp.getRoot(), "single");
+        File partials = new File(tmp.getRoot(), "partials");
+        File merged = new File(tmp.getRoot(), "merged");
+
+        launch("--dir=" + repo, "--base=master", "--output=" + single, "--max-critical=-1", "--binary-result");
+
+        List<Process> shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(start("shard-" + shard, "--dir=" + repo, "--base=master", "--output=" + partials,
+                    "--max-critical=-1", "--shard=" + shard + "/" + SHARDS));
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            await(shards.get(shard), "shard-" + shard);
+        }
+        launch("--dir=" + repo, "--merge=" + partials, "--output=" + merged, "--max-critical=-1", "--binary-result");
+
+        ReviewResult expected = BinaryResultFormat.read(new File(single, "code-review-result.bin")).getResult();
+        ReviewResult actual = BinaryResultFormat.read(new File(merged, "code-review-result.bin")).getResult();
+        assertTrue("测试仓库应产生问题", expected.getTotalIssues() > 0);
+        assertEquals(describe(expected), describe(actual));
+        // 分片以二进制格式交接，规则描述和参数不变，合并后写出的结果文件应逐字节相同
+        assertArrayEquals(Files.readAllBytes(new File(single, "code-review-result.bin").toPath()),
+                Files.readAllBytes(new File(merged, "code-review-result.bin").toPath()));
+
+        assertSameFile(single, merged, "code-review-report.json");
+        assertSameFile(single, merged, "code-review-report.md");
+        assertSameFile(single, merged, "code-review-report.html");
+        String[] chunks = new File(single, "code-review-report-files").list();
+        assertTrue(chunks != null && chunks.length > 0);
+        for (String chunk : chunks) {
+            assertSameFile(single, merged, "code-review-report-files/" + chunk);
+        }
+    }
+
+    // 生成时间所在的行除外
+    private static void assertSameFile(File expectedDir, File actualDir, String name) throws IOException {
+        assertEquals(name, withoutTimestamp(new File(expectedDir, name)), withoutTimestamp(new File(actualDir, name)));
+    }
+
+    private static String withoutTimestamp(File file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.contains("生成时间")) {
+                text.append(line).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static String describe(ReviewResult result) {
+        StringBuilder text = new StringBuilder();
+        for (FileChange change : result.getFileChanges()) {
+            text.append(change.getFilePath()).append(' ').append(change.getChangeType()).append(' ')
+                    .append(change.getBlobId()).append('\n');
+        }
+        for (CodeIssue issue : result.getIssues()) {
+            text.append(issue.getFileName()).append(':').append(issue.getLineNumber()).append(' ')
+                    .append(issue.getSeverity()).append(' ').append(issue.getRuleId()).append(' ')
+                    .append(issue.getMessage()).append(" / ").append(issue.getSuggestion()).append('\n');
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void everyFileBelongsToExactlyOneShard() {
+        List<FileChange> changes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            FileChange change = new FileChange();
+            change.setFilePath("src/File" + i + ".java");
+            change.setContent("x".repeat(1 + (i * 7919) % 5000));
+            changes.add(change);
+        }
+        int[] owners = new int[changes.size()];
+        Arrays.fill(owners, -1);
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int previous = -1;
+            for (int position : ShardedReview.positionsOf(changes, shard, SHARDS)) {
+                assertEquals("文件 " + position + " 被分到多个分片", -1, owners[position]);
+                assertTrue("位置应按原顺序排列", position > previous);
+                owners[position] = shard;
+                previous = position;
+            }
+        }
+        for (int position = 0; position < owners.length; position++) {
+            assertTrue("文件 " + position + " 没有分到分片", owners[position] >= 0);
+        }
+        assertArrayEquals(ShardedReview.assign(changes, SHARDS), ShardedReview.assign(new ArrayList<>(changes), SHARDS));
+    }
+
+    @Test
+    public void saveRejectsFilesOutsideTheShard() throws IOException {
+        FileChange change = new FileChange();
+        change.setFilePath("src/Unknown.java");
+        change.setChangeType("ADD");
+        ReviewResult result = new ReviewResult();
+        FileChange other = new FileChange();
+        other.setFilePath("src/Other.java");
+        other.setChangeType("ADD");
+        result.setFileChanges(List.of(other, change));
+        result.setIssues(new ArrayList<CodeIssue>());
+        try {
+            new ShardedReview().save(tmp.newFile("partial.bin"), 0, 2, "head", "options", 1, new int[]{0}, result);
+            fail("应拒绝不在分片文件列表中的文件");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("src/Unknown.java"));
+        }
+    }
+
+    // 基线分支上有一批文件，特性分支修改、新增和删除其中一部分
+    private static File createRepository(File directory) throws Exception {
+        try (Git git = Git.init().setDirectory(directory).setInitialBranch("master").call()) {
+            for (int i = 0; i < 30; i++) {
+                write(directory, "src/main/java/demo/Service" + i + ".java", source(i, false));
+            }
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("base").setAuthor("test", "test@example.com").call();
+
+            git.checkout().setCreateBranch(true).setName("feature").call();
+            for (int i = 0; i < 20; i++) {
+                write(directory, "src/main/java/demo/Service" + i + ".java", source(i, true));
+            }
+            for (int i = 30; i < 45; i++) {
+                write(directory, "src/main/java/demo/Service" + i + ".java", source(i, true));
+            }
+            git.rm().addFilepattern("src/main/java/demo/Service28.java")
+                    .addFilepattern("src/main/java/demo/Service29.java").call();
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("feature").setAuthor("test", "test@example.com").call();
+        }
+        return directory;
+    }
+
+    // 文件大小不同，包含命名、行长、缩进、行末空白和复杂度问题以及中文注释
+    private static String source(int n, boolean changed) {
+        StringBuilder source = new StringBuilder();
+        source.append("package demo;\n\n// 第 ").append(n).append(" 个服务\npublic class Service").append(n).append(" {\n");
+        int methods = 2 + n % 7 + (changed ? 2 : 0);
+        for (int m = 0; m < methods; m++) {
+            source.append("    public int Compute").append(m).append("(int value) {\n");
+            source.append("\tint result = value; \n");
+            source.append("        if (value > 0) { if (value > 1) { if (value > 2) { if (value > 3) { result++; } } } }\n");
+            source.append("        String text = \"").append("很长的中文字符串".repeat(changed ? 20 : 5)).append("\";\n");
+            source.append("        return result + text.length();\n    }\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int launches;
+
+    private void launch(String... args) throws Exception {
+        String name = "launch-" + launches++;
+        await(start(name, args), name);
+    }
+
+    // 与 CI 节点一样在单独的 JVM 中运行命令行入口
+    private Process start(String name, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")));
+        command.add(ReviewLauncher.class.getName());
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(new File(tmp.getRoot(), name + ".log")).start();
+    }
+
+    private void await(Process process, String name) throws Exception {
+        if (!process.waitFor(2, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            fail(name + " 超时");
+        }
+        if (process.exitValue() != 0) {
+            String output = new String(Files.readAllBytes(new File(tmp.getRoot(), name + ".log").toPath()),
+                    StandardCharsets.UTF_8);
+            fail(name + " 退出码 " + process.exitValue() + ":\n" + output);
+        }
+    }
+}
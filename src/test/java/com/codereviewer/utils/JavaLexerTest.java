@@ -0,0 +1,159 @@
+package com.codereviewer.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class JavaLexerTest {
+
+    private static final String[] KIND_NAMES = {
+            "", "IDENTIFIER", "NUMBER", "STRING", "CHAR", "COMMENT", "LBRACE", "RBRACE", "LPAREN", "RPAREN",
+            "LBRACKET", "RBRACKET", "SEMICOLON", "COMMA", "DOT", "LT", "GT", "ASSIGN", "AND_AND", "OR_OR", "AT",
+            "QUESTION", "OPERATOR"
+    };
+
+    @Test
+    public void textBlockIsOneStringToken() {
+        String source = "String s = \"\"\"\n"
+                + "    if (x) { \"quoted\" and \"\" }\n"
+                + "    // 不是注释\n"
+                + "    \"\"\";\n"
+                + "if (y) {}\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+
+        int block = indexOf(tokens, TokenStream.STRING);
+        assertEquals(0, tokens.line(block));
+        assertEquals(source.indexOf("\"\"\";") + 3, tokens.end(block));
+        assertEquals(TokenStream.SEMICOLON, tokens.kind(block + 1));
+        // 文本块之后的行号仍然正确
+        assertEquals(JavaKeywords.IF, tokens.keyword(block + 2));
+        assertEquals(4, tokens.line(block + 2));
+        assertEquals(1, count(tokens, TokenStream.STRING));
+        assertEquals(0, count(tokens, TokenStream.COMMENT));
+    }
+
+    @Test
+    public void textBlockEscapes() {
+        // \""" 不结束文本块，行尾的反斜杠是续行符，换行同样计入行号
+        String source = "s = \"\"\"\n"
+                + "    a \\\"\"\" b \\\n"
+                + "    c\"\"\"; x\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+
+        assertEquals(List.of("IDENTIFIER:s", "ASSIGN:=", "STRING", "SEMICOLON:;", "IDENTIFIER:x"),
+                describe(tokens, TokenStream.STRING));
+        assertEquals(source.indexOf("c\"\"\"") + 4, tokens.end(2));
+        assertEquals(2, tokens.line(4));
+    }
+
+    @Test
+    public void unclosedTextBlockRunsToTheEnd() {
+        String source = "a = \"\"\"\n  b;\n  c;\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+        assertEquals(3, tokens.size());
+        assertEquals(TokenStream.STRING, tokens.kind(2));
+        assertEquals(source.length(), tokens.end(2));
+    }
+
+    @Test
+    public void unicodeEscapesInLiteralsAndComments() {
+        String source = "String s = \"\\u4e2d\\u6587\"; char c = '\\u0041'; // \\u0041 if\n"
+                + "char q = '\\''; String e = \"\\\\\"; if (a) {}\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+
+        assertEquals(List.of(
+                "IDENTIFIER:String", "IDENTIFIER:s", "ASSIGN:=", "STRING:\"\\u4e2d\\u6587\"", "SEMICOLON:;",
+                "IDENTIFIER:char", "IDENTIFIER:c", "ASSIGN:=", "CHAR:'\\u0041'", "SEMICOLON:;",
+                "COMMENT:// \\u0041 if",
+                "IDENTIFIER:char", "IDENTIFIER:q", "ASSIGN:=", "CHAR:'\\''", "SEMICOLON:;",
+                "IDENTIFIER:String", "IDENTIFIER:e", "ASSIGN:=", "STRING:\"\\\\\"", "SEMICOLON:;",
+                "IDENTIFIER:if", "LPAREN:(", "IDENTIFIER:a", "RPAREN:)", "LBRACE:{", "RBRACE:}"),
+                describe(tokens, (byte) 0));
+        assertEquals(1, tokens.line(tokens.size() - 1));
+    }
+
+    @Test
+    public void unicodeEscapeInCodeDoesNotDisturbFollowingTokens() {
+        // 词法分析器不做 Unicode 转义的预处理，代码中的转义按普通字符处理，但不会吞掉后续的词法单元
+        String source = "int \\u0061 = 1;\nif (\\u0061 > 0) {\n}\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+
+        int keyword = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.keyword(i) == JavaKeywords.IF) {
+                keyword = i;
+            }
+        }
+        assertEquals(1, tokens.line(keyword));
+        assertEquals(1, count(tokens, TokenStream.LBRACE));
+        assertEquals(2, tokens.line(tokens.size() - 1));
+        assertEquals(TokenStream.RBRACE, tokens.kind(tokens.size() - 1));
+    }
+
+    @Test
+    public void blockCommentsDoNotNest() {
+        // Java 的块注释不嵌套，第一个 */ 结束注释
+        String source = "/* a /* b */ if (x) {} */\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+
+        assertEquals(List.of("COMMENT:/* a /* b */", "IDENTIFIER:if", "LPAREN:(", "IDENTIFIER:x", "RPAREN:)",
+                "LBRACE:{", "RBRACE:}", "OPERATOR:*", "OPERATOR:/"), describe(tokens, (byte) 0));
+    }
+
+    @Test
+    public void commentMarkersInsideOtherTokens() {
+        String source = "/** doc // not a line comment\n * \"not a string\n */\n"
+                + "s = \"/* not a comment */\"; // tail /* */\n"
+                + "c = '/'; /*/ still comment */ x\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+
+        assertEquals(List.of(
+                "COMMENT:/** doc // not a line comment\n * \"not a string\n */",
+                "IDENTIFIER:s", "ASSIGN:=", "STRING:\"/* not a comment */\"", "SEMICOLON:;", "COMMENT:// tail /* */",
+                "IDENTIFIER:c", "ASSIGN:=", "CHAR:'/'", "SEMICOLON:;", "COMMENT:/*/ still comment */",
+                "IDENTIFIER:x"), describe(tokens, (byte) 0));
+        assertEquals(3, tokens.line(1));
+        assertEquals(4, tokens.line(tokens.size() - 1));
+    }
+
+    @Test
+    public void unclosedBlockCommentRunsToTheEnd() {
+        String source = "a;\n/* open\n * if (x) {\n";
+        TokenStream tokens = JavaLexer.tokenize(source);
+        assertEquals(3, tokens.size());
+        assertEquals(TokenStream.COMMENT, tokens.kind(2));
+        assertEquals(source.length(), tokens.end(2));
+    }
+
+    private static int indexOf(TokenStream tokens, byte kind) {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.kind(i) == kind) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int count(TokenStream tokens, byte kind) {
+        int count = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.kind(i) == kind) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 以 "类型:文本" 描述词法单元，textless 类型只保留类型名
+    private static List<String> describe(TokenStream tokens, byte textless) {
+        List<String> described = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String kind = KIND_NAMES[tokens.kind(i)];
+            described.add(tokens.kind(i) == textless ? kind : kind + ":" + tokens.text(i));
+        }
+        return described;
+    }
+}
@@ -0,0 +1,140 @@
+package com.codereviewer.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KeywordMatcherTest {
+
+    private static final KeywordMatcher COMPLEXITY = new KeywordMatcher(
+            "if", "else", "for", "while", "switch", "case", "catch", "&&", "||");
+
+    @Test
+    public void overlappingKeywordsAreAllCounted() {
+        KeywordMatcher matcher = new KeywordMatcher("he", "she", "his", "hers");
+        // 不要求边界时 "ushers" 中的 she、he、hers 都出现；这些关键字以字母开头结尾，需要单词边界
+        assertEquals(0, count(matcher, "ushers"));
+        assertEquals(1, count(matcher, "u she rs"));
+        assertEquals(2, count(matcher, "he hers"));
+
+        // 运算符没有边界限制，重叠的出现都计入
+        KeywordMatcher operators = new KeywordMatcher("&&", "&&&", "|");
+        assertEquals(3, count(operators, "&&&"));
+        assertEquals(2, count(operators, "a||b"));
+    }
+
+    @Test
+    public void keywordsInsideIdentifiersAreNotCounted() {
+        assertEquals(0, count(COMPLEXITY, "modifier"));
+        assertEquals(0, count(COMPLEXITY, "elseif forEach whileLoop iff _if if_ $if if$ if1 x.casex"));
+        assertEquals(1, count(COMPLEXITY, "modifier if"));
+        assertEquals(3, count(COMPLEXITY, "if(a&&b){}else{}"));
+        assertEquals(4, count(COMPLEXITY, "} else if (x || y) for"));
+    }
+
+    @Test
+    public void rangeEdgesAreWordBoundaries() {
+        String text = "xifx";
+        // 只统计 [1, 3)，范围外的字符不影响边界
+        assertEquals(1, COMPLEXITY.count(text, 1, 3));
+        assertEquals(0, COMPLEXITY.count(text, 0, 3));
+        assertEquals(0, COMPLEXITY.count(text, 1, 4));
+    }
+
+    @Test
+    public void nonAsciiCharacters() {
+        // 中文字符可以出现在标识符中，相邻时不构成单词边界
+        assertEquals(0, count(COMPLEXITY, "中if"));
+        assertEquals(0, count(COMPLEXITY, "if中"));
+        assertEquals(1, count(COMPLEXITY, "// 如果 if （条件）"));
+        assertEquals(1, count(COMPLEXITY, "“if”"));
+        // 非 ASCII 字符不会与关键字匹配，也不会使自动机越界
+        assertEquals(2, count(COMPLEXITY, "￿&&\u0080||é"));
+        assertEquals(-1, COMPLEXITY.match("ïf", 0, 2));
+    }
+
+    @Test
+    public void matchRequiresTheWholeRange() {
+        assertEquals(0, COMPLEXITY.match("if", 0, 2));
+        assertEquals(1, COMPLEXITY.match("(else)", 1, 5));
+        assertEquals(-1, COMPLEXITY.match("els", 0, 3));
+        assertEquals(-1, COMPLEXITY.match("elsee", 0, 5));
+        assertEquals(-1, COMPLEXITY.match("", 0, 0));
+        assertEquals("catch", COMPLEXITY.keyword(COMPLEXITY.match("catch", 0, 5)));
+    }
+
+    @Test
+    public void duplicateKeywordsMatchTheFirstIndex() {
+        KeywordMatcher matcher = new KeywordMatcher("for", "if", "for");
+        assertEquals(0, matcher.match("for", 0, 3));
+        assertEquals(1, count(matcher, "for"));
+        assertEquals(3, matcher.size());
+    }
+
+    @Test
+    public void rejectsEmptyAndNonAsciiKeywords() {
+        try {
+            new KeywordMatcher("if", "");
+            fail("空关键字应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+        try {
+            new KeywordMatcher("如果");
+            fail("非 ASCII 关键字应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("如果"));
+        }
+    }
+
+    @Test
+    public void agreesWithNaiveScanOnRandomText() {
+        String[] keywords = {"if", "in", "int", "&&", "&", "a_b", "fi"};
+        KeywordMatcher matcher = new KeywordMatcher(keywords);
+        char[] alphabet = {'i', 'f', 'n', 't', '&', 'a', '_', 'b', ' ', '(', '中', 'é'};
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            char[] text = new char[random.nextInt(30)];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String value = new String(text);
+            int start = value.isEmpty() ? 0 : random.nextInt(value.length());
+            int end = start + random.nextInt(value.length() - start + 1);
+            assertEquals(value + " [" + start + ", " + end + ")", naiveCount(keywords, value, start, end),
+                    matcher.count(value, start, end));
+        }
+    }
+
+    private static int count(KeywordMatcher matcher, String text) {
+        return matcher.count(text, 0, text.length());
+    }
+
+    // 逐个位置逐个关键字比较的参考实现
+    private static int naiveCount(String[] keywords, String text, int start, int end) {
+        int count = 0;
+        for (String keyword : keywords) {
+            for (int i = start; i + keyword.length() <= end; i++) {
+                if (!text.startsWith(keyword, i)) {
+                    continue;
+                }
+                int after = i + keyword.length();
+                boolean startOk = !isWord(keyword.charAt(0)) || i == start || !isWord(text.charAt(i - 1));
+                boolean endOk = !isWord(keyword.charAt(keyword.length() - 1)) || after == end
+                        || !isWord(text.charAt(after));
+                if (startOk && endOk) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isWord(char c) {
+        return Character.isJavaIdentifierPart(c) && !Character.isIdentifierIgnorable(c);
+    }
+}